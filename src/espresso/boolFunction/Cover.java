@@ -1,14 +1,22 @@
 package espresso.boolFunction;
 
+import espresso.boolFunction.cube.ColumnIndex;
+import espresso.boolFunction.cube.CoverArena;
 import espresso.boolFunction.cube.Cube;
 import espresso.boolFunction.cube.CubeArray;
+import espresso.boolFunction.cube.CubeEncoding;
+import espresso.boolFunction.cube.CubePool;
+import espresso.boolFunction.cube.CubeRows;
+import espresso.boolFunction.cube.OffHeapCubeStore;
 import espresso.urpAlgorithms.Complement;
+import espresso.urpAlgorithms.OffSetCache;
 import espresso.utils.Pair;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.*;
+import java.util.function.BiFunction;
 
 import static espresso.boolFunction.InputState.DONTCARE;
 import static espresso.boolFunction.InputState.ONE;
@@ -19,7 +27,7 @@ import static espresso.boolFunction.OutputState.OUTPUT;
  * By definition cover is first set of cubes.
  * In first sense of boolean algebra, cover is first matrix representation of first boolean function.
  */
-public class Cover implements Iterable<Cube> {
+public class Cover implements Iterable<Cube>, CubeRows {
   private CubeArray cubes;
 
   /**
@@ -34,6 +42,18 @@ public class Cover implements Iterable<Cube> {
     cubes = new CubeArray(inputCount, outputCount);
   }
 
+  /**
+   * Same as {@link Cover#Cover(int, int)} with storage from the given arena.
+   * The cover can't be used after the arena releases its level.
+   *
+   * @param inputCount  int
+   * @param outputCount int
+   * @param arena       {@link CoverArena} or null to allocate normally.
+   */
+  public Cover(int inputCount, int outputCount, CoverArena arena) {
+    cubes = new CubeArray(inputCount, outputCount, arena);
+  }
+
   public Cover(Cube... cubes) {
     if (cubes == null) throw new NullPointerException("Parameter can't be null.");
     if (cubes.length == 0) {
@@ -50,14 +70,20 @@ public class Cover implements Iterable<Cube> {
   }
 
   /**
-   * Copy constructor.
+   * Copy constructor. Cubes are shared with the given cover
+   * until one of the covers changes.
    *
    * @param cover {@link Cover}.
+   * @see CubeArray#CubeArray(CubeArray)
    */
   public Cover(Cover cover) {
     cubes = new CubeArray(cover.cubes);
   }
 
+  private Cover(CubeArray cubes) {
+    this.cubes = cubes;
+  }
+
   /**
    * Reads only single output functions for now.
    *
@@ -65,31 +91,68 @@ public class Cover implements Iterable<Cube> {
    * @throws IOException If file not found or some other IO error occurs.
    */
   public Cover(String filepath) throws IOException {
+    cubes = read(filepath, CubeArray::new, CubeArray::addRow);
+  }
+
+  /**
+   * Reads first file in the same format as {@link Cover#Cover(String)} straight
+   * into an {@link OffHeapCubeStore}. No {@link Cube}s are created while reading.
+   *
+   * @param filepath {@link String}
+   * @return {@link OffHeapCubeStore}
+   * @throws IOException If file not found or some other IO error occurs.
+   */
+  public static OffHeapCubeStore readOffHeap(String filepath) throws IOException {
+    return read(filepath, OffHeapCubeStore::new, OffHeapCubeStore::addRow);
+  }
+
+  private interface RowTarget<T> {
+    void addRow(T target, long[] row, int offset);
+  }
+
+  private static <T> T read(
+      String filepath,
+      BiFunction<Integer, Integer, T> factory,
+      RowTarget<T> rowTarget
+  ) throws IOException {
     try (BufferedReader br = new BufferedReader(new FileReader(filepath))) {
       String firstLine = br.readLine();
       String[] inputOutputCounts = firstLine.split("\\s+");
       int inputCount = Integer.valueOf(inputOutputCounts[0]);
       int outputCount = Integer.valueOf(inputOutputCounts[1]);
 
-      cubes = new CubeArray(inputCount, outputCount);
+      T retValue = factory.apply(inputCount, outputCount);
+      int inputWords = CubeEncoding.inputWordCount(inputCount);
+      long[] row = new long[inputWords + CubeEncoding.outputWordCount(outputCount)];
 
       for (String line = br.readLine(); line != null; line = br.readLine()) {
         String[] inputOutputStrings = line.split("\\s+");
         String inputString = inputOutputStrings[0];
         String outputString = inputOutputStrings[1];
 
-        InputState[] inputStates = new InputState[inputString.length()];
-        for (int i = 0; i < inputStates.length; ++i) {
-          inputStates[i] = InputState.fromValue(Character.getNumericValue(inputString.charAt(i)));
+        if (inputString.length() != inputCount || outputString.length() != outputCount) {
+          throw new IllegalArgumentException(
+              "Every line must have the same number of inputs and outputs as given in the first line."
+          );
+        }
+
+        Arrays.fill(row, 0L);
+        for (int i = 0; i < inputCount; ++i) {
+          InputState state = InputState.fromValue(Character.getNumericValue(inputString.charAt(i)));
+          row[CubeEncoding.inputWordIndex(i)] |= CubeEncoding.encode(state) << CubeEncoding.inputShift(i);
         }
 
-        OutputState[] outputStates = new OutputState[outputString.length()];
-        for (int i = 0; i < outputStates.length; ++i) {
-          outputStates[i] = OutputState.fromValue(Character.getNumericValue(outputString.charAt(i)));
+        for (int i = 0; i < outputCount; ++i) {
+          OutputState state = OutputState.fromValue(Character.getNumericValue(outputString.charAt(i)));
+          if (state == OUTPUT) {
+            row[inputWords + i / CubeEncoding.OUTPUTS_PER_WORD] |= 1L << (i % CubeEncoding.OUTPUTS_PER_WORD);
+          }
         }
 
-        cubes.add(new Cube(inputStates, outputStates));
+        rowTarget.addRow(retValue, row, 0);
       }
+
+      return retValue;
     }
   }
 
@@ -115,7 +178,7 @@ public class Cover implements Iterable<Cube> {
     return retValue;
   }
 
-  private void checkCoverCompatibility(Cover other) {
+  private void checkCoverCompatibility(CubeRows other) {
     if (inputCount() != other.inputCount() || outputCount() != other.outputCount()) {
       throw new UnsupportedOperationException(
           "This operation can't be performed on these two covers. Their input or output counts are different."
@@ -123,6 +186,14 @@ public class Cover implements Iterable<Cube> {
     }
   }
 
+  private void checkCubeCompatibility(Cube cube) {
+    if (inputCount() != cube.inputLength() || outputCount() != cube.outputLength()) {
+      throw new UnsupportedOperationException(
+          "This operation can't be performed on this cover and cube. Their input or output counts are different."
+      );
+    }
+  }
+
   /**
    * Method creates first variable {@link Cube} for this cover.
    * A variable {@link Cube} has all {@link InputState#DONTCARE}
@@ -144,6 +215,26 @@ public class Cover implements Iterable<Cube> {
     return retValue;
   }
 
+  /**
+   * Same as {@link Cover#generateVariableCube(int)}, but the cube is
+   * taken from the given pool.
+   *
+   * @param inputIndex int
+   * @param pool       {@link CubePool} or null for no interning.
+   * @return {@link Cube}, interned if first pool is given.
+   */
+  public Cube generateVariableCube(int inputIndex, CubePool pool) {
+    if (pool == null) {
+      return generateVariableCube(inputIndex);
+    }
+
+    if (inputIndex < 0 || inputIndex >= inputCount()) {
+      throw new IllegalArgumentException("Input index is out of range for this cover.");
+    }
+
+    return pool.variable(inputCount(), outputCount(), inputIndex, ONE);
+  }
+
   public Cube generateTautologyForOutput(int index) {
     if (index < 0 || index >= outputCount()) {
       throw new ArrayIndexOutOfBoundsException("Index out of bounds.");
@@ -173,10 +264,60 @@ public class Cover implements Iterable<Cube> {
     cubes.addAll(c);
   }
 
+  /**
+   * Adds first copy of the given packed row.
+   *
+   * @param words  array with the row, see {@link CubeEncoding}.
+   * @param offset first word of the row.
+   */
+  public void addRow(long[] words, int offset) {
+    cubes.addRow(words, offset);
+  }
+
+  /**
+   * Adds copies of rows from any {@link CubeRows}, for example
+   * an {@link OffHeapCubeStore}.
+   *
+   * @param rows {@link CubeRows}
+   */
+  public void addAll(CubeRows rows) {
+    if (rows instanceof Cover) {
+      addAll((Cover) rows);
+    } else {
+      cubes.addAll(rows);
+    }
+  }
+
+  /**
+   * Adds the given {@link Cube} only if the cover doesn't have first
+   * {@link Cube} that is literally identical to it.
+   *
+   * @param cube {@link Cube}
+   * @return true if the cube was added.
+   */
+  public boolean addIfAbsent(Cube cube) {
+    if (cubes.contains(cube)) {
+      return false;
+    }
+
+    cubes.add(cube);
+    return true;
+  }
+
   public void remove(Cube cube) {
     cubes.remove(cube);
   }
 
+  /**
+   * Removes all {@link Cube}s that are literally identical to the given one.
+   *
+   * @param cube {@link Cube}
+   * @return removed cubes.
+   */
+  public List<Cube> removeEqual(Cube cube) {
+    return cubes.removeEqual(cube);
+  }
+
   public Cube remove(int index) {
     return cubes.remove(index);
   }
@@ -185,6 +326,38 @@ public class Cover implements Iterable<Cube> {
     return cubes.get(index);
   }
 
+  /**
+   * Bitset over indexes of cubes contained by the given cube.
+   *
+   * @param cube {@link Cube}
+   * @return new bitset, bit i is set for the cube at index i.
+   * @see espresso.boolFunction.cube.CoverKernels
+   */
+  public long[] containedRows(Cube cube) {
+    return cubes.containedRows(cube);
+  }
+
+  /**
+   * Bitset over indexes of cubes that contain the given cube.
+   *
+   * @param cube {@link Cube}
+   * @return new bitset, bit i is set for the cube at index i.
+   * @see espresso.boolFunction.cube.CoverKernels
+   */
+  public long[] containingRows(Cube cube) {
+    return cubes.containingRows(cube);
+  }
+
+  @Override
+  public void readRow(int index, long[] destination, int offset) {
+    cubes.readRow(index, destination, offset);
+  }
+
+  @Override
+  public InputState getInputState(int index, int column) {
+    return cubes.getInputState(index, column);
+  }
+
   private void indexOutOfBoundCheck(int index) {
     if (index < 0 || index >= size()) {
       throw new ArrayIndexOutOfBoundsException("Index out of bounds.");
@@ -374,20 +547,43 @@ public class Cover implements Iterable<Cube> {
    * @return array of two {@link Cover}s.
    */
   public Cover[] shannonCofactors(int splitIndex) {
+    return shannonCofactors(splitIndex, null);
+  }
+
+  /**
+   * Same as {@link Cover#shannonCofactors(int)}, storage of the cofactors
+   * is taken from the given arena.
+   *
+   * @param splitIndex splitting index.
+   * @param arena      {@link CoverArena} or null to allocate normally.
+   * @return array of two {@link Cover}s.
+   */
+  public Cover[] shannonCofactors(int splitIndex, CoverArena arena) {
     if (cubes.size() == 0) {
       throw new UnsupportedOperationException("Cube is empty!");
     }
 
-    Cube splitCube = generateVariableCube(splitIndex);
-    Cube complement = new Cube(splitCube).inputComplement();
+    if (splitIndex < 0 || splitIndex >= cubes.getInputLength()) {
+      throw new IllegalArgumentException("Split index is out of bounds.");
+    }
 
     Cover[] retValue = new Cover[2];
-    retValue[0] = cofactor(complement);
-    retValue[1] = cofactor(splitCube);
+    retValue[0] = new Cover(cubes.literalCofactor(splitIndex, false, arena));
+    retValue[1] = new Cover(cubes.literalCofactor(splitIndex, true, arena));
 
     return retValue;
   }
 
+  /**
+   * Returns the transposed column bitmaps of this cover.
+   * Index is valid until the cover changes.
+   *
+   * @return {@link ColumnIndex}
+   */
+  public ColumnIndex getColumnIndex() {
+    return cubes.getColumnIndex();
+  }
+
   /**
    * Method returns first new cover which is first cofactor of this cover
    * with respect to the given cover (given parameter).<br/>
@@ -400,16 +596,35 @@ public class Cover implements Iterable<Cube> {
    * @return {@link Cover}.
    */
   public Cover cofactor(Cube other) {
-    checkCoverCompatibility(Cover.of(other.copy()));
-    Cover retValue = new Cover(inputCount(), outputCount());
+    return cofactor(other, null);
+  }
 
-    for (Cube cube : cubes) {
-      Cube cubeCofactor = cube.cofactor(other);
-      if (cubeCofactor != null)
-        retValue.cubes.add(cubeCofactor);
-    }
+  /**
+   * Same as {@link Cover#cofactor(Cube)} with storage from the given arena.
+   *
+   * @param other {@link Cube}.
+   * @param arena {@link CoverArena} or null to allocate normally.
+   * @return {@link Cover}.
+   */
+  public Cover cofactor(Cube other, CoverArena arena) {
+    checkCubeCompatibility(other);
+    return new Cover(cubes.cofactor(other, null, arena));
+  }
 
-    return retValue;
+  /**
+   * Adds the cofactors of the given rows with respect to the given cube,
+   * rows that don't intersect the cube are skipped. Rows are streamed,
+   * so an {@link OffHeapCubeStore} isn't copied onto the heap.
+   *
+   * @param rows    {@link CubeRows}
+   * @param other   {@link Cube}
+   * @param skipped index of first row that is left out or -1.
+   * @see Cover#cofactor(Cube)
+   */
+  public void addCofactors(CubeRows rows, Cube other, int skipped) {
+    checkCoverCompatibility(rows);
+    checkCubeCompatibility(other);
+    cubes.addCofactors(rows, other, skipped);
   }
 
   public Pair<Cover, List<Integer>> trackingCofactor(Cube other) {
@@ -417,24 +632,27 @@ public class Cover implements Iterable<Cube> {
   }
 
   public Pair<Cover, List<Integer>> trackingCofactor(Cube other, List<Integer> previousTrack) {
-    checkCoverCompatibility(Cover.of(other));
+    return trackingCofactor(other, previousTrack, null);
+  }
+
+  public Pair<Cover, List<Integer>> trackingCofactor(
+      Cube other,
+      List<Integer> previousTrack,
+      CoverArena arena
+  ) {
+    checkCubeCompatibility(other);
     if (previousTrack != null && previousTrack.size() != size()) {
       throw new IllegalArgumentException(
           "Previous tracker should be the same size as the current cover."
       );
     }
 
-    Cover cofactor = new Cover(inputCount(), outputCount());
     List<Integer> indexTrack = new ArrayList<>();
+    Cover cofactor = new Cover(cubes.cofactor(other, indexTrack, arena));
 
-    for (int i = 0; i < this.size(); ++i) {
-      Cube coverCube = this.get(i);
-      Cube cubeCofactor = coverCube.cofactor(other);
-
-      if (cubeCofactor != null) {
-        cofactor.add(cubeCofactor);
-        int index = (previousTrack != null ? previousTrack.get(i) : i);
-        indexTrack.add(index);
+    if (previousTrack != null) {
+      for (int i = 0; i < indexTrack.size(); ++i) {
+        indexTrack.set(i, previousTrack.get(indexTrack.get(i)));
       }
     }
 
@@ -444,39 +662,34 @@ public class Cover implements Iterable<Cube> {
   /**
    * Method tells whether the cover has first row full
    * of {@link InputState#DONTCARE} values.
-   * <p>
-   * Note: This is first brute force function that should be
-   * used on small {@link Cover}s only.
    *
    * @return true if it has first row full of DONTCARE values.
    */
   public boolean hasDONTCARERow() {
-    for (Cube cube : this) {
-      if (cube.isInputPartTautology()) {
-        return true;
-      }
-    }
-    return false;
+    return cubes.hasDontcareRow();
   }
 
   /**
    * Returns first complement of this cover.
    *
    * @return {@link Cover}
-   * @see Complement#singleOutputComplement(Cover)
-   * @see Complement#complement(Cover, Cover)
+   * @see Cover#complement(Cover)
    */
   public Cover complement() {
-    if (outputCount() == 1) {
-      return Complement.singleOutputComplement(this);
-    } else {
-      return Complement.complement(this, new Cover(inputCount(), outputCount()));
-    }
+    return complement(new Cover(inputCount(), outputCount()));
   }
 
+  /**
+   * Returns first complement of this cover with the given don't care set.
+   * Complements of the same function are computed only once, see {@link OffSetCache}.
+   *
+   * @param dontcareSet {@link Cover}
+   * @return {@link Cover}
+   * @see Complement#complement(Cover, Cover)
+   */
   public Cover complement(Cover dontcareSet) {
     checkCoverCompatibility(dontcareSet);
-    return Complement.complement(this, dontcareSet);
+    return OffSetCache.getInstance().complement(this, dontcareSet, Complement::complement);
   }
 
   /**
@@ -488,33 +701,53 @@ public class Cover implements Iterable<Cube> {
    * @return {@link Cover}.
    */
   public Cover intersect(Cover other) {
-    checkCoverCompatibility(other);
-    Cover retValue = new Cover(inputCount(), outputCount());
-
-    for (Cube cube1 : cubes) {
-      for (Cube cube2 : other.cubes) {
-        Cube param = cube1.and(cube2);
-        if (param == null) continue;
-        retValue.cubes.add(param);
-      }
-    }
+    return intersect(other, null);
+  }
 
-    return retValue;
+  /**
+   * Same as {@link Cover#intersect(Cover)} with storage from the given arena.
+   *
+   * @param other {@link Cover}.
+   * @param arena {@link CoverArena} or null to allocate normally.
+   * @return {@link Cover}.
+   */
+  public Cover intersect(Cover other, CoverArena arena) {
+    checkCoverCompatibility(other);
+    return new Cover(cubes.intersect(other.cubes, arena));
   }
 
   /**
    * Method returns first new cover which is first simple smallestCubeContainingBoth of both
    * covers.
    *
-   * @param other {@link Cover}.
+   * @param other {@link CubeRows}, usually first {@link Cover}.
    * @return {@link Cover}.
    */
-  public Cover union(Cover other) {
+  public Cover union(CubeRows other) {
     checkCoverCompatibility(other);
-    Cover retValue = new Cover(inputCount(), outputCount());
+    Cover retValue = new Cover(this);
+    retValue.addAll(other);
+
+    return retValue;
+  }
 
-    retValue.cubes.addAll(cubes);
-    retValue.cubes.addAll(other.cubes);
+  /**
+   * Same as {@link Cover#union(CubeRows)}, but the rows of both covers are
+   * copied into storage from the given arena instead of sharing the rows of this cover.
+   *
+   * @param other {@link CubeRows}, usually first {@link Cover}.
+   * @param arena {@link CoverArena} or null to allocate normally.
+   * @return {@link Cover}.
+   */
+  public Cover union(CubeRows other, CoverArena arena) {
+    if (arena == null) {
+      return union(other);
+    }
+
+    checkCoverCompatibility(other);
+    Cover retValue = new Cover(inputCount(), outputCount(), arena);
+    retValue.addAll(this);
+    retValue.addAll(other);
 
     return retValue;
   }
@@ -527,21 +760,15 @@ public class Cover implements Iterable<Cube> {
    * @return true if the cube is found
    */
   public boolean hasCube(Cube cube) {
-    for (Cube c : this) {
-      if (c.equals(cube)) {
-        return true;
-      }
-    }
-
-    return false;
+    return cubes.contains(cube);
   }
 
   /**
-   * Use for debug purposes only and use it on small covers.
-   * <p>
    * Warning: This method doesn't check if two covers are
    * logically equivalent. It checks if the covers have
-   * same {@link Cube}s.
+   * same {@link Cube}s, every cube the same number of times.
+   * Counts are answered by the hash indexes of the covers
+   * so the check takes linear time.
    *
    * @param obj {@link Object}
    * @return true if equal otherwise false.
@@ -552,19 +779,16 @@ public class Cover implements Iterable<Cube> {
       return false;
     }
 
-    Cover other = (Cover) obj;
-
-    if (size() != other.size()) {
-      return false;
-    }
-
-    for (Cube cube : this) {
-      if (!other.hasCube(cube)) {
-        return false;
-      }
-    }
+    return cubes.hasSameRows(((Cover) obj).cubes);
+  }
 
-    return true;
+  /**
+   * Doesn't depend on the order of the cubes, see {@link Cover#equals(Object)}.
+   *
+   * @return hash code of the cubes as first multiset.
+   */
+  @Override
+  public int hashCode() {
+    return cubes.rowHashSum();
   }
 }
-
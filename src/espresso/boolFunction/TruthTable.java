@@ -0,0 +1,448 @@
+package espresso.boolFunction;
+
+import espresso.boolFunction.cube.Cube;
+import espresso.boolFunction.cube.CubeEncoding;
+
+import java.util.Arrays;
+
+import static espresso.boolFunction.InputState.*;
+
+/**
+ * Truth table of first single output boolean function over first small support.<br/>
+ * <br/>
+ * Variable k of the table is the input column {@link TruthTable#support}[k] of the
+ * {@link Cover} it was built from, other inputs don't matter. Minterm m is stored in
+ * bit m % 64 of word m / 64, so functions of up to 6 variables fit into first single long
+ * and functions of up to {@link TruthTable#MAX_VARIABLES} variables into 1024 longs.
+ * Tautology, complement, containment and equivalence are then plain bitwise operations.
+ * Output parts are ignored like in the other single output algorithms.
+ */
+public final class TruthTable {
+  /**
+   * Covers with first larger support are left to the recursive algorithms.
+   */
+  public static final int MAX_VARIABLES = 16;
+
+  /**
+   * Minterms for which the variable k (k < 6) is true inside first word.
+   */
+  private static final long[] VARIABLE_MASKS = {
+      0xAAAAAAAAAAAAAAAAL,
+      0xCCCCCCCCCCCCCCCCL,
+      0xF0F0F0F0F0F0F0F0L,
+      0xFF00FF00FF00FF00L,
+      0xFFFF0000FFFF0000L,
+      0xFFFFFFFF00000000L
+  };
+
+  private final int inputCount;
+  private final int outputCount;
+  private final int[] support;
+  private final long[] bits;
+
+  private TruthTable(int inputCount, int outputCount, int[] support, long[] bits) {
+    this.inputCount = inputCount;
+    this.outputCount = outputCount;
+    this.support = support;
+    this.bits = bits;
+  }
+
+  /**
+   * @param cover {@link Cover}
+   * @return input columns that have at least one {@link InputState#ONE}
+   * or {@link InputState#ZERO}, in increasing order.
+   */
+  public static int[] support(Cover cover) {
+    int count = 0;
+    int[] retValue = new int[cover.inputCount()];
+
+    for (int i = 0; i < cover.inputCount(); i++) {
+      if (cover.getOneColumnCount(i) + cover.getZeroColumnCount(i) != 0) {
+        retValue[count++] = i;
+      }
+    }
+
+    return Arrays.copyOf(retValue, count);
+  }
+
+  /**
+   * @param cover {@link Cover}
+   * @return truth table of the cover or null if its support is too large.
+   */
+  public static TruthTable of(Cover cover) {
+    int[] support = support(cover);
+    return support.length > MAX_VARIABLES ? null : of(cover, support);
+  }
+
+  /**
+   * Builds the table over the given support. Covers with different supports
+   * can be compared this way.
+   *
+   * @param cover   {@link Cover}
+   * @param support input columns, columns of the cover outside of the support
+   *                must be {@link InputState#DONTCARE}.
+   * @return {@link TruthTable}
+   */
+  public static TruthTable of(Cover cover, int[] support) {
+    if (support.length > MAX_VARIABLES) {
+      throw new IllegalArgumentException("Support is too large for first truth table.");
+    }
+
+    TruthTable retValue = new TruthTable(cover.inputCount(), cover.outputCount(), support.clone(),
+        new long[wordCount(support.length)]);
+
+//    Rows are read straight from the cover, no views of the cubes are created.
+    int inputWords = CubeEncoding.inputWordCount(cover.inputCount());
+    long[] row = new long[inputWords + CubeEncoding.outputWordCount(cover.outputCount())];
+    for (int i = 0; i < cover.size(); i++) {
+      cover.readRow(i, row, 0);
+      if (!isEmptyRow(row, cover.inputCount(), inputWords)) {
+        retValue.addRow(row);
+      }
+    }
+
+    return retValue;
+  }
+
+  private static int wordCount(int variableCount) {
+    return variableCount <= 6 ? 1 : 1 << (variableCount - 6);
+  }
+
+  private long validMask() {
+    return support.length >= 6 ? -1L : (1L << (1 << support.length)) - 1;
+  }
+
+  /**
+   * Same as {@link Cube#isEmpty(Cube)} for first packed row.
+   */
+  private static boolean isEmptyRow(long[] row, int inputCount, int inputWords) {
+    for (int w = 0; w < inputWords; w++) {
+      if (CubeEncoding.emptyFields(row[w], CubeEncoding.inputMask(inputCount, w)) != 0) {
+        return true;
+      }
+    }
+    for (int w = inputWords; w < row.length; w++) {
+      if (row[w] != 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private void addRow(long[] row) {
+    long low = validMask();
+    int care = 0;
+    int value = 0;
+
+    for (int k = 0; k < support.length; k++) {
+      int column = support[k];
+      long word = row[CubeEncoding.inputWordIndex(column)];
+      InputState state = CubeEncoding.decode(word >>> CubeEncoding.inputShift(column));
+      if (state == EMPTY) {
+        return;
+      }
+      if (state == DONTCARE) {
+        continue;
+      }
+
+      if (k < 6) {
+        low &= state == ONE ? VARIABLE_MASKS[k] : ~VARIABLE_MASKS[k];
+      } else {
+        care |= 1 << (k - 6);
+        value |= state == ONE ? 1 << (k - 6) : 0;
+      }
+    }
+
+//    Every word whose index agrees with the high literals gets the low minterms.
+    int free = (bits.length - 1) & ~care;
+    int subset = 0;
+    do {
+      bits[value | subset] |= low;
+      subset = (subset - free) & free;
+    } while (subset != 0);
+  }
+
+  public int variableCount() {
+    return support.length;
+  }
+
+  public int[] getSupport() {
+    return support.clone();
+  }
+
+  public boolean isTautology() {
+    return isOnes(bits);
+  }
+
+  public boolean isEmpty() {
+    return isZero(bits);
+  }
+
+  public TruthTable complement() {
+    long[] retValue = new long[bits.length];
+    long valid = validMask();
+
+    for (int i = 0; i < bits.length; i++) {
+      retValue[i] = ~bits[i] & valid;
+    }
+
+    return new TruthTable(inputCount, outputCount, support, retValue);
+  }
+
+  /**
+   * @param other {@link TruthTable} over the same support.
+   * @return true if every minterm of the other function is first minterm of this one.
+   */
+  public boolean contains(TruthTable other) {
+    checkSupport(other);
+
+    for (int i = 0; i < bits.length; i++) {
+      if ((other.bits[i] & ~bits[i]) != 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private void checkSupport(TruthTable other) {
+    if (!Arrays.equals(support, other.support)) {
+      throw new IllegalArgumentException("Truth tables have different supports.");
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    TruthTable table = (TruthTable) o;
+
+    return Arrays.equals(support, table.support) && Arrays.equals(bits, table.bits);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(support) + Arrays.hashCode(bits);
+  }
+
+  /**
+   * Smallest cube containing all minterms of the function. All outputs are set.
+   * If the function is empty the cube has all inputs in {@link InputState#ZERO}
+   * and no outputs, the same cube the unate case of the reduction returns for
+   * first tautology.
+   *
+   * @return {@link Cube}
+   */
+  public Cube supercube() {
+    Cube retValue = new Cube(inputCount, outputCount);
+
+    if (isEmpty()) {
+      for (int i = 0; i < inputCount; i++) {
+        retValue.setInput(ZERO, i);
+      }
+      for (int i = 0; i < outputCount; i++) {
+        retValue.setOutput(OutputState.NOT_OUTPUT, i);
+      }
+      return retValue;
+    }
+
+    for (int k = 0; k < support.length; k++) {
+      boolean positive = isZero(cofactor(bits, k, false));
+      boolean negative = isZero(cofactor(bits, k, true));
+
+      if (positive) {
+        retValue.setInput(ONE, support[k]);
+      } else if (negative) {
+        retValue.setInput(ZERO, support[k]);
+      }
+    }
+
+    return retValue;
+  }
+
+  /**
+   * Irredundant sum of products of the function, computed with the
+   * Minato-Morreale algorithm. All outputs of the cubes are set.
+   *
+   * @return {@link Cover}
+   */
+  public Cover toCover() {
+    Cover retValue = new Cover(inputCount, outputCount);
+    long[][][] scratch = new long[support.length][][];
+    isop(bits, bits, support.length - 1, new Cube(inputCount, outputCount), retValue,
+        new long[bits.length], scratch);
+
+    return retValue;
+  }
+
+  /**
+   * Adds first cover of some function between the lower and the upper bound to the result.
+   * Cubes are built in the given cube, columns of the variables above the given
+   * variable are already set.<br/>
+   * Every call splits on first lower variable than its caller, so the tables of first call
+   * are kept in the scratch of its variable and reused by the next calls at that variable.
+   *
+   * @param out receives the truth table of the added cubes.
+   */
+  private void isop(
+      long[] lower,
+      long[] upper,
+      int variable,
+      Cube cube,
+      Cover result,
+      long[] out,
+      long[][][] scratch
+  ) {
+    if (isZero(lower)) {
+      Arrays.fill(out, 0L);
+      return;
+    }
+    if (isOnes(upper)) {
+      result.add(cube.copy());
+      Arrays.fill(out, validMask());
+      return;
+    }
+
+    while (!depends(lower, variable) && !depends(upper, variable)) {
+      variable--;
+    }
+
+    if (scratch[variable] == null) {
+      scratch[variable] = new long[7][bits.length];
+    }
+    long[][] tables = scratch[variable];
+    long[] lower0 = cofactor(lower, variable, false, tables[0]);
+    long[] lower1 = cofactor(lower, variable, true, tables[1]);
+    long[] upper0 = cofactor(upper, variable, false, tables[2]);
+    long[] upper1 = cofactor(upper, variable, true, tables[3]);
+    long[] argument = tables[4];
+    long[] result0 = tables[5];
+    long[] result1 = tables[6];
+    int column = support[variable];
+
+    cube.setInput(ZERO, column);
+    isop(andNot(lower0, upper1, argument), upper0, variable - 1, cube, result, result0, scratch);
+    cube.setInput(ONE, column);
+    isop(andNot(lower1, upper0, argument), upper1, variable - 1, cube, result, result1, scratch);
+    cube.setInput(DONTCARE, column);
+
+//    Minterms that are left and the part of the upper bound that doesn't depend on the variable.
+    long[] common = lower0;
+    for (int i = 0; i < argument.length; i++) {
+      argument[i] = lower0[i] & ~result0[i] | lower1[i] & ~result1[i];
+      common[i] = upper0[i] & upper1[i];
+    }
+    long[] resultStar = lower1;
+    isop(argument, common, variable - 1, cube, result, resultStar, scratch);
+
+    select(result0, result1, variable, out);
+    for (int i = 0; i < out.length; i++) {
+      out[i] |= resultStar[i];
+    }
+  }
+
+  //region Bitwise helpers
+  private boolean isOnes(long[] table) {
+    long valid = validMask();
+    for (long word : table) {
+      if (word != valid) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean isZero(long[] table) {
+    for (long word : table) {
+      if (word != 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Compares the two cofactors in place, nothing is allocated.
+   */
+  private static boolean depends(long[] table, int variable) {
+    if (variable < 6) {
+      long mask = VARIABLE_MASKS[variable];
+      int shift = 1 << variable;
+
+      for (long word : table) {
+        if (((word & ~mask) << shift) != (word & mask)) {
+          return true;
+        }
+      }
+    } else {
+      int bit = 1 << (variable - 6);
+
+      for (int i = 0; i < table.length; i++) {
+        if ((i & bit) == 0 && table[i] != table[i | bit]) {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Cofactor with respect to the variable. The result has the same size and
+   * doesn't depend on the variable.
+   */
+  private static long[] cofactor(long[] table, int variable, boolean positive) {
+    return cofactor(table, variable, positive, new long[table.length]);
+  }
+
+  private static long[] cofactor(long[] table, int variable, boolean positive, long[] retValue) {
+    if (variable < 6) {
+      long mask = VARIABLE_MASKS[variable];
+      int shift = 1 << variable;
+
+      for (int i = 0; i < table.length; i++) {
+        long kept = positive ? table[i] & mask : table[i] & ~mask;
+        retValue[i] = positive ? kept | kept >>> shift : kept | kept << shift;
+      }
+    } else {
+      int bit = 1 << (variable - 6);
+
+      for (int i = 0; i < table.length; i++) {
+        retValue[i] = table[positive ? i | bit : i & ~bit];
+      }
+    }
+
+    return retValue;
+  }
+
+  /**
+   * @return function that is the first table where the variable is false
+   * and the second table where it is true.
+   */
+  private static void select(long[] negative, long[] positive, int variable, long[] retValue) {
+    if (variable < 6) {
+      long mask = VARIABLE_MASKS[variable];
+      for (int i = 0; i < retValue.length; i++) {
+        retValue[i] = negative[i] & ~mask | positive[i] & mask;
+      }
+    } else {
+      int bit = 1 << (variable - 6);
+      for (int i = 0; i < retValue.length; i++) {
+        retValue[i] = (i & bit) == 0 ? negative[i] : positive[i];
+      }
+    }
+  }
+
+  private static long[] andNot(long[] table, long[] other, long[] retValue) {
+    for (int i = 0; i < table.length; i++) {
+      retValue[i] = table[i] & ~other[i];
+    }
+
+    return retValue;
+  }
+  //endregion
+}
@@ -0,0 +1,249 @@
+package espresso.boolFunction.cube;
+
+import static espresso.boolFunction.cube.CubeEncoding.*;
+
+/**
+ * Implementation of {@link CoverKernels} on the column bitmaps of {@link ColumnIndex}.
+ * Every literal of the given cube turns into one AND or AND-NOT over first column bitmap,
+ * so first long operation decides first literal for 64 cubes at once.<br/>
+ * The bitmaps only describe live rows (see {@link ColumnIndex#liveRows()}). The few
+ * remaining rows are checked one by one.
+ */
+final class BitSlicedCoverKernels extends CoverKernels {
+  private final CoverKernels fallback;
+
+  BitSlicedCoverKernels(CoverKernels fallback) {
+    this.fallback = fallback;
+  }
+
+  @Override
+  public long[] intersectingRows(CubeArray rows, long[] cube, int offset) {
+    if (!rows.prepareColumnIndex()) {
+      return fallback.intersectingRows(rows, cube, offset);
+    }
+
+    ColumnIndex index = rows.getColumnIndex();
+    int inputLength = rows.getInputLength();
+    int inputWords = inputWordCount(inputLength);
+    long[] retValue = index.liveRows().clone();
+
+    for (int w = 0; w < inputWords; w++) {
+      long word = cube[offset + w];
+      if (emptyFields(word, inputMask(inputLength, w)) != 0) {
+        return newRowSet(rows);
+      }
+
+      int base = w * INPUTS_PER_WORD;
+      for (long ones = oneFields(word); ones != 0; ones &= ones - 1) {
+        andNot(retValue, index.zeroRows(base + Long.numberOfTrailingZeros(ones) / 2));
+      }
+      for (long zeros = zeroFields(word); zeros != 0; zeros &= zeros - 1) {
+        andNot(retValue, index.oneRows(base + Long.numberOfTrailingZeros(zeros) / 2));
+      }
+    }
+
+    long[] anyOutput = newRowSet(rows);
+    for (int w = 0; w < outputWordCount(rows.getOutputLength()); w++) {
+      for (long outputs = cube[offset + inputWords + w]; outputs != 0; outputs &= outputs - 1) {
+        or(anyOutput, index.outputRows(w * OUTPUTS_PER_WORD + Long.numberOfTrailingZeros(outputs)));
+      }
+    }
+    and(retValue, anyOutput);
+
+    return retValue;
+  }
+
+  @Override
+  public long[] containedRows(CubeArray rows, long[] cube, int offset) {
+    if (!rows.prepareColumnIndex()) {
+      return fallback.containedRows(rows, cube, offset);
+    }
+
+    ColumnIndex index = rows.getColumnIndex();
+    int inputLength = rows.getInputLength();
+    int outputLength = rows.getOutputLength();
+    int inputWords = inputWordCount(inputLength);
+    long[] retValue = index.liveRows().clone();
+
+    for (int w = 0; w < inputWords && !isEmpty(retValue); w++) {
+      long word = cube[offset + w];
+      if (emptyFields(word, inputMask(inputLength, w)) != 0) {
+        retValue = newRowSet(rows);
+        break;
+      }
+
+      int base = w * INPUTS_PER_WORD;
+      for (long ones = oneFields(word); ones != 0; ones &= ones - 1) {
+        and(retValue, index.oneRows(base + Long.numberOfTrailingZeros(ones) / 2));
+      }
+      for (long zeros = zeroFields(word); zeros != 0; zeros &= zeros - 1) {
+        and(retValue, index.zeroRows(base + Long.numberOfTrailingZeros(zeros) / 2));
+      }
+    }
+
+    for (int w = 0; w < outputWordCount(outputLength); w++) {
+      long missing = ~cube[offset + inputWords + w] & outputMask(outputLength, w);
+      for (; missing != 0; missing &= missing - 1) {
+        andNot(retValue, index.outputRows(w * OUTPUTS_PER_WORD + Long.numberOfTrailingZeros(missing)));
+      }
+    }
+
+    long[] buffer = rows.buffer();
+    long[] live = index.liveRows();
+    for (int w = 0; w < live.length; w++) {
+      for (long bits = ~live[w] & validRows(rows, w); bits != 0; bits &= bits - 1) {
+        int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+        if (containsRow(cube, offset, buffer, rows.rowOffset(i), rows.stride())) {
+          retValue[w] |= 1L << i;
+        }
+      }
+    }
+
+    return retValue;
+  }
+
+  @Override
+  public long[] containingRows(CubeArray rows, long[] cube, int offset) {
+    if (!rows.prepareColumnIndex()) {
+      return fallback.containingRows(rows, cube, offset);
+    }
+
+    ColumnIndex index = rows.getColumnIndex();
+    int inputLength = rows.getInputLength();
+    int inputWords = inputWordCount(inputLength);
+    long[] retValue = index.liveRows().clone();
+
+    for (int w = 0; w < inputWords; w++) {
+      long word = cube[offset + w];
+      int base = w * INPUTS_PER_WORD;
+
+      for (long ones = oneFields(word); ones != 0; ones &= ones - 1) {
+        andNot(retValue, index.zeroRows(base + Long.numberOfTrailingZeros(ones) / 2));
+      }
+      for (long zeros = zeroFields(word); zeros != 0; zeros &= zeros - 1) {
+        andNot(retValue, index.oneRows(base + Long.numberOfTrailingZeros(zeros) / 2));
+      }
+      for (long dontcares = dontcareFields(word); dontcares != 0; dontcares &= dontcares - 1) {
+        int column = base + Long.numberOfTrailingZeros(dontcares) / 2;
+        andNot(retValue, index.oneRows(column));
+        andNot(retValue, index.zeroRows(column));
+      }
+    }
+
+    for (int w = 0; w < outputWordCount(rows.getOutputLength()); w++) {
+      for (long outputs = cube[offset + inputWords + w]; outputs != 0; outputs &= outputs - 1) {
+        and(retValue, index.outputRows(w * OUTPUTS_PER_WORD + Long.numberOfTrailingZeros(outputs)));
+      }
+    }
+
+    long[] buffer = rows.buffer();
+    long[] live = index.liveRows();
+    for (int w = 0; w < live.length; w++) {
+      for (long bits = ~live[w] & validRows(rows, w); bits != 0; bits &= bits - 1) {
+        int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+        if (containsRow(buffer, rows.rowOffset(i), cube, offset, rows.stride())) {
+          retValue[w] |= 1L << i;
+        }
+      }
+    }
+
+    return retValue;
+  }
+
+  /**
+   * Distances are summed with first bit-sliced counter. Plane p of the counter
+   * holds bit p of the distance for 64 cubes per word.
+   */
+  @Override
+  public int[] inputDistances(CubeArray rows, long[] cube, int offset) {
+    if (!rows.prepareColumnIndex()) {
+      return fallback.inputDistances(rows, cube, offset);
+    }
+
+    ColumnIndex index = rows.getColumnIndex();
+    int inputLength = rows.getInputLength();
+    long[][] planes = new long[32 - Integer.numberOfLeadingZeros(inputLength)][index.liveRows().length];
+    int emptyCount = 0;
+
+    for (int w = 0; w < inputWordCount(inputLength); w++) {
+      long word = cube[offset + w];
+      int base = w * INPUTS_PER_WORD;
+      emptyCount += Long.bitCount(emptyFields(word, inputMask(inputLength, w)));
+
+      for (long ones = oneFields(word); ones != 0; ones &= ones - 1) {
+        addToCounter(planes, index.zeroRows(base + Long.numberOfTrailingZeros(ones) / 2));
+      }
+      for (long zeros = zeroFields(word); zeros != 0; zeros &= zeros - 1) {
+        addToCounter(planes, index.oneRows(base + Long.numberOfTrailingZeros(zeros) / 2));
+      }
+    }
+
+    int[] retValue = new int[rows.size()];
+    long[] buffer = rows.buffer();
+    long[] live = index.liveRows();
+
+    for (int i = 0; i < retValue.length; i++) {
+      int w = i >>> 6;
+      long bit = 1L << i;
+
+      if ((live[w] & bit) == 0) {
+        retValue[i] = inputDistanceRow(buffer, rows.rowOffset(i), cube, offset, inputLength);
+        continue;
+      }
+
+      int distance = emptyCount;
+      for (int p = 0; p < planes.length; p++) {
+        if ((planes[p][w] & bit) != 0) {
+          distance += 1 << p;
+        }
+      }
+      retValue[i] = distance;
+    }
+
+    return retValue;
+  }
+
+  private static void addToCounter(long[][] planes, long[] rows) {
+    for (int w = 0; w < rows.length; w++) {
+      long carry = rows[w];
+      for (int p = 0; p < planes.length && carry != 0; p++) {
+        long next = planes[p][w] & carry;
+        planes[p][w] ^= carry;
+        carry = next;
+      }
+    }
+  }
+
+  private static long validRows(CubeArray rows, int word) {
+    int remaining = rows.size() - (word << 6);
+    return remaining >= 64 ? -1L : (1L << remaining) - 1;
+  }
+
+  private static void and(long[] target, long[] rows) {
+    for (int i = 0; i < target.length; i++) {
+      target[i] &= rows[i];
+    }
+  }
+
+  private static void andNot(long[] target, long[] rows) {
+    for (int i = 0; i < target.length; i++) {
+      target[i] &= ~rows[i];
+    }
+  }
+
+  private static void or(long[] target, long[] rows) {
+    for (int i = 0; i < target.length; i++) {
+      target[i] |= rows[i];
+    }
+  }
+
+  private static boolean isEmpty(long[] rows) {
+    for (long word : rows) {
+      if (word != 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
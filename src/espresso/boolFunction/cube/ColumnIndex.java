@@ -0,0 +1,275 @@
+package espresso.boolFunction.cube;
+
+import espresso.boolFunction.InputState;
+
+import static espresso.boolFunction.cube.CubeEncoding.*;
+
+/**
+ * Transposed view of a {@link CubeArray}. For every input variable and
+ * polarity the index keeps a bitset over cube indexes: bit r of
+ * {@link ColumnIndex#oneRows(int)} is set if the cube at index r has
+ * {@link InputState#ONE} in that column.<br/>
+ * <br/>
+ * Index is a snapshot. It's built by {@link CubeArray#getColumnIndex()} and it's
+ * valid until the array is changed.
+ */
+public final class ColumnIndex {
+  private final int rowCount;
+  private final int rowWords;
+
+  private final long[][] zeroRows;
+  private final long[][] oneRows;
+  private final long[][] outputRows;
+
+  /**
+   * Rows that have no {@link InputState#EMPTY} input and at least one output.
+   */
+  private final long[] liveRows;
+
+  ColumnIndex(int inputLength, int outputLength, int rowCount) {
+    this.rowCount = rowCount;
+    this.rowWords = (rowCount + 63) >>> 6;
+    this.zeroRows = new long[inputLength][rowWords];
+    this.oneRows = new long[inputLength][rowWords];
+    this.outputRows = new long[outputLength][rowWords];
+    this.liveRows = new long[rowWords];
+  }
+
+  /**
+   * Index with bitsets from the given arena, see {@link ColumnIndex#recycle(CoverArena)}.
+   * Bitsets can be longer than needed, the extra words stay zero.
+   */
+  ColumnIndex(int inputLength, int outputLength, int rowCount, CoverArena arena) {
+    this.rowCount = rowCount;
+    this.rowWords = (rowCount + 63) >>> 6;
+    this.zeroRows = new long[inputLength][];
+    this.oneRows = new long[inputLength][];
+    this.outputRows = new long[outputLength][];
+    this.liveRows = arena.zeroedLongs(rowWords);
+
+    for (int i = 0; i < inputLength; i++) {
+      zeroRows[i] = arena.zeroedLongs(rowWords);
+      oneRows[i] = arena.zeroedLongs(rowWords);
+    }
+    for (int i = 0; i < outputLength; i++) {
+      outputRows[i] = arena.zeroedLongs(rowWords);
+    }
+  }
+
+  /**
+   * Gives the bitsets back to the arena. The index can't be used afterwards.
+   */
+  void recycle(CoverArena arena) {
+    for (long[] rows : zeroRows) {
+      arena.recycle(rows);
+    }
+    for (long[] rows : oneRows) {
+      arena.recycle(rows);
+    }
+    for (long[] rows : outputRows) {
+      arena.recycle(rows);
+    }
+    arena.recycle(liveRows);
+  }
+
+  /**
+   * Adds the packed row to the index.
+   *
+   * @param row     index of the cube.
+   * @param words   buffer with the row.
+   * @param offset  first word of the row.
+   * @param inputLength  number of input variables.
+   * @param outputLength number of output variables.
+   */
+  void addRow(int row, long[] words, int offset, int inputLength, int outputLength) {
+    int inputWords = inputWordCount(inputLength);
+    long rowBit = 1L << row;
+    int rowWord = row >>> 6;
+    boolean live = false;
+
+    for (int i = 0; i < outputWordCount(outputLength); i++) {
+      long word = words[offset + inputWords + i];
+      live |= word != 0;
+
+      for (long outputs = word; outputs != 0; outputs &= outputs - 1) {
+        outputRows[i * OUTPUTS_PER_WORD + Long.numberOfTrailingZeros(outputs)][rowWord] |= rowBit;
+      }
+    }
+
+    for (int w = 0; w < inputWords; w++) {
+      long word = words[offset + w];
+      int base = w * INPUTS_PER_WORD;
+      live &= emptyFields(word, inputMask(inputLength, w)) == 0;
+
+      for (long ones = oneFields(word); ones != 0; ones &= ones - 1) {
+        oneRows[base + Long.numberOfTrailingZeros(ones) / 2][rowWord] |= rowBit;
+      }
+      for (long zeros = zeroFields(word); zeros != 0; zeros &= zeros - 1) {
+        zeroRows[base + Long.numberOfTrailingZeros(zeros) / 2][rowWord] |= rowBit;
+      }
+    }
+
+    if (live) {
+      liveRows[rowWord] |= rowBit;
+    }
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Warning: returned array is not a copy. Don't change it.
+   *
+   * @param column input variable.
+   * @return bitset of rows with {@link InputState#ONE} in the given column.
+   */
+  public long[] oneRows(int column) {
+    return oneRows[column];
+  }
+
+  /**
+   * Warning: returned array is not a copy. Don't change it.
+   *
+   * @param column input variable.
+   * @return bitset of rows with {@link InputState#ZERO} in the given column.
+   */
+  public long[] zeroRows(int column) {
+    return zeroRows[column];
+  }
+
+  /**
+   * Warning: returned array is not a copy. Don't change it.
+   *
+   * @param output output variable.
+   * @return bitset of rows with {@link espresso.boolFunction.OutputState#OUTPUT} in the given output.
+   */
+  public long[] outputRows(int output) {
+    return outputRows[output];
+  }
+
+  /**
+   * Warning: returned array is not a copy. Don't change it.
+   *
+   * @return bitset of rows that aren't empty cubes.
+   */
+  public long[] liveRows() {
+    return liveRows;
+  }
+
+  public boolean hasOne(int row, int column) {
+    return (oneRows[column][row >>> 6] & (1L << row)) != 0;
+  }
+
+  public boolean hasZero(int row, int column) {
+    return (zeroRows[column][row >>> 6] & (1L << row)) != 0;
+  }
+
+  public int oneCount(int column) {
+    return popCount(oneRows[column]);
+  }
+
+  public int zeroCount(int column) {
+    return popCount(zeroRows[column]);
+  }
+
+  /**
+   * Number of rows with {@link InputState#ONE} in the given column
+   * among the given rows.
+   *
+   * @param column input variable.
+   * @param rows   bitset of rows.
+   * @return primitive int.
+   */
+  public int oneCount(int column, long[] rows) {
+    return popCount(oneRows[column], rows);
+  }
+
+  /**
+   * Number of rows with {@link InputState#ZERO} in the given column
+   * among the given rows.
+   *
+   * @param column input variable.
+   * @param rows   bitset of rows.
+   * @return primitive int.
+   */
+  public int zeroCount(int column, long[] rows) {
+    return popCount(zeroRows[column], rows);
+  }
+
+  /**
+   * A column is unate if it doesn't have {@link InputState#ONE}
+   * and {@link InputState#ZERO} at the same time.
+   *
+   * @param column input variable.
+   * @return true if the column is unate.
+   */
+  public boolean isUnate(int column) {
+    return isZero(zeroRows[column]) || isZero(oneRows[column]);
+  }
+
+  public boolean isUnate() {
+    for (int i = 0; i < oneRows.length; i++) {
+      if (!isUnate(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Rows that survive the cofactor with respect to a single literal.
+   * For the positive literal these are live rows without {@link InputState#ZERO}
+   * in the column, for the negative literal live rows without {@link InputState#ONE}.
+   *
+   * @param column   input variable of the literal.
+   * @param positive true for the positive literal.
+   * @return new bitset of rows.
+   */
+  public long[] cofactorRows(int column, boolean positive) {
+    return cofactorRows(column, positive, new long[rowWords]);
+  }
+
+  /**
+   * Same as {@link ColumnIndex#cofactorRows(int, boolean)}, the bitset is written
+   * to the given array.
+   */
+  long[] cofactorRows(int column, boolean positive, long[] retValue) {
+    long[] blocked = positive ? zeroRows[column] : oneRows[column];
+
+    for (int i = 0; i < rowWords; i++) {
+      retValue[i] = liveRows[i] & ~blocked[i];
+    }
+
+    return retValue;
+  }
+
+  private static int popCount(long[] rows) {
+    int retValue = 0;
+    for (long word : rows) {
+      retValue += Long.bitCount(word);
+    }
+
+    return retValue;
+  }
+
+  private static int popCount(long[] rows, long[] mask) {
+    int retValue = 0;
+    for (int i = 0; i < rows.length; i++) {
+      retValue += Long.bitCount(rows[i] & mask[i]);
+    }
+
+    return retValue;
+  }
+
+  private static boolean isZero(long[] rows) {
+    for (long word : rows) {
+      if (word != 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
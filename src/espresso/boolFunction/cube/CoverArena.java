@@ -0,0 +1,266 @@
+package espresso.boolFunction.cube;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Per thread scratch storage for the covers of first recursion.<br/>
+ * <br/>
+ * Cofactors of first recursive algorithm mostly live only until their subtree is
+ * solved. A {@link CubeArray} made with an arena takes its buffer, order, free slots,
+ * views, column counters, {@link ColumnIndex} and cofactor masks from the arena and is
+ * registered at the current level.
+ * {@link CoverArena#release(int)} gives the storage of all arrays registered at first
+ * level or deeper back to the arena, so the next cofactors at that depth reuse it
+ * instead of allocating. The {@link espresso.urpAlgorithms.ShannonEngine} sets the
+ * level to the depth of the node it expands and releases the children of first node
+ * once they are merged.<br/>
+ * <br/>
+ * Released arrays can't be used any more. Storage that may still be reachable is
+ * left to the garbage collector instead of being reused: buffers of arrays that were
+ * copied, buffers that first cofactor outside of the arena still reads and buffers
+ * with views handed out. Outside of all levels (see {@link CoverArena#setLevel(int)})
+ * arrays are allocated normally. An arena belongs to one thread, see {@link CoverArena#current()}.
+ */
+public final class CoverArena {
+  /**
+   * Larger arrays aren't kept for reuse.
+   */
+  static final int MAX_POOLED_LENGTH = 1 << 20;
+
+  /**
+   * Free arrays kept per size class.
+   */
+  static final int MAX_POOLED_ARRAYS = 64;
+
+  /**
+   * Free arrays kept per length of short arrays. Every live {@link ColumnIndex}
+   * has two of them for each input.
+   */
+  static final int MAX_POOLED_SHORT_ARRAYS = 4096;
+
+  /**
+   * Shorter arrays, for example row bitsets of first {@link ColumnIndex}, are pooled
+   * by their exact length.
+   */
+  static final int MAX_EXACT_LENGTH = 64;
+
+  private static final int SIZE_CLASSES = Integer.numberOfTrailingZeros(MAX_POOLED_LENGTH) + 1;
+  private static final ThreadLocal<CoverArena> arenas = ThreadLocal.withInitial(CoverArena::new);
+
+  private final Pool<long[]> longs = new Pool<>();
+  private final Pool<int[]> ints = new Pool<>();
+  private final Pool<Cube[]> cubes = new Pool<>();
+
+  /**
+   * Arrays registered at every level.
+   */
+  private final List<List<CubeArray>> levels = new ArrayList<>();
+  private int level = -1;
+
+  private long allocationCount;
+  private long reuseCount;
+
+  /**
+   * @return arena of the current thread.
+   */
+  public static CoverArena current() {
+    return arenas.get();
+  }
+
+  /**
+   * @return current level or -1 outside of all levels.
+   */
+  public int level() {
+    return level;
+  }
+
+  /**
+   * Arrays made with the arena from now on are registered at the given level.
+   *
+   * @param level level, -1 to allocate normally.
+   */
+  public void setLevel(int level) {
+    if (level < -1) {
+      throw new IllegalArgumentException("Level can't be less than -1.");
+    }
+
+    this.level = level;
+    while (levels.size() <= level) {
+      levels.add(new ArrayList<>());
+    }
+  }
+
+  /**
+   * Recycles the storage of all arrays registered at the given level or deeper.
+   *
+   * @param level first released level.
+   */
+  public void release(int level) {
+    for (int l = levels.size() - 1; l >= Math.max(level, 0); l--) {
+      List<CubeArray> arrays = levels.get(l);
+      for (int i = arrays.size() - 1; i >= 0; i--) {
+        arrays.get(i).recycle();
+      }
+      arrays.clear();
+    }
+  }
+
+  /**
+   * @return true if arrays made now are registered.
+   */
+  boolean isActive() {
+    return level >= 0;
+  }
+
+  void register(CubeArray cubeArray) {
+    levels.get(level).add(cubeArray);
+  }
+
+  //region Storage
+  /**
+   * @return array with at least the given length, contents are undefined.
+   */
+  long[] longs(int length) {
+    length = sizeClassLength(length);
+    long[] retValue = longs.take(length);
+    return retValue != null ? hit(retValue) : miss(new long[length]);
+  }
+
+  /**
+   * @return array of zeros with exactly the given length.
+   */
+  long[] zeroedLongs(int length) {
+    long[] retValue = length <= MAX_EXACT_LENGTH ? longs.take(length) : null;
+    if (retValue == null) {
+      return miss(new long[length]);
+    }
+
+    Arrays.fill(retValue, 0L);
+    return hit(retValue);
+  }
+
+  /**
+   * @return array with at least the given length, contents are undefined.
+   */
+  int[] ints(int length) {
+    length = sizeClassLength(length);
+    int[] retValue = ints.take(length);
+    return retValue != null ? hit(retValue) : miss(new int[length]);
+  }
+
+  /**
+   * @return array of zeros with at least the given length.
+   */
+  int[] zeroedInts(int length) {
+    int[] retValue = ints(length);
+    Arrays.fill(retValue, 0, length, 0);
+    return retValue;
+  }
+
+  /**
+   * @return array of nulls with at least the given length.
+   */
+  Cube[] cubes(int length) {
+    length = sizeClassLength(length);
+    Cube[] retValue = cubes.take(length);
+    return retValue != null ? hit(retValue) : miss(new Cube[length]);
+  }
+
+  void recycle(long[] array) {
+    longs.put(array, array.length);
+  }
+
+  void recycle(int[] array) {
+    ints.put(array, array.length);
+  }
+
+  /**
+   * @param used views before this length are cleared.
+   */
+  void recycle(Cube[] array, int used) {
+    Arrays.fill(array, 0, Math.min(used, array.length), null);
+    cubes.put(array, array.length);
+  }
+
+  private <T> T hit(T array) {
+    reuseCount++;
+    return array;
+  }
+
+  private <T> T miss(T array) {
+    allocationCount++;
+    return array;
+  }
+
+  private static int sizeClassLength(int length) {
+    if (length > MAX_POOLED_LENGTH) {
+      return length;
+    }
+
+    return length <= 1 ? 1 : Integer.highestOneBit(length - 1) << 1;
+  }
+
+  /**
+   * Free arrays. Short arrays are kept by their length, longer ones by size class:
+   * class k keeps arrays with at least 2^k elements.
+   */
+  private static final class Pool<T> {
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ArrayDeque<T>[] lengths = new ArrayDeque[MAX_EXACT_LENGTH + 1];
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ArrayDeque<T>[] classes = new ArrayDeque[SIZE_CLASSES];
+
+    /**
+     * @param length exact length of short arrays or power of two.
+     * @return free array or null.
+     */
+    T take(int length) {
+      if (length > MAX_POOLED_LENGTH) {
+        return null;
+      }
+
+      ArrayDeque<T> free = length <= MAX_EXACT_LENGTH ?
+          lengths[length] :
+          classes[31 - Integer.numberOfLeadingZeros(length)];
+      return free == null ? null : free.pollLast();
+    }
+
+    void put(T array, int length) {
+      if (length == 0 || length > MAX_POOLED_LENGTH) {
+        return;
+      }
+
+      ArrayDeque<T>[] pools = length <= MAX_EXACT_LENGTH ? lengths : classes;
+      int index = length <= MAX_EXACT_LENGTH ? length : 31 - Integer.numberOfLeadingZeros(length);
+      if (pools[index] == null) {
+        pools[index] = new ArrayDeque<>();
+      }
+      if (pools[index].size() < (pools == lengths ? MAX_POOLED_SHORT_ARRAYS : MAX_POOLED_ARRAYS)) {
+        pools[index].addLast(array);
+      }
+    }
+  }
+  //endregion
+
+  /**
+   * @return number of arrays that had to be allocated.
+   */
+  public long getAllocationCount() {
+    return allocationCount;
+  }
+
+  /**
+   * @return number of arrays served from released storage.
+   */
+  public long getReuseCount() {
+    return reuseCount;
+  }
+
+  public void resetCounters() {
+    allocationCount = 0;
+    reuseCount = 0;
+  }
+}
@@ -0,0 +1,74 @@
+package espresso.boolFunction.cube;
+
+/**
+ * Primitives that compare one packed cube against every cube of first {@link CubeArray}.
+ * Results are bitsets over cube indexes, bit i of the result belongs to the cube at index i.<br/>
+ * <br/>
+ * There are two implementations. The scalar one sweeps the rows one by one.
+ * The bit-sliced one works on the {@link ColumnIndex} of the array and processes
+ * 64 cubes with every long operation, it falls back to the scalar sweep while the array
+ * has no index. The implementation is selected once with the <code>espresso.kernels</code>
+ * system property, <code>scalar</code> or <code>sliced</code>. Bit-sliced kernels are the default.
+ */
+public abstract class CoverKernels {
+  public static final String PROPERTY = "espresso.kernels";
+
+  /**
+   * An array builds its index for the kernels only if it has at least this many cubes...
+   */
+  static final int INDEX_MIN_ROWS = 64;
+
+  /**
+   * ...and if it was queried this many times without changes.
+   */
+  static final int INDEX_MIN_QUERIES = 2;
+
+  private static final CoverKernels scalar = new ScalarCoverKernels();
+  private static final CoverKernels bitSliced = new BitSlicedCoverKernels(scalar);
+  private static final CoverKernels instance =
+      "scalar".equals(System.getProperty(PROPERTY)) ? scalar : bitSliced;
+
+  public static CoverKernels getInstance() {
+    return instance;
+  }
+
+  public static CoverKernels scalar() {
+    return scalar;
+  }
+
+  public static CoverKernels bitSliced() {
+    return bitSliced;
+  }
+
+  /**
+   * Cubes that intersect the given cube.
+   *
+   * @see CubeEncoding#intersectsRow(long[], int, long[], int, int, int)
+   */
+  public abstract long[] intersectingRows(CubeArray rows, long[] cube, int offset);
+
+  /**
+   * Cubes that are contained by the given cube.
+   *
+   * @see CubeEncoding#containsRow(long[], int, long[], int, int)
+   */
+  public abstract long[] containedRows(CubeArray rows, long[] cube, int offset);
+
+  /**
+   * Cubes that contain the given cube.
+   *
+   * @see CubeEncoding#containsRow(long[], int, long[], int, int)
+   */
+  public abstract long[] containingRows(CubeArray rows, long[] cube, int offset);
+
+  /**
+   * Input distance between the given cube and every cube.
+   *
+   * @see CubeEncoding#inputDistanceRow(long[], int, long[], int, int)
+   */
+  public abstract int[] inputDistances(CubeArray rows, long[] cube, int offset);
+
+  static long[] newRowSet(CubeArray rows) {
+    return new long[(rows.size() + 63) >>> 6];
+  }
+}
@@ -11,24 +11,43 @@ import java.util.List;
 
 import static espresso.boolFunction.InputState.*;
 import static espresso.boolFunction.OutputState.*;
+import static espresso.boolFunction.cube.CubeEncoding.*;
 
 /**
  * By definition cube consists of its input part and output part.<br/>
  * <br/>
- * Both parts are simple arrays. Input part consists of {@link InputState}s and
- * the output part consists of {@link OutputState}s. Nulls represent empty cubes.
- * Nulls can happen in this class only to make sure the {@link Cover} class doesn't
- * contain empty ({@link Cube#isEmpty(Cube)}) cubes.
+ * Both parts are packed into long words using the positional cube
+ * notation, see {@link CubeEncoding}. Input part consists of {@link InputState}s
+ * (two bits each) and the output part consists of {@link OutputState}s (one bit each).
+ * Intersection, containment and distance are therefore computed a word at a time.
+ * Nulls given to the constructors represent {@link InputState#EMPTY} states.
+ * Empty states can happen in this class only to make sure the {@link Cover} class
+ * doesn't contain empty ({@link Cube#isEmpty(Cube)}) cubes.<br/>
+ * <br/>
+ * A cube that belongs to a {@link CubeArray} is a view of one row in the buffer
+ * of the array. Input words are followed by output words starting at {@link Cube#offset}.
  */
 public class Cube {
-  private InputState[] input;
-  private OutputState[] output;
+  private long[] words;
+  private int offset;
+
+  private int inputLength;
+  private int outputLength;
+  private int inputWords;
+  private int outputWords;
+
+  /**
+   * This field is is null if the {@link Cube} doesn't belong to a {@link Cover} or {@link CubeArray}.
+   * Otherwise the cube is a view of a row in the owner and changes to the cube are reported
+   * to the owner.
+   */
+  private CubeArray owner = null;
 
   /**
-   * This field is is null if the {@link Cube} doesn't belong to first {@link Cover} or {@link CubeArray}.
-   * Otherwise this field is not null and shares this field with first {@link CubeArray}.
+   * True if the cube belongs to first {@link CubePool}. Interned cubes are shared
+   * and can't be changed.
    */
-  private int[][] bitCount = null;
+  private boolean interned = false;
 
   /**
    * Creates first cube with the given number of input variables
@@ -44,11 +63,10 @@ public class Cube {
       throw new IllegalArgumentException("Input or output count can't be zero or negative.");
     }
 
-    input = new InputState[inputCount];
-    output = new OutputState[outputCount];
+    allocate(inputCount, outputCount);
 
-    for (int i = 0; i < inputCount; i++) setInput(DONTCARE, i);
-    for (int i = 0; i < outputCount; i++) output[i] = OUTPUT;
+    for (int i = 0; i < inputWords; i++) words[i] = inputMask(inputCount, i);
+    for (int i = 0; i < outputWords; i++) words[inputWords + i] = outputMask(outputCount, i);
   }
 
   /**
@@ -64,13 +82,10 @@ public class Cube {
       throw new IllegalArgumentException("Given output index is out of range.");
     }
 
-    input = new InputState[inputCount];
-    output = new OutputState[outputCount];
+    allocate(inputCount, outputCount);
 
-    for (int i = 0; i < inputCount; i++) setInput(DONTCARE, i);
-    for (int i = 0; i < outputCount; i++) {
-      output[i] = (i == outputIndex) ? OUTPUT : NOT_OUTPUT;
-    }
+    for (int i = 0; i < inputWords; i++) words[i] = inputMask(inputCount, i);
+    words[inputWords + outputIndex / OUTPUTS_PER_WORD] = 1L << (outputIndex % OUTPUTS_PER_WORD);
   }
 
   /**
@@ -83,11 +98,16 @@ public class Cube {
    * @param output array of {@link OutputState}s.
    */
   public Cube(InputState[] input, OutputState[] output) {
-    this.input = new InputState[input.length];
-    this.output = new OutputState[output.length];
+    allocate(input.length, output.length);
 
-    System.arraycopy(input, 0, this.input, 0, input.length);
-    System.arraycopy(output, 0, this.output, 0, output.length);
+    for (int i = 0; i < input.length; i++) {
+      words[inputWordIndex(i)] |= encode(input[i]) << inputShift(i);
+    }
+    for (int i = 0; i < output.length; i++) {
+      if (output[i] == OUTPUT) {
+        words[inputWords + i / OUTPUTS_PER_WORD] |= 1L << (i % OUTPUTS_PER_WORD);
+      }
+    }
   }
 
   /**
@@ -96,82 +116,46 @@ public class Cube {
    * @param cube {@link Cube}.
    */
   public Cube(Cube cube) {
-    input = new InputState[cube.input.length];
-    output = new OutputState[cube.output.length];
-    System.arraycopy(cube.input, 0, input, 0, cube.input.length);
-    System.arraycopy(cube.output, 0, output, 0, cube.output.length);
+    this(Arrays.copyOfRange(cube.words, cube.offset, cube.offset + cube.stride()),
+        cube.inputLength, cube.outputLength);
   }
 
   /**
-   * Convenience copy method.
+   * Creates a cube directly from packed words (input words followed by
+   * output words). The array is not copied.
    *
-   * @return copy of this object.
+   * @param words        packed words, see {@link CubeEncoding}.
+   * @param inputLength  number of input variables.
+   * @param outputLength number of output variables.
    */
-  public Cube copy() {
-    return new Cube(this);
+  Cube(long[] words, int inputLength, int outputLength) {
+    this.words = words;
+    this.inputLength = inputLength;
+    this.outputLength = outputLength;
+    this.inputWords = inputWordCount(inputLength);
+    this.outputWords = outputWordCount(outputLength);
   }
 
-  @Override
-  public String toString() {
-    return Arrays.toString(input) + " " + Arrays.toString(output);
+  private void allocate(int inputCount, int outputCount) {
+    inputLength = inputCount;
+    outputLength = outputCount;
+    inputWords = inputWordCount(inputCount);
+    outputWords = outputWordCount(outputCount);
+    words = new long[inputWords + outputWords];
   }
 
   /**
-   * {@link Arrays#equals(Object)} doesn't work properly so this is first reimplementation
-   * of the method.
+   * Convenience copy method.
    *
-   * @param o1 array of {@link InputState}s.
-   * @param o2 array of {@link InputState}s.
-   * @return true if arrays are equal.
-   * @see Arrays#equals(Object)
-   */
-  private boolean inputStateArrayEquals(InputState[] o1, InputState[] o2) {
-    if (o1 == o2)
-      return true;
-    if (o1 == null || o2 == null)
-      return false;
-
-    int length = o1.length;
-    if (o2.length != length)
-      return false;
-
-    for (int i = 0; i < length; i++) {
-      InputState state1 = o1[i];
-      InputState state2 = o2[i];
-      if (!(state1 == null ? state2 == null : state1 == state2))
-        return false;
-    }
-
-    return true;
+   * @return copy of this object.
+   */
+  public Cube copy() {
+    return new Cube(this);
   }
 
-  /**
-   * {@link Arrays#equals(Object)} doesn't work properly so this is first reimplementation
-   * of the method.
-   *
-   * @param o1 array of {@link OutputState}s.
-   * @param o2 array of {@link OutputState}s.
-   * @return true if arrays are equal.
-   * @see Arrays#equals(Object)
-   */
-  private boolean outputStateArrayEquals(OutputState[] o1, OutputState[] o2) {
-    if (o1 == o2)
-      return true;
-    if (o1 == null || o2 == null)
-      return false;
-
-    int length = o1.length;
-    if (o2.length != length)
-      return false;
-
-    for (int i = 0; i < length; i++) {
-      OutputState state1 = o1[i];
-      OutputState state2 = o2[i];
-      if (!(state1 == null ? state2 == null : state1 == state2))
-        return false;
-    }
-
-    return true;
+  @Override
+  public String toString() {
+    return getInputState().toString() + " " + getOutputState().toString();
   }
 
   @Override
@@ -181,144 +165,281 @@ public class Cube {
 
     Cube cube = (Cube) o;
 
-    return inputStateArrayEquals(input, cube.input) && outputStateArrayEquals(output, cube.output);
+    if (inputLength != cube.inputLength || outputLength != cube.outputLength) return false;
+
+    for (int i = 0; i < inputWords + outputWords; i++)
+      if (words[offset + i] != cube.words[cube.offset + i])
+        return false;
+
+    return true;
   }
 
   @Override
   public int hashCode() {
-    int result = Arrays.hashCode(input);
-    result = 31 * result + Arrays.hashCode(output);
-    return result;
+    return hashRow(words, offset, inputWords + outputWords);
   }
 
   public InputState input(int i) {
-    return input[i];
+    return getInputState(i);
   }
 
   public OutputState output(int i) {
-    return output[i];
+    return getOutputState(i);
   }
 
   public InputState getInputState(int index) {
-    return input[index];
+    if (index < 0 || index >= inputLength) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+
+    return decode(words[offset + inputWordIndex(index)] >>> inputShift(index));
   }
 
   public List<InputState> getInputState() {
-    return Collections.unmodifiableList(Arrays.asList(input));
+    InputState[] states = new InputState[inputLength];
+    for (int i = 0; i < inputLength; i++) {
+      states[i] = getInputState(i);
+    }
+
+    return Collections.unmodifiableList(Arrays.asList(states));
   }
 
   public OutputState getOutputState(int index) {
-    return output[index];
+    if (index < 0 || index >= outputLength) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+
+    long word = words[offset + inputWords + index / OUTPUTS_PER_WORD];
+    return (word >>> (index % OUTPUTS_PER_WORD) & 1L) != 0 ? OUTPUT : NOT_OUTPUT;
   }
 
   public List<OutputState> getOutputState() {
-    return Collections.unmodifiableList(Arrays.asList(output));
+    OutputState[] states = new OutputState[outputLength];
+    for (int i = 0; i < outputLength; i++) {
+      states[i] = getOutputState(i);
+    }
+
+    return Collections.unmodifiableList(Arrays.asList(states));
   }
 
   public void setInput(InputState inputState, int i) {
-    if (bitCount != null) {
-      int newState = inputState.valueOf();
+    checkMutable();
+    InputState oldState = getInputState(i);
 
-      if (input[i] != null && input[i].valueOf() < 2)
-        bitCount[input[i].valueOf()][i]--;
-      if (newState < 2)
-        bitCount[newState][i]++;
+    if (owner != null) {
+      owner.inputChanged(i, oldState, inputState);
     }
 
-    input[i] = inputState; // okay
+    int word = offset + inputWordIndex(i);
+    int shift = inputShift(i);
+    words[word] = (words[word] & ~(DONTCARE_BITS << shift)) | (encode(inputState) << shift);
   }
 
   public void setInput(InputState[] inputStates) {
-    if (inputStates.length != input.length) {
+    if (inputStates.length != inputLength) {
       throw new IllegalArgumentException("Incompatible length of input argument.");
     }
 
-    for (int i = 0; i < input.length; ++i) {
+    for (int i = 0; i < inputLength; ++i) {
       setInput(inputStates[i], i);
     }
   }
 
   public void setInput(Cube cube) {
-    if (cube.inputLength() != input.length) {
+    if (cube.inputLength() != inputLength) {
       throw new IllegalArgumentException("Incompatible length of input argument.");
     }
 
-    for (int i = 0; i < input.length; ++i) {
+    for (int i = 0; i < inputLength; ++i) {
       setInput(cube.getInputState(i), i);
     }
   }
 
   public void setOutput(OutputState outputState, int i) {
-    output[i] = outputState;
+    if (i < 0 || i >= outputLength) {
+      throw new ArrayIndexOutOfBoundsException(i);
+    }
+    checkMutable();
+
+    if (owner != null) {
+      owner.outputChanged();
+    }
+
+    int word = offset + inputWords + i / OUTPUTS_PER_WORD;
+    long bit = 1L << (i % OUTPUTS_PER_WORD);
+    if (outputState == OUTPUT) {
+      words[word] |= bit;
+    } else {
+      words[word] &= ~bit;
+    }
   }
 
   public void setOutput(OutputState[] outputStates) {
-    if (outputStates.length != output.length) {
+    if (outputStates.length != outputLength) {
       throw new IllegalArgumentException("Incompatible length of output argument.");
     }
 
-    for (int i = 0; i < output.length; ++i) {
+    for (int i = 0; i < outputLength; ++i) {
       setOutput(outputStates[i], i);
     }
   }
 
   public void setOutput(Cube cube) {
-    if (cube.outputLength() != output.length) {
+    if (cube.outputLength() != outputLength) {
       throw new IllegalArgumentException("Incompatible length of output argument.");
     }
+    checkMutable();
 
-    for (int i = 0; i < output.length; ++i) {
-      setOutput(cube.getOutputState(i), i);
+    if (owner != null) {
+      owner.outputChanged();
     }
+
+    System.arraycopy(cube.words, cube.offset + cube.inputWords, words, offset + inputWords, outputWords);
   }
 
   public int inputLength() {
-    return input.length;
+    return inputLength;
   }
 
   public int outputLength() {
-    return output.length;
+    return outputLength;
+  }
+
+  /**
+   * Packed word of the input part.
+   *
+   * @param word index of the word.
+   * @return primitive long.
+   * @see CubeEncoding
+   */
+  public long getInputWord(int word) {
+    return words[offset + word];
+  }
+
+  /**
+   * Packed word of the output part.
+   *
+   * @param word index of the word.
+   * @return primitive long.
+   * @see CubeEncoding
+   */
+  public long getOutputWord(int word) {
+    return words[offset + inputWords + word];
+  }
+
+  /**
+   * Number of long words this cube occupies in a {@link CubeArray} buffer.
+   *
+   * @return primitive int.
+   */
+  int stride() {
+    return inputWords + outputWords;
+  }
+
+  long[] words() {
+    return words;
+  }
+
+  int offset() {
+    return offset;
   }
 
   /**
-   * This is first method and first field with close correlation to {@link Cover}.
+   * Turns this cube into a view of a row in the buffer of the given {@link CubeArray}.
+   * This is a method with close correlation to {@link Cover}.
    *
-   * @param bitCount primitive int[][]
-   * @see Cube#bitCount
+   * @param owner  {@link CubeArray} that owns the buffer.
+   * @param words  buffer of the owner.
+   * @param offset first word of the row.
+   * @see Cube#owner
+   */
+  void attach(CubeArray owner, long[] words, int offset) {
+    this.owner = owner;
+    this.words = words;
+    this.offset = offset;
+  }
+
+  /**
+   * Called by the owner when its buffer is reallocated.
+   *
+   * @param words new buffer of the owner.
+   */
+  void rebase(long[] words) {
+    this.words = words;
+  }
+
+  /**
+   * Copies the row out of the owner buffer and makes this cube
+   * free to be added to another {@link CubeArray} or {@link Cover}.
+   */
+  void detach() {
+    words = Arrays.copyOfRange(words, offset, offset + stride());
+    offset = 0;
+    owner = null;
+  }
+
+  /**
+   * Called by an owner that is recycled by first {@link CoverArena}. The cube keeps
+   * its row in the old buffer, which isn't reused, and is free like first copy.
    */
-  void setBitCount(int[][] bitCount) {
-    this.bitCount = bitCount;
+  void disown() {
+    owner = null;
   }
 
   /**
    * This method is closely related to {@link Cover}.
    *
    * @return true this {@link Cube} belongs to first {@link CubeArray} or {@link Cover}.
-   * @see Cube#bitCount
+   * @see Cube#owner
    */
-  boolean isBitCountTaken() {
-    return bitCount != null;
+  boolean isOwned() {
+    return owner != null;
   }
 
-  public int oneCount() {
-    return count(ONE);
+  /**
+   * @return true if this cube was returned by first {@link CubePool}.
+   * Interned cubes can't be changed, copy them first.
+   */
+  public boolean isInterned() {
+    return interned;
   }
 
-  public int zeroCount() {
-    return count(ZERO);
+  void intern() {
+    interned = true;
   }
 
-  public int dontcareCount() {
-    return count(DONTCARE);
+  private void checkMutable() {
+    if (interned) {
+      throw new UnsupportedOperationException("Interned cubes can't be changed. Copy it.");
+    }
   }
 
-  private int count(InputState inputState) {
+  boolean isOwnedBy(CubeArray cubeArray) {
+    return owner == cubeArray;
+  }
+
+  public int oneCount() {
     int retValue = 0;
+    for (int i = 0; i < inputWords; i++) {
+      retValue += Long.bitCount(oneFields(words[offset + i]));
+    }
 
-    for (int i = 0; i < inputLength(); i++) {
-      if (input[i] == inputState) {
-        retValue++;
-      }
+    return retValue;
+  }
+
+  public int zeroCount() {
+    int retValue = 0;
+    for (int i = 0; i < inputWords; i++) {
+      retValue += Long.bitCount(zeroFields(words[offset + i]));
+    }
+
+    return retValue;
+  }
+
+  public int dontcareCount() {
+    int retValue = 0;
+    for (int i = 0; i < inputWords; i++) {
+      retValue += Long.bitCount(dontcareFields(words[offset + i]));
     }
 
     return retValue;
@@ -335,12 +456,12 @@ public class Cube {
    * @return {@link Cover}
    */
   public Cover unwrap() {
-    Cover retValue = new Cover(input.length, output.length);
+    Cover retValue = new Cover(inputLength, outputLength);
 
-    for (int i = 0; i < output.length; i++) {
-      if (output[i] == OUTPUT) {
-        Cube cube = new Cube(input.length, output.length, i);
-        cube.setInput(input);
+    for (int i = 0; i < outputLength; i++) {
+      if (getOutputState(i) == OUTPUT) {
+        Cube cube = new Cube(inputLength, outputLength, i);
+        System.arraycopy(words, offset, cube.words, 0, inputWords);
         retValue.add(cube);
       }
     }
@@ -348,6 +469,30 @@ public class Cube {
     return retValue;
   }
 
+  private boolean isCompatible(Cube other) {
+    return inputLength == other.inputLength && outputLength == other.outputLength;
+  }
+
+  private boolean hasEmptyInput() {
+    for (int i = 0; i < inputWords; i++) {
+      if (emptyFields(words[offset + i], inputMask(inputLength, i)) != 0) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private boolean hasEmptyOutput() {
+    for (int i = 0; i < outputWords; i++) {
+      if (words[offset + inputWords + i] != 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
   /**
    * Method returns first new cube that represents an intersection
    * between this cube and another cube (given parameter).<br/>
@@ -360,25 +505,17 @@ public class Cube {
    * @return {@link Cube}.
    */
   public Cube and(Cube other, boolean returnEmpty) {
-    if (input.length != other.input.length || output.length != other.output.length)
+    if (!isCompatible(other))
       throw new UnsupportedOperationException("Cube lengths are not compatible.");
 
-    InputState[] inputStates = new InputState[input.length];
-    OutputState[] outputStates = new OutputState[output.length];
-
-    for (int i = 0; i < inputStates.length; i++) {
-      inputStates[i] = InputState.and(input[i], other.input[i]);
-      if (inputStates[i] == EMPTY && !returnEmpty) return null;
-    }
+    if (!returnEmpty && !intersects(other)) return null;
 
-    boolean isEmpty = true;
-    for (int i = 0; i < outputStates.length; i++) {
-      outputStates[i] = OutputState.and(output[i], other.output[i]);
-      if (outputStates[i] != NOT_OUTPUT && isEmpty) isEmpty = false;
+    long[] retValue = new long[stride()];
+    for (int i = 0; i < retValue.length; i++) {
+      retValue[i] = words[offset + i] & other.words[other.offset + i];
     }
 
-    if (isEmpty && !returnEmpty) return null;
-    else return new Cube(inputStates, outputStates);
+    return new Cube(retValue, inputLength, outputLength);
   }
 
   /**
@@ -401,22 +538,19 @@ public class Cube {
    * @return {@link Cube}
    */
   public Cube smallestCubeContainingBoth(Cube other) {
-    if (input.length != other.input.length || output.length != other.output.length) {
+    if (!isCompatible(other)) {
       throw new UnsupportedOperationException("Cube lengths are not compatible.");
     }
-
-    InputState[] inputStates = new InputState[input.length];
-    OutputState[] outputStates = new OutputState[output.length];
-
-    for (int i = 0; i < inputStates.length; i++) {
-      inputStates[i] = InputState.union(input[i], other.input[i]);
+    if (hasEmptyInput() || other.hasEmptyInput()) {
+      throw new IllegalArgumentException("One of the input states are empty.");
     }
 
-    for (int i = 0; i < outputStates.length; i++) {
-      outputStates[i] = OutputState.union(output[i], other.output[i]);
+    long[] retValue = new long[stride()];
+    for (int i = 0; i < retValue.length; i++) {
+      retValue[i] = words[offset + i] | other.words[other.offset + i];
     }
 
-    return new Cube(inputStates, outputStates);
+    return new Cube(retValue, inputLength, outputLength);
   }
 
   /**
@@ -430,21 +564,30 @@ public class Cube {
    * @return {@link Cube}.
    */
   public Cube cofactor(Cube other) {
-    if (input.length != other.input.length || output.length != other.output.length)
+    if (!isCompatible(other))
       throw new IllegalArgumentException("Cube lengths are not compatible.");
 
-    if (and(other) == null) return null;
-    Cube retValue = new Cube(this);
+    if (!intersects(other)) return null;
 
-    for (int i = 0; i < retValue.input.length; i++)
-      if (other.input[i] == ZERO || other.input[i] == ONE)
-        retValue.setInput(DONTCARE, i);
+    long[] retValue = new long[stride()];
+    cofactorRow(words, offset, other.words, other.offset, retValue, 0, inputLength, outputLength);
 
-    for (int i = 0; i < retValue.output.length; i++)
-      if (other.output[i] == NOT_OUTPUT)
-        retValue.output[i] = OUTPUT;
+    return new Cube(retValue, inputLength, outputLength);
+  }
 
-    return retValue;
+  /**
+   * Method tells whether this cube and the other cube have a non empty
+   * intersection. This is equivalent to <code>and(other) != null</code>
+   * but no new cube is created.
+   *
+   * @param other {@link Cube}.
+   * @return true if the intersection isn't empty.
+   */
+  public boolean intersects(Cube other) {
+    if (!isCompatible(other))
+      throw new IllegalArgumentException("Cube lengths are not compatible.");
+
+    return intersectsRow(words, offset, other.words, other.offset, inputLength, outputLength);
   }
 
   /**
@@ -457,8 +600,13 @@ public class Cube {
    * @see OutputState#complement()
    */
   public Cube outputComplement() {
-    for (int i = 0; i < output.length; i++)
-      output[i] = output[i].complement();
+    checkMutable();
+    if (owner != null) {
+      owner.outputChanged();
+    }
+
+    for (int i = 0; i < outputWords; i++)
+      words[offset + inputWords + i] = ~words[offset + inputWords + i] & outputMask(outputLength, i);
 
     return this;
   }
@@ -475,8 +623,17 @@ public class Cube {
    * @see Cube#complement()
    */
   public Cube inputComplement() {
-    for (int i = 0; i < input.length; i++)
-      setInput(input[i].complement(), i);
+    checkMutable();
+    if (hasEmptyInput())
+      throw new UnsupportedOperationException("Complement of an empty cube doesn't exist.");
+
+    if (owner == null) {
+      for (int i = 0; i < inputWords; i++)
+        words[offset + i] = swapLiterals(words[offset + i]);
+    } else {
+      for (int i = 0; i < inputLength; i++)
+        setInput(getInputState(i).complement(), i);
+    }
 
     return this;
   }
@@ -493,19 +650,34 @@ public class Cube {
    * @return {@link Cover}
    */
   public Cover complement() {
-    Cover retValue = new Cover(inputLength(), outputLength());
+    return complement(null);
+  }
 
-    for (int i = 0; i < input.length; ++i) {
-      InputState literal = input[i];
-      if (literal == ONE || literal == ZERO) {
-        InputState[] newInputs = new InputState[input.length];
-        Arrays.fill(newInputs, DONTCARE);
-        newInputs[i] = literal.complement();
+  /**
+   * Same as {@link Cube#complement()}, but the single literal cubes
+   * are taken from the given pool.
+   *
+   * @param pool {@link CubePool} or null for no interning.
+   * @return {@link Cover}
+   */
+  public Cover complement(CubePool pool) {
+    Cover retValue = new Cover(inputLength(), outputLength());
+    long[] row = new long[stride()];
 
-        OutputState[] outputCopy = new OutputState[output.length];
-        System.arraycopy(output, 0, outputCopy, 0, output.length);
+    for (int i = 0; i < inputWords; i++) row[i] = inputMask(inputLength, i);
+    System.arraycopy(words, offset + inputWords, row, inputWords, outputWords);
 
-        retValue.add(new Cube(newInputs, outputCopy));
+    for (int i = 0; i < inputLength; ++i) {
+      InputState literal = getInputState(i);
+      if (literal == ONE || literal == ZERO) {
+        int word = inputWordIndex(i);
+        int shift = inputShift(i);
+        row[word] ^= encode(literal) << shift;
+
+        retValue.add(pool == null ?
+            new Cube(row.clone(), inputLength, outputLength) :
+            pool.intern(row, 0, inputLength, outputLength));
+        row[word] |= DONTCARE_BITS << shift;
       }
     }
 
@@ -520,16 +692,10 @@ public class Cube {
    * @return primitive int.
    */
   public int inputDistance(Cube other) {
-    if (input.length != other.input.length || output.length != other.output.length)
+    if (!isCompatible(other))
       throw new IllegalArgumentException("Cube lengths are not compatible.");
 
-    int retValue = 0;
-
-    for (int i = 0; i < input.length; i++)
-      if (InputState.and(input[i], other.input[i]) == EMPTY)
-        retValue++;
-
-    return retValue;
+    return inputDistanceRow(words, offset, other.words, other.offset, inputLength);
   }
 
   /**
@@ -540,14 +706,13 @@ public class Cube {
    * @return primitive int.
    */
   public int outputDistance(Cube other) {
-    if (input.length != other.input.length || output.length != other.output.length)
+    if (!isCompatible(other))
       throw new IllegalArgumentException("Cube lengths are not compatible.");
 
-    int retValue = 0;
+    int retValue = outputLength;
 
-    for (int i = 0; i < output.length; i++)
-      if (OutputState.and(output[i], other.output[i]) != OUTPUT)
-        retValue++;
+    for (int i = inputWords; i < inputWords + outputWords; i++)
+      retValue -= Long.bitCount(words[offset + i] & other.words[other.offset + i]);
 
     return retValue;
   }
@@ -565,7 +730,7 @@ public class Cube {
    * @return {@link Cube}.
    */
   public Cube consensus(Cube other) {
-    if (input.length != other.input.length || output.length != other.output.length)
+    if (!isCompatible(other))
       throw new IllegalArgumentException("Cube lengths are not compatible.");
 
     int inputDistance = inputDistance(other);
@@ -580,16 +745,16 @@ public class Cube {
     Cube retValue = and(other, true);
 
     if (inputDistance == 1 && outputDistance == 0) {
-      for (int i = 0; i < retValue.input.length; i++)
-        if (retValue.input[i] == EMPTY)
-          retValue.setInput(DONTCARE, i);
+      for (int i = 0; i < inputWords; i++) {
+        long empty = emptyFields(retValue.words[i], inputMask(inputLength, i));
+        retValue.words[i] |= empty | (empty << 1);
+      }
       return retValue;
     }
 
     if (inputDistance == 0 && outputDistance == 1) {
-      for (int i = 0; i < retValue.output.length; i++)
-        if (output[i] == OUTPUT || other.output[i] == OUTPUT)
-          retValue.output[i] = OUTPUT;
+      for (int i = inputWords; i < inputWords + outputWords; i++)
+        retValue.words[i] = words[offset + i] | other.words[other.offset + i];
       return retValue;
     }
 
@@ -606,26 +771,20 @@ public class Cube {
    * @return true if this cube contains or strictly contains the other cube.
    */
   public boolean generalContain(Cube other) {
-    if (input.length != other.input.length || output.length != other.output.length)
+    if (!isCompatible(other))
       throw new IllegalArgumentException("Cube lengths are not compatible.");
 
-    for (int i = 0; i < input.length; i++)
-      if (!input[i].generalContains(other.input[i]))
-        return false;
-    for (int i = 0; i < output.length; i++)
-      if (!output[i].generalContains(other.output[i]))
-        return false;
-
-    return true;
+    return containsRow(words, offset, other.words, other.offset, stride());
   }
 
   public boolean isInputPartTautology() {
-    int sum = 0;
-    for (InputState inputState : input) {
-      sum += inputState.valueOf();
+    for (int i = 0; i < inputWords; i++) {
+      if (words[offset + i] != inputMask(inputLength, i)) {
+        return false;
+      }
     }
 
-    return sum == (DONTCARE.valueOf() * input.length);
+    return true;
   }
 
   /**
@@ -636,20 +795,6 @@ public class Cube {
    * @return true if the cube is empty, false otherwise.
    */
   public static boolean isEmpty(Cube cube) {
-    for (InputState state : cube.input) {
-      if (state == EMPTY) {
-        return true;
-      }
-    }
-
-    boolean emptyOutput = true;
-    for (OutputState state : cube.output) {
-      if (state != NOT_OUTPUT) {
-        emptyOutput = false;
-        break;
-      }
-    }
-
-    return emptyOutput;
+    return cube.hasEmptyInput() || cube.hasEmptyOutput();
   }
 }
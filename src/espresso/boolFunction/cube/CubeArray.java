@@ -1,26 +1,163 @@
 package espresso.boolFunction.cube;
 
 import espresso.boolFunction.Cover;
+import espresso.boolFunction.InputState;
 
 import java.util.*;
 
+import static espresso.boolFunction.cube.CubeEncoding.*;
+
+/**
+ * Array of {@link Cube}s stored row by row in one contiguous buffer of long words.
+ * Every cube occupies a slot of the buffer, see {@link CubeEncoding} for the layout
+ * of a slot. Cubes handed out by this class are lightweight views of their slots
+ * so reading a cube doesn't copy it. Operations over the whole array (copying,
+ * cofactoring, intersecting) sweep the buffer directly.<br/>
+ * <br/>
+ * Indexes built on the first read are published only once they are complete, so
+ * the rows and the {@link ColumnIndex} of an array that doesn't change any more
+ * can be read from several threads, for example by concurrent expansions against
+ * one off-set.
+ */
 public class CubeArray implements Iterable<Cube> {
-  private List<Cube> list;
+  private static final int INITIAL_CAPACITY = 10;
+
+  /**
+   * Smaller arrays are searched linearly, see {@link CubeArray#hashIndex()}.
+   */
+  private static final int HASH_INDEX_MIN_ROWS = 16;
+  private static final Random random = new Random();
 
   private int inputLength;
   private int outputLength;
+  private int stride;
 
   /**
-   * This reference is shared among all {@link Cube}s contained in this data structure.
-   * This is because one cube can choose to change its values and the data structure needs
-   * to be aware of these changes.
+   * Rows of all cubes. Row of the slot s starts at s * stride.
+   */
+  private long[] buffer;
+
+  /**
+   * Slots in the order of cubes. The cube at index i lives in slot order[i].
+   * Sorting and shuffling only permute this array.
+   */
+  private int[] order;
+  private int size;
+
+  private int slotCount;
+  private int[] freeSlots;
+  private int freeCount;
+
+  /**
+   * Views handed out so far, indexed by slot.
+   */
+  private Cube[] views;
+
+  /**
+   * Number of {@link InputState#ZERO} and {@link InputState#ONE} values in each column.
+   * Views report their changes so these counters are always up to date.
    */
   private int[][] bitCount;
 
-  private void initialize(int inputCount, int outputCount) {
+  /**
+   * Copies made by the copy constructor share storage with the original until
+   * one of them changes. The buffer is copied before first row is written, the
+   * order, free slots and counters are copied before the order changes.
+   * Removing cubes from first copy therefore never copies rows.
+   */
+  private boolean bufferShared;
+  private boolean orderShared;
+
+  /**
+   * Column index built for the current content, null if it has to be rebuilt.
+   *
+   * @see CubeArray#getColumnIndex()
+   */
+  private volatile ColumnIndex columnIndex;
+
+  /**
+   * Number of kernel queries since the last change that had to run without the index.
+   */
+  private int unindexedQueries;
+
+  /**
+   * Slots by row content. Built on the first search in first large enough array,
+   * kept up to date by additions and removals and dropped when first view changes
+   * its row in place.
+   */
+  private volatile RowHashIndex hashIndex;
+
+  /**
+   * Lazy cofactor state, see {@link CubeArray#literalCofactor(int, boolean)}.
+   * A lazy array keeps the buffer, the order and the {@link ColumnIndex} of the array
+   * it was made from, first mask of surviving rows over that index and first mask of
+   * raised columns. Its own storage is null until {@link CubeArray#materialize()}.
+   */
+  private long[] sourceBuffer;
+  private int[] sourceOrder;
+  private ColumnIndex sourceIndex;
+  private long[] sourceRows;
+  private long[] raisedColumns;
+
+  /**
+   * Array whose buffer and order first lazy cofactor reads.
+   */
+  private CubeArray source;
+
+  /**
+   * Arena that gets the storage back on {@link CubeArray#recycle()},
+   * null for arrays that are allocated normally.
+   */
+  private CoverArena arena;
+  private int arenaLevel;
+
+  /**
+   * Storage is still read by first copy or by first lazy cofactor that the arena
+   * doesn't release first. It is never recycled.
+   */
+  private boolean escaped;
+
+  private void initialize(int inputCount, int outputCount, int capacity) {
     inputLength = inputCount;
     outputLength = outputCount;
-    bitCount = new int[2][inputLength];
+    stride = inputWordCount(inputCount) + outputWordCount(outputCount);
+    bitCount = newCounters();
+    allocate(Math.max(capacity, 1));
+  }
+
+  private void allocate(int capacity) {
+    if (arena == null) {
+      buffer = new long[capacity * stride];
+      order = new int[capacity];
+      freeSlots = new int[capacity];
+      views = new Cube[capacity];
+      return;
+    }
+
+    order = arena.ints(capacity);
+    capacity = order.length;
+    buffer = arena.longs(capacity * stride);
+    freeSlots = arena.ints(capacity);
+    views = arena.cubes(capacity);
+  }
+
+  private int[][] newCounters() {
+    if (arena == null) {
+      return new int[2][inputLength];
+    }
+
+    return new int[][]{arena.zeroedInts(inputLength), arena.zeroedInts(inputLength)};
+  }
+
+  /**
+   * Registers this array with the arena if the arena is at some level.
+   */
+  private void useArena(CoverArena arena) {
+    if (arena != null && arena.isActive()) {
+      this.arena = arena;
+      arenaLevel = arena.level();
+      arena.register(this);
+    }
   }
 
   /**
@@ -31,27 +168,192 @@ public class CubeArray implements Iterable<Cube> {
    * @param outputCount int
    */
   public CubeArray(int inputCount, int outputCount) {
-    list = new ArrayList<>();
-    initialize(inputCount, outputCount);
+    initialize(inputCount, outputCount, INITIAL_CAPACITY);
   }
 
   /**
-   * Copy constructor.
+   * Initialize an empty cube array with storage from the given arena.
+   *
+   * @param inputCount  int
+   * @param outputCount int
+   * @param arena       {@link CoverArena} or null to allocate normally.
+   */
+  public CubeArray(int inputCount, int outputCount, CoverArena arena) {
+    this(inputCount, outputCount, INITIAL_CAPACITY, arena);
+  }
+
+  private CubeArray(int inputCount, int outputCount, int capacity, CoverArena arena) {
+    useArena(arena);
+    initialize(inputCount, outputCount, capacity);
+  }
+
+  /**
+   * Copy constructor. The copy takes O(1) time, storage is shared
+   * and copied on the first write.
    *
    * @param cubeArray {@link CubeArray}
    */
   public CubeArray(CubeArray cubeArray) {
-    list = new ArrayList<>();
-    initialize(cubeArray.inputLength, cubeArray.outputLength);
-    addAll(cubeArray);
+    cubeArray.materialize();
+
+    inputLength = cubeArray.inputLength;
+    outputLength = cubeArray.outputLength;
+    stride = cubeArray.stride;
+
+    buffer = cubeArray.buffer;
+    order = cubeArray.order;
+    size = cubeArray.size;
+    slotCount = cubeArray.slotCount;
+    freeSlots = cubeArray.freeSlots;
+    freeCount = cubeArray.freeCount;
+    bitCount = cubeArray.bitCount;
+    columnIndex = cubeArray.columnIndex;
+    views = new Cube[order.length];
+
+    bufferShared = orderShared = true;
+    cubeArray.bufferShared = cubeArray.orderShared = true;
+    cubeArray.escaped = true;
+  }
+
+  /**
+   * Lazy cofactor constructor.
+   */
+  private CubeArray(
+      CubeArray parent,
+      CubeArray source,
+      long[] sourceBuffer,
+      int[] sourceOrder,
+      ColumnIndex sourceIndex,
+      long[] sourceRows,
+      long[] raisedColumns,
+      CoverArena arena
+  ) {
+    inputLength = parent.inputLength;
+    outputLength = parent.outputLength;
+    stride = parent.stride;
+    useArena(arena);
+    bitCount = newCounters();
+
+    if (source.arena != null && (this.arena != source.arena || arenaLevel < source.arenaLevel)) {
+      source.escaped = true;
+    }
+
+    this.source = source;
+    this.sourceBuffer = sourceBuffer;
+    this.sourceOrder = sourceOrder;
+    this.sourceIndex = sourceIndex;
+    this.sourceRows = sourceRows;
+    this.raisedColumns = raisedColumns;
+
+    for (long word : sourceRows) {
+      size += Long.bitCount(word);
+    }
+
+    for (int j = 0; j < inputLength; j++) {
+      if (isRaised(j)) continue;
+      bitCount[0][j] = sourceIndex.zeroCount(j, sourceRows);
+      bitCount[1][j] = sourceIndex.oneCount(j, sourceRows);
+    }
+  }
+
+  private boolean isLazy() {
+    return sourceRows != null;
+  }
+
+  private boolean isRaised(int column) {
+    return (raisedColumns[column >>> 6] & (1L << column)) != 0;
+  }
+
+  /**
+   * Copies the surviving rows of first lazy cofactor into its own buffer.
+   * Raised columns become {@link InputState#DONTCARE}.
+   */
+  private void materialize() {
+    if (!isLazy()) {
+      return;
+    }
+
+    allocate(Math.max(size, 1));
+
+    long[] raisedBits = new long[inputWordCount(inputLength)];
+    for (int j = 0; j < inputLength; j++) {
+      if (isRaised(j)) {
+        raisedBits[inputWordIndex(j)] |= DONTCARE_BITS << inputShift(j);
+      }
+    }
+
+    int slot = 0;
+    for (int w = 0; w < sourceRows.length; w++) {
+      for (long bits = sourceRows[w]; bits != 0; bits &= bits - 1) {
+        int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+        int destination = slot * stride;
+
+        System.arraycopy(sourceBuffer, sourceOrder[i] * stride, buffer, destination, stride);
+        for (int k = 0; k < raisedBits.length; k++) {
+          buffer[destination + k] |= raisedBits[k];
+        }
+        order[slot] = slot;
+        slot++;
+      }
+    }
+    slotCount = slot;
+
+    if (arena != null) {
+      arena.recycle(sourceRows);
+      arena.recycle(raisedColumns);
+    }
+    source = null;
+    sourceBuffer = null;
+    sourceOrder = null;
+    sourceIndex = null;
+    sourceRows = null;
+    raisedColumns = null;
+  }
+
+  /**
+   * Must be called before the order, the free slots or the counters change.
+   */
+  private void ownOrder() {
+    materialize();
+    if (!orderShared) {
+      return;
+    }
+
+    order = order.clone();
+    freeSlots = freeSlots.clone();
+    bitCount = new int[][]{bitCount[0].clone(), bitCount[1].clone()};
+    orderShared = false;
+  }
+
+  /**
+   * Must be called before first row of the buffer is written.
+   */
+  private void ownRows() {
+    ownOrder();
+    if (!bufferShared) {
+      return;
+    }
+
+    buffer = buffer.clone();
+    bufferShared = false;
+
+    for (int i = 0; i < slotCount; i++) {
+      if (views[i] != null) {
+        views[i].rebase(buffer);
+      }
+    }
   }
 
   private void validateCube(Cube cube) {
-    if (cube.isBitCountTaken()) {
+    if (cube.isOwned()) {
       throw new IllegalArgumentException(
           "This cube already belongs to first CubeArray or Cover. Copy it."
       );
     }
+    validateLengths(cube);
+  }
+
+  private void validateLengths(Cube cube) {
     if (inputLength != cube.inputLength() || outputLength != cube.outputLength()) {
       throw new IllegalArgumentException(
           "Given cube must have the same number of inputs and outputs as the cubes in the set."
@@ -59,28 +361,232 @@ public class CubeArray implements Iterable<Cube> {
     }
   }
 
-  private void increaseCounters(Cube cube) {
-    for (int i = 0; i < inputLength; i++) {
-      int newState = cube.input(i).valueOf();
-      if (newState < 2)
-        bitCount[newState][i]++;
+  private void ensureCapacity(int slots) {
+    ownRows();
+    if (slots <= order.length) {
+      return;
+    }
+
+    int capacity = Math.max(slots, order.length + (order.length >> 1));
+    if (arena == null) {
+      buffer = Arrays.copyOf(buffer, capacity * stride);
+      order = Arrays.copyOf(order, capacity);
+      freeSlots = Arrays.copyOf(freeSlots, capacity);
+      views = Arrays.copyOf(views, capacity);
+    } else {
+      growFromArena(capacity);
+    }
+    if (hashIndex != null) {
+      hashIndex.ensureSlots(order.length);
     }
 
-    cube.setBitCount(bitCount);
+    for (int i = 0; i < slotCount; i++) {
+      if (views[i] != null) {
+        views[i].rebase(buffer);
+      }
+    }
   }
 
-  private void decreaseCounters(Cube cube) {
-    for (int i = 0; i < inputLength; i++) {
-      int oldState = cube.input(i).valueOf();
-      if (oldState < 2)
-        bitCount[oldState][i]--;
+  /**
+   * Moves the storage into larger arrays from the arena. The old arrays
+   * belong only to this array after {@link CubeArray#ownRows()}.
+   */
+  private void growFromArena(int capacity) {
+    long[] oldBuffer = buffer;
+    int[] oldOrder = order;
+    int[] oldFreeSlots = freeSlots;
+    Cube[] oldViews = views;
+
+    allocate(capacity);
+    System.arraycopy(oldBuffer, 0, buffer, 0, slotCount * stride);
+    System.arraycopy(oldOrder, 0, order, 0, size);
+    System.arraycopy(oldFreeSlots, 0, freeSlots, 0, freeCount);
+    System.arraycopy(oldViews, 0, views, 0, slotCount);
+
+    arena.recycle(oldBuffer);
+    arena.recycle(oldOrder);
+    arena.recycle(oldFreeSlots);
+    arena.recycle(oldViews, slotCount);
+  }
+
+  private int allocateSlot() {
+    if (freeCount > 0) {
+      return freeSlots[--freeCount];
+    }
+
+    ensureCapacity(slotCount + 1);
+    return slotCount++;
+  }
+
+  private void releaseSlot(int slot) {
+    Cube view = views[slot];
+    if (view != null) {
+      view.detach();
+      views[slot] = null;
+    }
+
+    freeSlots[freeCount++] = slot;
+  }
+
+  private void insertOrder(int index, int slot) {
+    invalidateColumnIndex();
+    System.arraycopy(order, index, order, index + 1, size - index);
+    order[index] = slot;
+    size++;
+  }
+
+  private void removeOrder(int index) {
+    invalidateColumnIndex();
+    System.arraycopy(order, index + 1, order, index, size - index - 1);
+    size--;
+  }
+
+  private void changeCounters(int slot, int delta) {
+    int offset = slot * stride;
+
+    for (int w = 0; w < inputWordCount(inputLength); w++) {
+      long word = buffer[offset + w];
+      int base = w * INPUTS_PER_WORD;
+
+      for (long ones = oneFields(word); ones != 0; ones &= ones - 1) {
+        bitCount[1][base + Long.numberOfTrailingZeros(ones) / 2] += delta;
+      }
+      for (long zeros = zeroFields(word); zeros != 0; zeros &= zeros - 1) {
+        bitCount[0][base + Long.numberOfTrailingZeros(zeros) / 2] += delta;
+      }
+    }
+  }
+
+  /**
+   * Called by a view when one of its input states changes.
+   */
+  void inputChanged(int i, InputState oldState, InputState newState) {
+    ownRows();
+    invalidateColumnIndex();
+    hashIndex = null;
+    if (oldState.valueOf() < 2)
+      bitCount[oldState.valueOf()][i]--;
+    if (newState.valueOf() < 2)
+      bitCount[newState.valueOf()][i]++;
+  }
+
+  private void invalidateColumnIndex() {
+    columnIndex = null;
+    unindexedQueries = 0;
+  }
+
+  /**
+   * Called by a view before its output part changes.
+   */
+  void outputChanged() {
+    ownRows();
+    invalidateColumnIndex();
+    hashIndex = null;
+  }
+
+  private Cube view(int slot) {
+    Cube view = views[slot];
+    if (view == null) {
+      view = new Cube(buffer, inputLength, outputLength);
+      view.attach(this, buffer, slot * stride);
+      views[slot] = view;
+    }
+
+    return view;
+  }
+
+  /**
+   * Copies the given row into a new slot.
+   *
+   * @return the new slot.
+   */
+  private int appendRow(long[] words, int offset) {
+    ownRows();
+    int slot = allocateSlot();
+    System.arraycopy(words, offset, buffer, slot * stride, stride);
+    insertOrder(size, slot);
+    changeCounters(slot, 1);
+    indexRow(slot);
+    return slot;
+  }
+
+  private void indexRow(int slot) {
+    if (hashIndex != null) {
+      hashIndex.insert(slot, hashRow(buffer, slot * stride, stride));
+    }
+  }
+
+  /**
+   * Returns the hash index, builds it if the array is large enough.
+   *
+   * @return {@link RowHashIndex} or null for small arrays.
+   */
+  private RowHashIndex hashIndex() {
+    materialize();
+    if (hashIndex == null && size >= HASH_INDEX_MIN_ROWS) {
+      RowHashIndex index = new RowHashIndex(order.length);
+      for (int i = 0; i < size; i++) {
+        index.insert(order[i], hashRow(buffer, order[i] * stride, stride));
+      }
+      hashIndex = index;
+    }
+
+    return hashIndex;
+  }
+
+  /**
+   * Interned cubes are shared, the array keeps only the copy of their row.
+   */
+  private void attach(Cube cube, int slot) {
+    if (cube.isInterned()) {
+      views[slot] = null;
+      return;
     }
 
-    cube.setBitCount(null);
+    cube.attach(this, buffer, slot * stride);
+    views[slot] = cube;
   }
 
   public int size() {
-    return list.size();
+    return size;
+  }
+
+  long[] buffer() {
+    materialize();
+    return buffer;
+  }
+
+  int stride() {
+    return stride;
+  }
+
+  /**
+   * @return offset of the row of the cube at the given index.
+   */
+  int rowOffset(int index) {
+    materialize();
+    return order[index] * stride;
+  }
+
+  boolean hasColumnIndex() {
+    return columnIndex != null;
+  }
+
+  /**
+   * Called by {@link CoverKernels} before first query runs without the index.
+   * Tall arrays that are queried again and again without changes build the
+   * index so the following queries run on the column bitmaps.
+   *
+   * @return true if the index is available now.
+   */
+  boolean prepareColumnIndex() {
+    materialize();
+    if (columnIndex == null && size >= CoverKernels.INDEX_MIN_ROWS &&
+        ++unindexedQueries >= CoverKernels.INDEX_MIN_QUERIES) {
+      getColumnIndex();
+    }
+
+    return columnIndex != null;
   }
 
   public int getInputLength() {
@@ -99,8 +605,16 @@ public class CubeArray implements Iterable<Cube> {
     return bitCount[0][i];
   }
 
+  private void indexOutOfBoundCheck(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
   public Cube get(int index) {
-    return list.get(index);
+    indexOutOfBoundCheck(index);
+    materialize();
+    return view(order[index]);
   }
 
   /**
@@ -116,9 +630,7 @@ public class CubeArray implements Iterable<Cube> {
     }
 
     validateCube(cube);
-    if (list.add(cube)) {
-      increaseCounters(cube);
-    }
+    attach(cube, appendRow(cube.words(), cube.offset()));
   }
 
   /**
@@ -127,8 +639,11 @@ public class CubeArray implements Iterable<Cube> {
    * @param c {@link Collection}
    */
   public void addAll(Collection<? extends Cube> c) {
+    ensureCapacity(slotCount + c.size());
+
     for (Cube cube : c) {
-      add(cube.copy());
+      validateLengths(cube);
+      appendRow(cube.words(), cube.offset());
     }
   }
 
@@ -138,54 +653,715 @@ public class CubeArray implements Iterable<Cube> {
    * @param cubes {@link CubeArray}
    */
   public void addAll(CubeArray cubes) {
-    for (Cube cube : cubes) {
-      add(cube.copy());
+    if (inputLength != cubes.inputLength || outputLength != cubes.outputLength) {
+      throw new IllegalArgumentException(
+          "Given cubes must have the same number of inputs and outputs as the cubes in the set."
+      );
+    }
+
+    cubes.materialize();
+    int count = cubes.size;
+    ensureCapacity(slotCount + count);
+
+    for (int i = 0; i < count; i++) {
+      int slot = allocateSlot();
+      System.arraycopy(cubes.buffer, cubes.order[i] * stride, buffer, slot * stride, stride);
+      insertOrder(size, slot);
+      indexRow(slot);
+    }
+
+    for (int i = 0; i < inputLength; i++) {
+      bitCount[0][i] += cubes.bitCount[0][i];
+      bitCount[1][i] += cubes.bitCount[1][i];
     }
   }
 
-  public void add(int index, Cube cube) {
-    if (cube.isBitCountTaken()) {
+  /**
+   * Adds copies of all rows from the given {@link CubeRows}.
+   * Rows are copied straight into the buffer without creating cubes.
+   *
+   * @param rows {@link CubeRows}
+   */
+  public void addAll(CubeRows rows) {
+    if (inputLength != rows.inputCount() || outputLength != rows.outputCount()) {
       throw new IllegalArgumentException(
-          "This cube already belongs to first CubeArray or Cover. Copy it."
+          "Given rows must have the same number of inputs and outputs as the cubes in the set."
+      );
+    }
+
+    int count = rows.size();
+    ensureCapacity(slotCount + count);
+
+    for (int i = 0; i < count; i++) {
+      int slot = allocateSlot();
+      rows.readRow(i, buffer, slot * stride);
+      insertOrder(size, slot);
+      changeCounters(slot, 1);
+      indexRow(slot);
+    }
+  }
+
+  /**
+   * Adds the cofactors of the given rows with respect to the given {@link Cube}.
+   * Rows that don't intersect the cube are skipped. The rows are read one by one
+   * into first scratch row, so rows of an {@link OffHeapCubeStore} aren't copied
+   * onto the heap.
+   *
+   * @param rows    {@link CubeRows}
+   * @param cube    {@link Cube}
+   * @param skipped index of first row that is left out or -1.
+   * @see CubeArray#cofactor(Cube, List)
+   */
+  public void addCofactors(CubeRows rows, Cube cube, int skipped) {
+    if (inputLength != rows.inputCount() || outputLength != rows.outputCount()) {
+      throw new IllegalArgumentException(
+          "Given rows must have the same number of inputs and outputs as the cubes in the set."
       );
     }
+    validateLengths(cube);
+
+    long[] words = cube.words();
+    int offset = cube.offset();
+    long[] row = new long[2 * stride];
+
+    for (int i = 0; i < rows.size(); i++) {
+      if (i == skipped) continue;
+
+      rows.readRow(i, row, 0);
+      if (intersectsRow(row, 0, words, offset, inputLength, outputLength)) {
+        cofactorRow(row, 0, words, offset, row, stride, inputLength, outputLength);
+        appendRow(row, stride);
+      }
+    }
+  }
+
+  /**
+   * Adds first copy of the given packed row.
+   * See {@link CubeEncoding} for the layout.
+   *
+   * @param words  array with the row.
+   * @param offset first word of the row.
+   */
+  public void addRow(long[] words, int offset) {
+    appendRow(words, offset);
+  }
+
+  /**
+   * Copies the packed row of the cube at the given index.
+   *
+   * @param index       index of the cube.
+   * @param destination array that receives the row.
+   * @param offset      first word in the destination.
+   */
+  public void readRow(int index, long[] destination, int offset) {
+    indexOutOfBoundCheck(index);
+    materialize();
+    System.arraycopy(buffer, order[index] * stride, destination, offset, stride);
+  }
+
+  /**
+   * Reads first input state straight from the buffer.
+   *
+   * @param index  index of the cube.
+   * @param column input variable.
+   * @return {@link InputState}
+   */
+  public InputState getInputState(int index, int column) {
+    indexOutOfBoundCheck(index);
+    if (column < 0 || column >= inputLength) {
+      throw new IndexOutOfBoundsException("Column: " + column + ", Input count: " + inputLength);
+    }
+    materialize();
+
+    long word = buffer[order[index] * stride + inputWordIndex(column)];
+    return decode(word >>> inputShift(column));
+  }
+
+  public void add(int index, Cube cube) {
+    if (index < 0 || index > size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
 
     validateCube(cube);
-    list.add(index, cube);
-    increaseCounters(cube);
+    int slot = appendRow(cube.words(), cube.offset());
+    removeOrder(size - 1);
+    insertOrder(index, slot);
+    attach(cube, slot);
   }
 
   public Cube remove(int index) {
-    Cube cube = list.get(index);
-    decreaseCounters(cube);
-    return list.remove(index);
+    indexOutOfBoundCheck(index);
+
+    ownOrder();
+    int slot = order[index];
+    Cube cube = view(slot);
+
+    changeCounters(slot, -1);
+    removeOrder(index);
+    if (hashIndex != null) {
+      hashIndex.remove(slot);
+    }
+    releaseSlot(slot);
+
+    return cube;
   }
 
   public void remove(Object o) {
-    Cube cube = (Cube) o;
-    if (list.remove(o)) {
-      decreaseCounters(cube);
+    if (!(o instanceof Cube)) {
+      return;
+    }
+
+    int index = indexOf((Cube) o);
+    if (index != -1) {
+      remove(index);
     }
   }
 
+  /**
+   * Index of the given cube if it's a view of this array or of first copy
+   * that still shares rows with this array, otherwise index of the first
+   * cube equal to the given cube.
+   *
+   * @param cube {@link Cube}
+   * @return index or -1 if the cube isn't found.
+   */
+  private int indexOf(Cube cube) {
+    materialize();
+    if (cube.isOwnedBy(this) || cube.isOwned() && cube.words() == buffer) {
+      int slot = cube.offset() / stride;
+      for (int i = 0; i < size; i++) {
+        if (order[i] == slot) {
+          return i;
+        }
+      }
+    }
+
+    if (cube.inputLength() != inputLength || cube.outputLength() != outputLength) {
+      return -1;
+    }
+
+    RowHashIndex index = hashIndex();
+    if (index != null && !hasEqualSlot(index, cube)) {
+      return -1;
+    }
+
+    for (int i = 0; i < size; i++) {
+      if (rowEquals(order[i] * stride, cube.words(), cube.offset())) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  private boolean hasEqualSlot(RowHashIndex index, Cube cube) {
+    int hash = hashRow(cube.words(), cube.offset(), stride);
+
+    for (int slot = index.first(hash); slot != -1; slot = index.next(slot)) {
+      if (rowEquals(slot * stride, cube.words(), cube.offset())) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Sum of the hashes of all rows that the hash index uses. It doesn't depend
+   * on the order of the rows.
+   *
+   * @return hash of the rows as first multiset.
+   */
+  public int rowHashSum() {
+    materialize();
+
+    int retValue = 0;
+    for (int i = 0; i < size; i++) {
+      retValue += hashRow(buffer, order[i] * stride, stride);
+    }
+
+    return retValue;
+  }
+
+  /**
+   * @return number of rows equal to the given packed row.
+   */
+  private int countEqualRows(long[] words, int offset) {
+    int retValue = 0;
+
+    RowHashIndex index = hashIndex();
+    if (index != null) {
+      int hash = hashRow(words, offset, stride);
+      for (int slot = index.first(hash); slot != -1; slot = index.next(slot)) {
+        if (rowEquals(slot * stride, words, offset)) {
+          retValue++;
+        }
+      }
+
+      return retValue;
+    }
+
+    for (int i = 0; i < size; i++) {
+      if (rowEquals(order[i] * stride, words, offset)) {
+        retValue++;
+      }
+    }
+
+    return retValue;
+  }
+
+  /**
+   * Tells if both arrays have the same rows, every row the same number of times.
+   * The order of the rows isn't compared. Counts are answered by the hash indexes.
+   *
+   * @param other {@link CubeArray}
+   * @return true if the arrays are equal as multisets of rows.
+   */
+  public boolean hasSameRows(CubeArray other) {
+    materialize();
+    other.materialize();
+
+    if (size != other.size) {
+      return false;
+    }
+    if (size == 0) {
+      return true;
+    }
+    if (inputLength != other.inputLength || outputLength != other.outputLength) {
+      return false;
+    }
+
+    for (int i = 0; i < size; i++) {
+      int row = order[i] * stride;
+      if (countEqualRows(buffer, row) != other.countEqualRows(buffer, row)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Tells if the array has first cube equal to the given cube.
+   * Large arrays answer from the hash index in O(1).
+   *
+   * @param cube {@link Cube}
+   * @return true if the cube is found.
+   */
+  public boolean contains(Cube cube) {
+    materialize();
+    if (cube.inputLength() != inputLength || cube.outputLength() != outputLength) {
+      return false;
+    }
+
+    RowHashIndex index = hashIndex();
+    if (index != null) {
+      return hasEqualSlot(index, cube);
+    }
+
+    for (int i = 0; i < size; i++) {
+      if (rowEquals(order[i] * stride, cube.words(), cube.offset())) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Removes all cubes equal to the given cube.
+   *
+   * @param cube {@link Cube}
+   * @return removed cubes in the order they had in the array.
+   */
+  public List<Cube> removeEqual(Cube cube) {
+    List<Cube> retValue = new ArrayList<>();
+    if (!contains(cube)) {
+      return retValue;
+    }
+
+    for (int i = 0; i < size; ) {
+      if (rowEquals(order[i] * stride, cube.words(), cube.offset())) {
+        retValue.add(remove(i));
+      } else {
+        i++;
+      }
+    }
+
+    return retValue;
+  }
+
+  private boolean rowEquals(int row, long[] words, int offset) {
+    return CubeEncoding.rowEquals(buffer, row, words, offset, stride);
+  }
+
   public void set(int index, Cube cube) {
+    indexOutOfBoundCheck(index);
     validateCube(cube);
+    ownRows();
 
-    Cube removedCube = list.get(index);
-    decreaseCounters(removedCube);
+    int slot = order[index];
+    changeCounters(slot, -1);
+    if (views[slot] != null) {
+      views[slot].detach();
+    }
+    if (hashIndex != null) {
+      hashIndex.remove(slot);
+    }
 
-    list.set(index, cube);
-    increaseCounters(cube);
+    System.arraycopy(cube.words(), cube.offset(), buffer, slot * stride, stride);
+    changeCounters(slot, 1);
+    indexRow(slot);
+    attach(cube, slot);
+    invalidateColumnIndex();
   }
 
   public void swapCubes(int index1, int index2) {
-    Cube token = list.get(index1);
-    list.set(index1, list.get(index2));
-    list.set(index2, token);
+    indexOutOfBoundCheck(index1);
+    indexOutOfBoundCheck(index2);
+    ownOrder();
+
+    int token = order[index1];
+    order[index1] = order[index2];
+    order[index2] = token;
+    invalidateColumnIndex();
   }
 
   public void sort(Comparator<Cube> comparator) {
-    list.sort(comparator);
+    materialize();
+    Cube[] cubes = new Cube[size];
+    for (int i = 0; i < size; i++) {
+      cubes[i] = view(order[i]);
+    }
+
+    Arrays.sort(cubes, comparator);
+    ownOrder();
+
+    for (int i = 0; i < size; i++) {
+      order[i] = cubes[i].offset() / stride;
+    }
+    invalidateColumnIndex();
+  }
+
+  /**
+   * Returns the transposed column bitmaps of this array. The index is built
+   * on the first call and reused until the array changes.
+   *
+   * @return {@link ColumnIndex}
+   */
+  public ColumnIndex getColumnIndex() {
+    materialize();
+    if (columnIndex == null) {
+      ColumnIndex index = arena == null ?
+          new ColumnIndex(inputLength, outputLength, size) :
+          new ColumnIndex(inputLength, outputLength, size, arena);
+      for (int i = 0; i < size; i++) {
+        index.addRow(i, buffer, order[i] * stride, inputLength, outputLength);
+      }
+      columnIndex = index;
+    }
+
+    return columnIndex;
+  }
+
+  /**
+   * Method returns the cofactor of this array with respect to a single literal.
+   * The cofactor is lazy. It doesn't copy rows, it keeps first mask of surviving rows
+   * over the {@link ColumnIndex} of this array and first mask of raised columns.
+   * Size, column counters, {@link CubeArray#hasDontcareRow()} and further literal
+   * cofactors are computed from the masks. Rows are copied on the first access that
+   * needs them, raised columns become {@link InputState#DONTCARE}.<br/>
+   * The result is the same as {@link CubeArray#cofactor(Cube, List)} with respect
+   * to the variable cube of the literal.
+   *
+   * @param column   input variable of the literal.
+   * @param positive true for the positive literal.
+   * @return {@link CubeArray}
+   */
+  public CubeArray literalCofactor(int column, boolean positive) {
+    return literalCofactor(column, positive, null);
+  }
+
+  /**
+   * Same as {@link CubeArray#literalCofactor(int, boolean)}, the counters
+   * and the rows copied later are taken from the given arena.
+   *
+   * @param arena {@link CoverArena} or null to allocate normally.
+   */
+  public CubeArray literalCofactor(int column, boolean positive, CoverArena arena) {
+    if (column < 0 || column >= inputLength) {
+      throw new IndexOutOfBoundsException("Column: " + column + ", Input count: " + inputLength);
+    }
+
+    if (!isLazy()) {
+      ColumnIndex index = getColumnIndex();
+      long[] raised = mask(arena, (inputLength + 63) >>> 6);
+      raised[column >>> 6] |= 1L << column;
+      long[] rows = index.cofactorRows(column, positive, mask(arena, (size + 63) >>> 6));
+
+//      Rows of this array are shared with the cofactor from now on.
+      bufferShared = orderShared = true;
+
+      return new CubeArray(this, this, buffer, order, index, rows, raised, arena);
+    }
+
+    long[] rows = mask(arena, sourceRows.length);
+    System.arraycopy(sourceRows, 0, rows, 0, rows.length);
+    if (!isRaised(column)) {
+      long[] blocked = positive ? sourceIndex.zeroRows(column) : sourceIndex.oneRows(column);
+      for (int w = 0; w < rows.length; w++) {
+        rows[w] &= ~blocked[w];
+      }
+    }
+
+    long[] raised = mask(arena, raisedColumns.length);
+    System.arraycopy(raisedColumns, 0, raised, 0, raised.length);
+    raised[column >>> 6] |= 1L << column;
+
+    return new CubeArray(this, source, sourceBuffer, sourceOrder, sourceIndex, rows, raised, arena);
+  }
+
+  /**
+   * Bitset of first lazy cofactor, from the arena if the cofactor will be registered there.
+   */
+  private static long[] mask(CoverArena arena, int length) {
+    return arena != null && arena.isActive() ? arena.zeroedLongs(length) : new long[length];
+  }
+
+  /**
+   * Tells whether the array has first cube with only {@link InputState#DONTCARE} inputs.
+   *
+   * @return true if such cube exists.
+   * @see Cube#isInputPartTautology()
+   */
+  public boolean hasDontcareRow() {
+    if (isLazy()) {
+      long[] rows = sourceRows.clone();
+
+      for (int j = 0; j < inputLength; j++) {
+        if (isRaised(j)) continue;
+
+        long[] ones = sourceIndex.oneRows(j);
+        long[] zeros = sourceIndex.zeroRows(j);
+        for (int w = 0; w < rows.length; w++) {
+          rows[w] &= ~(ones[w] | zeros[w]);
+        }
+      }
+
+      for (long word : rows) {
+        if (word != 0) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    int inputWords = inputWordCount(inputLength);
+    for (int i = 0; i < size; i++) {
+      int row = order[i] * stride;
+      int k = 0;
+      while (k < inputWords && buffer[row + k] == inputMask(inputLength, k)) {
+        k++;
+      }
+
+      if (k == inputWords) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Method returns a new array with cofactors of all cubes with respect
+   * to the given {@link Cube}. Cubes that don't intersect the given cube
+   * are skipped.
+   *
+   * @param cube    {@link Cube}
+   * @param indexes if not null, indexes of cubes that had a cofactor are added here.
+   * @return {@link CubeArray}
+   * @see Cube#cofactor(Cube)
+   */
+  public CubeArray cofactor(Cube cube, List<Integer> indexes) {
+    return cofactor(cube, indexes, null);
+  }
+
+  /**
+   * Same as {@link CubeArray#cofactor(Cube, List)} with storage from the given arena.
+   *
+   * @param arena {@link CoverArena} or null to allocate normally.
+   */
+  public CubeArray cofactor(Cube cube, List<Integer> indexes, CoverArena arena) {
+    validateLengths(cube);
+    materialize();
+    CubeArray retValue = new CubeArray(inputLength, outputLength, size, arena);
+
+    long[] words = cube.words();
+    int offset = cube.offset();
+    long[] rows = CoverKernels.getInstance().intersectingRows(this, words, offset);
+
+    for (int w = 0; w < rows.length; w++) {
+      for (long bits = rows[w]; bits != 0; bits &= bits - 1) {
+        int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+        int slot = retValue.allocateSlot();
+
+        cofactorRow(buffer, order[i] * stride, words, offset, retValue.buffer, slot * stride, inputLength, outputLength);
+        retValue.insertOrder(retValue.size, slot);
+        retValue.changeCounters(slot, 1);
+
+        if (indexes != null) {
+          indexes.add(i);
+        }
+      }
+    }
+
+    return retValue;
+  }
+
+  /**
+   * Method returns a new array with all non empty intersections
+   * between cubes of this array and cubes of the other array.
+   *
+   * @param other {@link CubeArray}
+   * @return {@link CubeArray}
+   * @see Cube#and(Cube)
+   */
+  public CubeArray intersect(CubeArray other) {
+    return intersect(other, null);
+  }
+
+  /**
+   * Same as {@link CubeArray#intersect(CubeArray)} with storage from the given arena.
+   *
+   * @param arena {@link CoverArena} or null to allocate normally.
+   */
+  public CubeArray intersect(CubeArray other, CoverArena arena) {
+    materialize();
+    other.materialize();
+    CubeArray retValue = new CubeArray(inputLength, outputLength, INITIAL_CAPACITY, arena);
+    CoverKernels kernels = CoverKernels.getInstance();
+
+    for (int i = 0; i < size; i++) {
+      int row1 = order[i] * stride;
+      long[] rows = kernels.intersectingRows(other, buffer, row1);
+
+      for (int w = 0; w < rows.length; w++) {
+        for (long bits = rows[w]; bits != 0; bits &= bits - 1) {
+          int row2 = other.order[(w << 6) + Long.numberOfTrailingZeros(bits)] * stride;
+
+          int slot = retValue.allocateSlot();
+          int destination = slot * stride;
+          for (int k = 0; k < stride; k++) {
+            retValue.buffer[destination + k] = buffer[row1 + k] & other.buffer[row2 + k];
+          }
+          retValue.insertOrder(retValue.size, slot);
+          retValue.changeCounters(slot, 1);
+        }
+      }
+    }
+
+    return retValue;
+  }
+
+  /**
+   * Bitset over cube indexes of cubes that intersect the given cube.
+   *
+   * @param cube {@link Cube}
+   * @return new bitset, bit i is set for the cube at index i.
+   * @see Cube#intersects(Cube)
+   */
+  public long[] intersectingRows(Cube cube) {
+    validateLengths(cube);
+    return CoverKernels.getInstance().intersectingRows(this, cube.words(), cube.offset());
+  }
+
+  /**
+   * Bitset over cube indexes of cubes contained by the given cube.
+   *
+   * @param cube {@link Cube}
+   * @return new bitset, bit i is set for the cube at index i.
+   * @see Cube#generalContain(Cube)
+   */
+  public long[] containedRows(Cube cube) {
+    validateLengths(cube);
+    return CoverKernels.getInstance().containedRows(this, cube.words(), cube.offset());
+  }
+
+  /**
+   * Bitset over cube indexes of cubes that contain the given cube.
+   *
+   * @param cube {@link Cube}
+   * @return new bitset, bit i is set for the cube at index i.
+   * @see Cube#generalContain(Cube)
+   */
+  public long[] containingRows(Cube cube) {
+    validateLengths(cube);
+    return CoverKernels.getInstance().containingRows(this, cube.words(), cube.offset());
+  }
+
+  /**
+   * Input distance between the given cube and every cube of this array.
+   *
+   * @param cube {@link Cube}
+   * @return array with the distance for every index.
+   * @see Cube#inputDistance(Cube)
+   */
+  public int[] inputDistances(Cube cube) {
+    validateLengths(cube);
+    return CoverKernels.getInstance().inputDistances(this, cube.words(), cube.offset());
+  }
+
+  /**
+   * Gives the storage back to the arena, see {@link CoverArena#release(int)}.
+   * The array can't be used afterwards. Arrays whose storage escaped stay as they are.
+   */
+  void recycle() {
+    if (escaped) {
+      arena = null;
+      return;
+    }
+
+    if (isLazy()) {
+      arena.recycle(sourceRows);
+      arena.recycle(raisedColumns);
+    } else {
+      boolean viewsHandedOut = false;
+      for (int i = 0; i < slotCount; i++) {
+        if (views[i] != null) {
+          views[i].disown();
+          viewsHandedOut = true;
+        }
+      }
+
+//      Views keep reading the buffer, it is left to the garbage collector.
+      if (!viewsHandedOut) {
+        arena.recycle(buffer);
+      }
+      arena.recycle(order);
+      arena.recycle(freeSlots);
+      arena.recycle(views, slotCount);
+      if (columnIndex != null) {
+        columnIndex.recycle(arena);
+      }
+    }
+    arena.recycle(bitCount[0]);
+    arena.recycle(bitCount[1]);
+
+    buffer = null;
+    order = null;
+    freeSlots = null;
+    views = null;
+    bitCount = null;
+    source = null;
+    sourceBuffer = null;
+    sourceOrder = null;
+    sourceIndex = null;
+    sourceRows = null;
+    raisedColumns = null;
+    columnIndex = null;
+    hashIndex = null;
+    arena = null;
   }
 
   @Override
@@ -195,35 +1371,57 @@ public class CubeArray implements Iterable<Cube> {
 
   public void shuffle() {
 //    Seed 400 for demonstration on notMinimalTestCase1
-    Collections.shuffle(list);
+    shuffle(random);
   }
 
   public void shuffle(long seed) {
     Random random = new Random();
     random.setSeed(seed);
-    Collections.shuffle(list, random);
+    shuffle(random);
+  }
+
+  /**
+   * Same algorithm as {@link Collections#shuffle(List, Random)}.
+   */
+  private void shuffle(Random random) {
+    for (int i = size; i > 1; i--) {
+      swapCubes(i - 1, random.nextInt(i));
+    }
   }
 
   /**
-   * A wrapper around default {@link ArrayList} iterator in order to properly maintain
-   * {@link CubeArray#bitCount} values.
+   * Iterator over views of the array. Removal through the iterator
+   * properly maintains {@link CubeArray#bitCount} values.
    */
   public class CubeArrayIterator implements Iterator<Cube> {
-    private Iterator<Cube> iterator = CubeArray.this.list.iterator();
-    private Cube currentCube;
+    private int cursor = 0;
+    private int lastReturned = -1;
+
+    public CubeArrayIterator() {
+      materialize();
+    }
 
     public boolean hasNext() {
-      return iterator.hasNext();
+      return cursor < size;
     }
 
     public Cube next() {
-      currentCube = iterator.next();
-      return currentCube;
+      if (cursor >= size) {
+        throw new NoSuchElementException();
+      }
+
+      lastReturned = cursor++;
+      return view(order[lastReturned]);
     }
 
     public void remove() {
-      iterator.remove();
-      CubeArray.this.decreaseCounters(currentCube);
+      if (lastReturned < 0) {
+        throw new IllegalStateException();
+      }
+
+      CubeArray.this.remove(lastReturned);
+      cursor = lastReturned;
+      lastReturned = -1;
     }
   }
 }
@@ -0,0 +1,264 @@
+package espresso.boolFunction.cube;
+
+import espresso.boolFunction.InputState;
+
+/**
+ * Bit level helpers for the positional cube notation used by {@link Cube}.
+ * <p>
+ * Every input variable occupies two bits of a long word, 32 variables per word.
+ * Mappings are: {@link InputState#ZERO} = 01, {@link InputState#ONE} = 10,
+ * {@link InputState#DONTCARE} = 11 and {@link InputState#EMPTY} = 00.
+ * With this notation the intersection of two cubes is a bitwise AND and
+ * an input variable is empty if both of its bits are cleared.<br/>
+ * Every output variable occupies one bit, 64 outputs per word. A set bit
+ * represents {@link espresso.boolFunction.OutputState#OUTPUT}.
+ */
+public final class CubeEncoding {
+  public static final int INPUTS_PER_WORD = 32;
+  public static final int OUTPUTS_PER_WORD = 64;
+
+  /**
+   * Low bit of every input variable in a word.
+   */
+  public static final long LOW_BITS = 0x5555555555555555L;
+
+  public static final long ZERO_BITS = 1L;
+  public static final long ONE_BITS = 2L;
+  public static final long DONTCARE_BITS = 3L;
+  public static final long EMPTY_BITS = 0L;
+
+  private CubeEncoding() {
+  }
+
+  public static int inputWordCount(int inputLength) {
+    return (inputLength + INPUTS_PER_WORD - 1) / INPUTS_PER_WORD;
+  }
+
+  public static int outputWordCount(int outputLength) {
+    return (outputLength + OUTPUTS_PER_WORD - 1) / OUTPUTS_PER_WORD;
+  }
+
+  public static int inputWordIndex(int inputIndex) {
+    return inputIndex / INPUTS_PER_WORD;
+  }
+
+  public static int inputShift(int inputIndex) {
+    return (inputIndex % INPUTS_PER_WORD) * 2;
+  }
+
+  /**
+   * Method returns a word with {@link InputState#DONTCARE} in every
+   * input variable that exists in the given word of a cube.
+   *
+   * @param inputLength number of input variables in the cube.
+   * @param word        index of the word.
+   * @return primitive long.
+   */
+  public static long inputMask(int inputLength, int word) {
+    int fields = Math.min(INPUTS_PER_WORD, inputLength - word * INPUTS_PER_WORD);
+    return fields == INPUTS_PER_WORD ? -1L : (1L << (2 * fields)) - 1;
+  }
+
+  /**
+   * Method returns a word with a set bit for every output variable
+   * that exists in the given word of a cube.
+   *
+   * @param outputLength number of output variables in the cube.
+   * @param word         index of the word.
+   * @return primitive long.
+   */
+  public static long outputMask(int outputLength, int word) {
+    int fields = Math.min(OUTPUTS_PER_WORD, outputLength - word * OUTPUTS_PER_WORD);
+    return fields == OUTPUTS_PER_WORD ? -1L : (1L << fields) - 1;
+  }
+
+  /**
+   * Low bit of every {@link InputState#EMPTY} variable in the given word.
+   *
+   * @param word primitive long.
+   * @param mask result of {@link CubeEncoding#inputMask(int, int)}.
+   * @return primitive long.
+   */
+  public static long emptyFields(long word, long mask) {
+    return ~(word | (word >>> 1)) & LOW_BITS & mask;
+  }
+
+  /**
+   * Low bit of every {@link InputState#ONE} variable in the given word.
+   */
+  public static long oneFields(long word) {
+    return (word >>> 1) & ~word & LOW_BITS;
+  }
+
+  /**
+   * Low bit of every {@link InputState#ZERO} variable in the given word.
+   */
+  public static long zeroFields(long word) {
+    return word & ~(word >>> 1) & LOW_BITS;
+  }
+
+  /**
+   * Low bit of every {@link InputState#DONTCARE} variable in the given word.
+   */
+  public static long dontcareFields(long word) {
+    return word & (word >>> 1) & LOW_BITS;
+  }
+
+  /**
+   * Swaps {@link InputState#ZERO} and {@link InputState#ONE} in every input variable.
+   * {@link InputState#DONTCARE} and {@link InputState#EMPTY} stay the same.
+   *
+   * @param word primitive long.
+   * @return primitive long.
+   */
+  public static long swapLiterals(long word) {
+    return ((word & LOW_BITS) << 1) | ((word >>> 1) & LOW_BITS);
+  }
+
+  public static long encode(InputState state) {
+    if (state == null) {
+      return EMPTY_BITS;
+    }
+
+    switch (state) {
+      case ZERO:
+        return ZERO_BITS;
+      case ONE:
+        return ONE_BITS;
+      case DONTCARE:
+        return DONTCARE_BITS;
+      default:
+        return EMPTY_BITS;
+    }
+  }
+
+  public static InputState decode(long bits) {
+    switch ((int) (bits & DONTCARE_BITS)) {
+      case 1:
+        return InputState.ZERO;
+      case 2:
+        return InputState.ONE;
+      case 3:
+        return InputState.DONTCARE;
+      default:
+        return InputState.EMPTY;
+    }
+  }
+
+  /**
+   * Tells whether two packed cubes intersect. Cubes are given as an array
+   * and the offset of their first word, input words followed by output words.
+   *
+   * @return true if no input variable is {@link InputState#EMPTY} and at least
+   * one output is shared.
+   */
+  public static boolean intersectsRow(
+      long[] a, int aOffset,
+      long[] b, int bOffset,
+      int inputLength, int outputLength
+  ) {
+    int inputWords = inputWordCount(inputLength);
+    int outputWords = outputWordCount(outputLength);
+
+    for (int i = 0; i < inputWords; i++)
+      if (emptyFields(a[aOffset + i] & b[bOffset + i], inputMask(inputLength, i)) != 0)
+        return false;
+
+    for (int i = inputWords; i < inputWords + outputWords; i++)
+      if ((a[aOffset + i] & b[bOffset + i]) != 0)
+        return true;
+
+    return false;
+  }
+
+  /**
+   * Tells whether the first packed cube contains or strictly contains the second one.
+   *
+   * @param stride number of words in a cube.
+   */
+  public static boolean containsRow(long[] a, int aOffset, long[] b, int bOffset, int stride) {
+    for (int i = 0; i < stride; i++)
+      if ((a[aOffset + i] & b[bOffset + i]) != b[bOffset + i])
+        return false;
+
+    return true;
+  }
+
+  /**
+   * Number of {@link InputState#EMPTY} variables in the intersection of two packed cubes.
+   */
+  public static int inputDistanceRow(long[] a, int aOffset, long[] b, int bOffset, int inputLength) {
+    int retValue = 0;
+
+    for (int i = 0; i < inputWordCount(inputLength); i++)
+      retValue += Long.bitCount(emptyFields(a[aOffset + i] & b[bOffset + i], inputMask(inputLength, i)));
+
+    return retValue;
+  }
+
+  /**
+   * Writes the cofactor of the packed cube <code>a</code> with respect to the packed
+   * cube <code>b</code> into <code>destination</code>. Variables that are literals
+   * in <code>b</code> become {@link InputState#DONTCARE}, outputs that are not
+   * used in <code>b</code> become outputs.<br/>
+   * Note: Method doesn't check if the cubes intersect.
+   * See {@link CubeEncoding#intersectsRow(long[], int, long[], int, int, int)}.
+   */
+  public static void cofactorRow(
+      long[] a, int aOffset,
+      long[] b, int bOffset,
+      long[] destination, int destinationOffset,
+      int inputLength, int outputLength
+  ) {
+    int inputWords = inputWordCount(inputLength);
+    int outputWords = outputWordCount(outputLength);
+
+    for (int i = 0; i < inputWords; i++)
+      destination[destinationOffset + i] =
+          a[aOffset + i] | (~b[bOffset + i] & inputMask(inputLength, i));
+
+    for (int i = 0; i < outputWords; i++)
+      destination[destinationOffset + inputWords + i] =
+          a[aOffset + inputWords + i] | (~b[bOffset + inputWords + i] & outputMask(outputLength, i));
+  }
+
+  /**
+   * Well distributed hash of first packed row. Every word is mixed in with first
+   * multiplication and the result goes through the 64 bit finalizer of MurmurHash3,
+   * so rows that differ in first single variable get unrelated hashes.
+   *
+   * @param words  array with the row.
+   * @param offset first word of the row.
+   * @param length number of words in the row.
+   * @return primitive int.
+   */
+  public static int hashRow(long[] words, int offset, int length) {
+    long hash = length;
+
+    for (int i = 0; i < length; i++) {
+      hash = (hash ^ words[offset + i]) * 0x9E3779B97F4A7C15L;
+      hash ^= hash >>> 32;
+    }
+
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    hash ^= hash >>> 33;
+
+    return (int) hash;
+  }
+
+  /**
+   * @return true if both rows have the same words.
+   */
+  public static boolean rowEquals(long[] a, int aOffset, long[] b, int bOffset, int length) {
+    for (int i = 0; i < length; i++) {
+      if (a[aOffset + i] != b[bOffset + i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
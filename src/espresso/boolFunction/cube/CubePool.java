@@ -0,0 +1,197 @@
+package espresso.boolFunction.cube;
+
+import espresso.boolFunction.InputState;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+import static espresso.boolFunction.cube.CubeEncoding.*;
+
+/**
+ * Canonicalizing pool of {@link Cube}s. Equal cubes interned in the same pool
+ * are the same instance, so they can be compared with <code>==</code>.<br/>
+ * <br/>
+ * Interned cubes can't be changed (see {@link Cube#isInterned()}) and
+ * first {@link CubeArray} stores first copy of their row instead of turning them
+ * into views. The pool only references its cubes weakly, first cube that
+ * isn't used anywhere else is collected and its entry is dropped.<br/>
+ * <br/>
+ * Recursive algorithms opt into interning by taking first pool as an argument,
+ * null means no interning. Lookups don't allocate, first {@link Cube} is created
+ * only on first miss. The pool is thread safe.
+ */
+public final class CubePool {
+  private final ReferenceQueue<Cube> queue = new ReferenceQueue<>();
+  private Entry[] table = new Entry[16];
+  private int count;
+
+  private long hitCount;
+  private long missCount;
+
+  /**
+   * Row assembled by the lookups that build their cube in place.
+   */
+  private long[] scratch = new long[2];
+
+  private static final class Entry extends WeakReference<Cube> {
+    private final int hash;
+    private Entry next;
+
+    Entry(Cube cube, int hash, Entry next, ReferenceQueue<Cube> queue) {
+      super(cube, queue);
+      this.hash = hash;
+      this.next = next;
+    }
+  }
+
+  /**
+   * @param cube {@link Cube}, it is not changed.
+   * @return interned cube equal to the given cube.
+   */
+  public synchronized Cube intern(Cube cube) {
+    if (cube.isInterned()) {
+      return cube;
+    }
+
+    return lookup(cube.words(), cube.offset(), cube.inputLength(), cube.outputLength());
+  }
+
+  /**
+   * Interned universal cube, all inputs are {@link InputState#DONTCARE} and all
+   * outputs are set.
+   *
+   * @see Cube#Cube(int, int)
+   */
+  public synchronized Cube universal(int inputCount, int outputCount) {
+    long[] row = universalRow(inputCount, outputCount);
+    return lookup(row, 0, inputCount, outputCount);
+  }
+
+  /**
+   * Interned universal cube with one input set to the given state.
+   *
+   * @see espresso.boolFunction.Cover#generateVariableCube(int)
+   */
+  public synchronized Cube variable(int inputCount, int outputCount, int column, InputState state) {
+    if (column < 0 || column >= inputCount) {
+      throw new IllegalArgumentException("Input index is out of range.");
+    }
+
+    long[] row = universalRow(inputCount, outputCount);
+    int word = inputWordIndex(column);
+    row[word] = (row[word] & ~(DONTCARE_BITS << inputShift(column))) | (encode(state) << inputShift(column));
+
+    return lookup(row, 0, inputCount, outputCount);
+  }
+
+  /**
+   * Interns first packed row, see {@link CubeEncoding}. The row is copied on first miss.
+   */
+  public synchronized Cube intern(long[] words, int offset, int inputLength, int outputLength) {
+    return lookup(words, offset, inputLength, outputLength);
+  }
+
+  public synchronized int size() {
+    expunge();
+    return count;
+  }
+
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  public synchronized void resetCounters() {
+    hitCount = 0;
+    missCount = 0;
+  }
+
+  private long[] universalRow(int inputCount, int outputCount) {
+    if (inputCount <= 0 || outputCount <= 0) {
+      throw new IllegalArgumentException("Input or output count can't be zero or negative.");
+    }
+
+    int inputWords = inputWordCount(inputCount);
+    int outputWords = outputWordCount(outputCount);
+    if (scratch.length < inputWords + outputWords) {
+      scratch = new long[inputWords + outputWords];
+    }
+
+    for (int i = 0; i < inputWords; i++) scratch[i] = inputMask(inputCount, i);
+    for (int i = 0; i < outputWords; i++) scratch[inputWords + i] = outputMask(outputCount, i);
+
+    return scratch;
+  }
+
+  private Cube lookup(long[] words, int offset, int inputLength, int outputLength) {
+    expunge();
+
+    int stride = inputWordCount(inputLength) + outputWordCount(outputLength);
+    int hash = hashRow(words, offset, stride);
+
+    for (Entry e = table[hash & (table.length - 1)]; e != null; e = e.next) {
+      Cube cube = e.get();
+      if (e.hash == hash && cube != null &&
+          cube.inputLength() == inputLength && cube.outputLength() == outputLength &&
+          rowEquals(cube.words(), cube.offset(), words, offset, stride)) {
+        hitCount++;
+        return cube;
+      }
+    }
+
+    missCount++;
+    long[] row = new long[stride];
+    System.arraycopy(words, offset, row, 0, stride);
+    Cube cube = new Cube(row, inputLength, outputLength);
+    cube.intern();
+
+    if (++count > table.length * 3 / 4) {
+      resize(table.length << 1);
+    }
+    int bucket = hash & (table.length - 1);
+    table[bucket] = new Entry(cube, hash, table[bucket], queue);
+
+    return cube;
+  }
+
+  private void resize(int size) {
+    Entry[] oldTable = table;
+    table = new Entry[size];
+
+    for (Entry head : oldTable) {
+      for (Entry e = head; e != null; ) {
+        Entry following = e.next;
+        int bucket = e.hash & (size - 1);
+        e.next = table[bucket];
+        table[bucket] = e;
+        e = following;
+      }
+    }
+  }
+
+  /**
+   * Drops entries of collected cubes.
+   */
+  private void expunge() {
+    for (Object reference; (reference = queue.poll()) != null; ) {
+      Entry entry = (Entry) reference;
+      int bucket = entry.hash & (table.length - 1);
+
+      if (table[bucket] == entry) {
+        table[bucket] = entry.next;
+        count--;
+        continue;
+      }
+      for (Entry e = table[bucket]; e != null; e = e.next) {
+        if (e.next == entry) {
+          e.next = entry.next;
+          count--;
+          break;
+        }
+      }
+    }
+  }
+}
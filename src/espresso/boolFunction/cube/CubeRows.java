@@ -0,0 +1,49 @@
+package espresso.boolFunction.cube;
+
+import espresso.boolFunction.InputState;
+
+import static espresso.boolFunction.cube.CubeEncoding.inputWordCount;
+import static espresso.boolFunction.cube.CubeEncoding.outputWordCount;
+
+/**
+ * Read only access to first set of packed cubes. Rows are read
+ * straight from the storage so no {@link Cube} objects are created.
+ * See {@link CubeEncoding} for the layout of first row.
+ */
+public interface CubeRows {
+
+  int size();
+
+  int inputCount();
+
+  int outputCount();
+
+  /**
+   * Copies the row at the given index into the destination array.
+   *
+   * @param index       index of the row.
+   * @param destination array that receives input words followed by output words.
+   * @param offset      first word in the destination.
+   */
+  void readRow(int index, long[] destination, int offset);
+
+  InputState getInputState(int index, int column);
+
+  /**
+   * Materializes first copy of the row at the given index.
+   * Prefer {@link CubeRows#readRow(int, long[], int)} in loops.
+   *
+   * @param index index of the row.
+   * @return new {@link Cube}.
+   */
+  default Cube copyCube(int index) {
+    long[] row = new long[inputWordCount(inputCount()) + outputWordCount(outputCount())];
+    readRow(index, row, 0);
+    return new Cube(row, inputCount(), outputCount());
+  }
+
+  /**
+   * @return {@link ColumnIndex} of the current rows.
+   */
+  ColumnIndex getColumnIndex();
+}
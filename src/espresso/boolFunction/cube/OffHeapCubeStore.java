@@ -0,0 +1,213 @@
+package espresso.boolFunction.cube;
+
+import espresso.boolFunction.InputState;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+import static espresso.boolFunction.cube.CubeEncoding.*;
+
+/**
+ * Append only storage of packed cubes that lives outside of the heap.
+ * Rows use the same layout as {@link CubeArray} (see {@link CubeEncoding})
+ * and are kept in first direct buffer, so first store with millions of cubes
+ * is first handful of objects for the garbage collector.<br/>
+ * <br/>
+ * The native memory is returned when the garbage collector collects the buffer.<br/>
+ * <br/>
+ * {@link OffHeapCubeStore#getColumnIndex()} builds its index on the heap and the index
+ * takes about as much memory as the rows of the store. Expand, Irredundant and Reduce
+ * read the rows of first large store directly and never ask for it.
+ */
+public final class OffHeapCubeStore implements CubeRows {
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final int inputLength;
+  private final int outputLength;
+  private final int stride;
+
+  private LongBuffer buffer;
+  private int capacity;
+  private int size;
+
+  /**
+   * Column index built for the current rows, null if it has to be rebuilt.
+   */
+  private ColumnIndex columnIndex;
+
+  public OffHeapCubeStore(int inputCount, int outputCount) {
+    this(inputCount, outputCount, INITIAL_CAPACITY);
+  }
+
+  public OffHeapCubeStore(int inputCount, int outputCount, int capacity) {
+    if (inputCount < 0 || outputCount < 0 || capacity < 0) {
+      throw new IllegalArgumentException("Counts and capacity can't be negative.");
+    }
+
+    this.inputLength = inputCount;
+    this.outputLength = outputCount;
+    this.stride = inputWordCount(inputCount) + outputWordCount(outputCount);
+    this.capacity = Math.max(capacity, 1);
+    if ((long) this.capacity * stride * Long.BYTES > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Store can't be larger than 2GB.");
+    }
+    this.buffer = allocate(this.capacity * stride);
+  }
+
+  private static LongBuffer allocate(int words) {
+    return ByteBuffer.allocateDirect(words * Long.BYTES)
+        .order(ByteOrder.nativeOrder())
+        .asLongBuffer();
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  private void ensureCapacity(int rows) {
+    if (rows <= capacity) {
+      return;
+    }
+
+    int newCapacity = Math.max(rows, capacity + (capacity >> 1));
+    if ((long) newCapacity * stride * Long.BYTES > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Store can't grow beyond 2GB.");
+    }
+
+    LongBuffer newBuffer = allocate(newCapacity * stride);
+    LongBuffer rowsSoFar = buffer.duplicate();
+    rowsSoFar.position(0);
+    rowsSoFar.limit(size * stride);
+    newBuffer.put(rowsSoFar);
+
+    buffer = newBuffer;
+    capacity = newCapacity;
+  }
+
+  /**
+   * Appends first packed row.
+   *
+   * @param words  array with the row.
+   * @param offset first word of the row.
+   */
+  public void addRow(long[] words, int offset) {
+    ensureCapacity(size + 1);
+
+    int base = size * stride;
+    for (int i = 0; i < stride; i++) {
+      buffer.put(base + i, words[offset + i]);
+    }
+
+    size++;
+    columnIndex = null;
+  }
+
+  /**
+   * Appends first copy of the given cube.
+   *
+   * @param cube {@link Cube}
+   */
+  public void add(Cube cube) {
+    if (cube.inputLength() != inputLength || cube.outputLength() != outputLength) {
+      throw new IllegalArgumentException(
+          "Given cube must have the same number of inputs and outputs as the cubes in the store."
+      );
+    }
+
+    addRow(cube.words(), cube.offset());
+  }
+
+  /**
+   * Appends all rows of the given rows.
+   *
+   * @param rows {@link CubeRows}
+   */
+  public void addAll(CubeRows rows) {
+    if (rows.inputCount() != inputLength || rows.outputCount() != outputLength) {
+      throw new IllegalArgumentException(
+          "Given rows must have the same number of inputs and outputs as the cubes in the store."
+      );
+    }
+
+    int count = rows.size();
+    ensureCapacity(size + count);
+
+    long[] row = new long[stride];
+    for (int i = 0; i < count; i++) {
+      rows.readRow(i, row, 0);
+      addRow(row, 0);
+    }
+  }
+
+  /**
+   * Method materializes first copy of the cube at the given index.
+   * Prefer {@link OffHeapCubeStore#readRow(int, long[], int)} in loops.
+   *
+   * @param index int
+   * @return new {@link Cube}.
+   */
+  public Cube get(int index) {
+    long[] row = new long[stride];
+    readRow(index, row, 0);
+    return new Cube(row, inputLength, outputLength);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int inputCount() {
+    return inputLength;
+  }
+
+  @Override
+  public int outputCount() {
+    return outputLength;
+  }
+
+  @Override
+  public void readRow(int index, long[] destination, int offset) {
+    checkIndex(index);
+
+    int base = index * stride;
+    for (int i = 0; i < stride; i++) {
+      destination[offset + i] = buffer.get(base + i);
+    }
+  }
+
+  @Override
+  public InputState getInputState(int index, int column) {
+    checkIndex(index);
+    if (column < 0 || column >= inputLength) {
+      throw new IndexOutOfBoundsException("Column: " + column + ", Input count: " + inputLength);
+    }
+
+    long word = buffer.get(index * stride + inputWordIndex(column));
+    return decode(word >>> inputShift(column));
+  }
+
+  /**
+   * The index is built on the heap over all rows of the store on first call after
+   * first change, see {@link OffHeapCubeStore}.
+   */
+  @Override
+  public ColumnIndex getColumnIndex() {
+    if (columnIndex == null) {
+      ColumnIndex index = new ColumnIndex(inputLength, outputLength, size);
+      long[] row = new long[stride];
+
+      for (int i = 0; i < size; i++) {
+        readRow(i, row, 0);
+        index.addRow(i, row, 0, inputLength, outputLength);
+      }
+      columnIndex = index;
+    }
+
+    return columnIndex;
+  }
+}
@@ -0,0 +1,115 @@
+package espresso.boolFunction.cube;
+
+import java.util.Arrays;
+
+/**
+ * Hash table over the slots of first {@link CubeArray}. Slots with the same
+ * bucket are chained through {@link RowHashIndex#next}, hashes are kept per slot
+ * so the table can grow without reading rows again.<br/>
+ * The index only knows hashes. Callers compare rows to filter collisions.
+ */
+final class RowHashIndex {
+  private static final int NONE = -1;
+
+  private int[] heads;
+  private int[] next;
+  private int[] hashes;
+  private int count;
+
+  RowHashIndex(int slotCapacity) {
+    heads = new int[tableSize(slotCapacity)];
+    Arrays.fill(heads, NONE);
+    next = new int[slotCapacity];
+    hashes = new int[slotCapacity];
+  }
+
+  private static int tableSize(int rows) {
+    int size = 16;
+    while (size * 3 / 4 < rows) {
+      size <<= 1;
+    }
+
+    return size;
+  }
+
+  private int bucket(int hash) {
+    return hash & (heads.length - 1);
+  }
+
+  /**
+   * Called by the owner when its slot capacity grows.
+   */
+  void ensureSlots(int slotCapacity) {
+    if (slotCapacity > next.length) {
+      next = Arrays.copyOf(next, slotCapacity);
+      hashes = Arrays.copyOf(hashes, slotCapacity);
+    }
+  }
+
+  void insert(int slot, int hash) {
+    if (++count > heads.length * 3 / 4) {
+      rehash(heads.length << 1);
+    }
+
+    int bucket = bucket(hash);
+    hashes[slot] = hash;
+    next[slot] = heads[bucket];
+    heads[bucket] = slot;
+  }
+
+  void remove(int slot) {
+    int bucket = bucket(hashes[slot]);
+
+    if (heads[bucket] == slot) {
+      heads[bucket] = next[slot];
+      count--;
+      return;
+    }
+
+    for (int s = heads[bucket]; s != NONE; s = next[s]) {
+      if (next[s] == slot) {
+        next[s] = next[slot];
+        count--;
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return first slot in the chain of the given hash or -1.
+   */
+  int first(int hash) {
+    return skip(heads[bucket(hash)], hash);
+  }
+
+  /**
+   * @return following slot with the same hash or -1.
+   */
+  int next(int slot) {
+    return skip(next[slot], hashes[slot]);
+  }
+
+  private int skip(int slot, int hash) {
+    while (slot != NONE && hashes[slot] != hash) {
+      slot = next[slot];
+    }
+
+    return slot;
+  }
+
+  private void rehash(int size) {
+    int[] oldHeads = heads;
+    heads = new int[size];
+    Arrays.fill(heads, NONE);
+
+    for (int head : oldHeads) {
+      for (int slot = head; slot != NONE; ) {
+        int following = next[slot];
+        int bucket = bucket(hashes[slot]);
+        next[slot] = heads[bucket];
+        heads[bucket] = slot;
+        slot = following;
+      }
+    }
+  }
+}
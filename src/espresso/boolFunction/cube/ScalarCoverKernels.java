@@ -0,0 +1,63 @@
+package espresso.boolFunction.cube;
+
+import static espresso.boolFunction.cube.CubeEncoding.*;
+
+/**
+ * Row by row implementation of {@link CoverKernels}.
+ */
+final class ScalarCoverKernels extends CoverKernels {
+
+  @Override
+  public long[] intersectingRows(CubeArray rows, long[] cube, int offset) {
+    long[] retValue = newRowSet(rows);
+    long[] buffer = rows.buffer();
+
+    for (int i = 0; i < rows.size(); i++) {
+      if (intersectsRow(buffer, rows.rowOffset(i), cube, offset, rows.getInputLength(), rows.getOutputLength())) {
+        retValue[i >>> 6] |= 1L << i;
+      }
+    }
+
+    return retValue;
+  }
+
+  @Override
+  public long[] containedRows(CubeArray rows, long[] cube, int offset) {
+    long[] retValue = newRowSet(rows);
+    long[] buffer = rows.buffer();
+
+    for (int i = 0; i < rows.size(); i++) {
+      if (containsRow(cube, offset, buffer, rows.rowOffset(i), rows.stride())) {
+        retValue[i >>> 6] |= 1L << i;
+      }
+    }
+
+    return retValue;
+  }
+
+  @Override
+  public long[] containingRows(CubeArray rows, long[] cube, int offset) {
+    long[] retValue = newRowSet(rows);
+    long[] buffer = rows.buffer();
+
+    for (int i = 0; i < rows.size(); i++) {
+      if (containsRow(buffer, rows.rowOffset(i), cube, offset, rows.stride())) {
+        retValue[i >>> 6] |= 1L << i;
+      }
+    }
+
+    return retValue;
+  }
+
+  @Override
+  public int[] inputDistances(CubeArray rows, long[] cube, int offset) {
+    int[] retValue = new int[rows.size()];
+    long[] buffer = rows.buffer();
+
+    for (int i = 0; i < rows.size(); i++) {
+      retValue[i] = inputDistanceRow(buffer, rows.rowOffset(i), cube, offset, rows.getInputLength());
+    }
+
+    return retValue;
+  }
+}
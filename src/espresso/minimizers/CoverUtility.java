@@ -2,9 +2,11 @@ package espresso.minimizers;
 
 import espresso.boolFunction.Cover;
 import espresso.boolFunction.cube.Cube;
+import espresso.boolFunction.cube.CubePool;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 final public class CoverUtility {
   private CoverUtility() {
@@ -25,28 +27,22 @@ final public class CoverUtility {
    * @return {@link Cover} before performing Shannon expansion on it.
    */
   public static Cover mergeWithContainment(Cover h1, Cover h2, int splitIndex, boolean removeContainment) {
-    Cover h3 = new Cover(h1.inputCount(), h1.outputCount());
-    Cube x = h1.generateVariableCube(splitIndex);
-
-    for (Iterator<Cube> iter1 = h1.iterator(); iter1.hasNext(); ) {
-      Cube c1 = iter1.next();
-      boolean deleteDone = false;
-      for (Iterator<Cube> iter2 = h2.iterator(); iter2.hasNext(); ) {
-        Cube c2 = iter2.next();
+    return mergeWithContainment(h1, h2, splitIndex, removeContainment, null);
+  }
 
-        if (c1.equals(c2)) {
-          if (!deleteDone) {
-            iter1.remove();
-            deleteDone = true;
-          }
-          iter2.remove();
-          h3.add(c2);
-        }
-      }
-    }
+  /**
+   * Same as {@link CoverUtility#mergeWithContainment(Cover, Cover, int, boolean)}, but the
+   * splitting variable cube and its complement are taken from the given pool.
+   *
+   * @param pool {@link CubePool} or null for no interning.
+   */
+  public static Cover mergeWithContainment(Cover h1, Cover h2, int splitIndex, boolean removeContainment,
+                                           CubePool pool) {
+    Cover h3 = extractIdenticalCubes(h1, h2);
+    Cube x = h1.generateVariableCube(splitIndex, pool);
 
     if (!removeContainment)
-      return x.complement().intersect(h1).
+      return x.complement(pool).intersect(h1).
           union(Cover.of(x).intersect(h2)).
           union(h3);
 
@@ -66,11 +62,36 @@ final public class CoverUtility {
       }
     }
 
-    return x.complement().intersect(h1).
+    return x.complement(pool).intersect(h1).
         union(Cover.of(x).intersect(h2)).
         union(h3);
   }
 
+  /**
+   * First step of {@link CoverUtility#mergeWithContainment(Cover, Cover, int, boolean)}.
+   * Cubes that are in both subcovers are removed from both of them.
+   *
+   * @param h1 {@link Cover} subcover obtained by the Shannon expansion.
+   * @param h2 {@link Cover} subcover obtained by the Shannon expansion.
+   * @return {@link Cover} of the removed cubes.
+   */
+  public static Cover extractIdenticalCubes(Cover h1, Cover h2) {
+    Cover h3 = new Cover(h1.inputCount(), h1.outputCount());
+
+//    Identical cubes are paired through the hash index of h2.
+    for (Iterator<Cube> iter1 = h1.iterator(); iter1.hasNext(); ) {
+      Cube c1 = iter1.next();
+      List<Cube> identicalCubes = h2.removeEqual(c1);
+
+      if (!identicalCubes.isEmpty()) {
+        iter1.remove();
+        h3.addAll(identicalCubes);
+      }
+    }
+
+    return h3;
+  }
+
   /**
    * Method removes any {@link Cube}s completely contained in first single another {@link Cube}.
    * Warning: Use this on functions with first small number of cubes or unate functions
@@ -82,9 +103,14 @@ final public class CoverUtility {
     ArrayList<Cube> deleteSet = new ArrayList<>();
 
     for (Cube c1 : cover) {
-      for (Cube c2 : cover) {
-        if (!c1.equals(c2) && c1.generalContain(c2)) {
-          deleteSet.add(c2);
+      long[] containedRows = cover.containedRows(c1);
+
+      for (int w = 0; w < containedRows.length; w++) {
+        for (long bits = containedRows[w]; bits != 0; bits &= bits - 1) {
+          Cube c2 = cover.get((w << 6) + Long.numberOfTrailingZeros(bits));
+          if (!c1.equals(c2)) {
+            deleteSet.add(c2);
+          }
         }
       }
     }
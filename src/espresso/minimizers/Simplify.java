@@ -2,6 +2,9 @@ package espresso.minimizers;
 
 import espresso.boolFunction.Cover;
 import espresso.minimizers.minimizerInterface.BooleanOnSetMinimizer;
+import espresso.urpAlgorithms.ShannonEngine;
+
+import java.util.List;
 
 final public class Simplify implements BooleanOnSetMinimizer {
   private static Simplify instance = new Simplify();
@@ -15,47 +18,41 @@ final public class Simplify implements BooleanOnSetMinimizer {
 
   @Override
   public Cover minimize(Cover cover) {
-    if (cover.size() == 0) {
-      return cover;
-    }
-
-    if (cover.isUnate()) {
-      CoverUtility.singleCubeContainmentCleanup(cover);
-      return cover;
-    }
-
-    int splitIndex = cover.binateSelect();
-    Cover[] cofactors = cover.shannonCofactors(splitIndex);
-
-    Cover newCover = CoverUtility.mergeWithContainment(
-        minimize(cofactors[0]),
-        minimize(cofactors[1]),
-        splitIndex,
-        true
-    );
-
-    //region Debug
-//    System.out.println("Splitting variable:");
-//    System.out.println(Cover.of(splitCube));
-//    System.out.println("Splitting variable inputComplement:");
-//    System.out.println(Cover.of(splitCube.copy().inputComplement()));
-//    System.out.println("Cofactor[0]:");
-//    System.out.println(cofactors[0].toString());
-//    System.out.println("Cofactor[1]");
-//    System.out.println(cofactors[1].toString());
-//    System.out.println("Intersect1:");
-//    System.out.println(intersect1.toString());
-//    System.out.println("Intersect2:");
-//    System.out.println(intersect2.toString());
-//    System.out.println("New cover:");
-//    System.out.println(newCover.toString());
-    //    endregion
-
-//    New cover must not be empty.
-    if (newCover.size() != 0 && newCover.size() < cover.size()) {
-      return newCover;
-    } else {
-      return cover;
-    }
+    return ShannonEngine.expand(cover, cover.inputCount(), new ShannonEngine.Expansion<Cover, Cover>() {
+      @Override
+      public Cover expand(Cover node, ShannonEngine.Frame<Cover, Cover> frame) {
+        if (node.size() == 0) {
+          return node;
+        }
+
+        if (node.isUnate()) {
+          CoverUtility.singleCubeContainmentCleanup(node);
+          return node;
+        }
+
+        int splitIndex = node.binateSelect();
+        Cover[] cofactors = node.shannonCofactors(splitIndex);
+        frame.split(splitIndex, cofactors[0], cofactors[1]);
+
+        return null;
+      }
+
+      @Override
+      public Cover merge(ShannonEngine.Frame<Cover, Cover> frame, List<Cover> results) {
+        Cover newCover = CoverUtility.mergeWithContainment(
+            results.get(0),
+            results.get(1),
+            frame.getVariable(),
+            true
+        );
+
+//        New cover must not be empty.
+        if (newCover.size() != 0 && newCover.size() < frame.getNode().size()) {
+          return newCover;
+        } else {
+          return frame.getNode();
+        }
+      }
+    });
   }
 }
@@ -4,12 +4,24 @@ package espresso.minimizers.espressoMinimizer;
 import espresso.boolFunction.Cover;
 import espresso.boolFunction.cube.Cube;
 import espresso.minimizers.espressoMinimizer.expand.Expand;
+import espresso.minimizers.espressoMinimizer.expand.ParallelExpand;
 import espresso.minimizers.espressoMinimizer.irredundant.Irredundant;
 import espresso.minimizers.espressoMinimizer.reduce.Reduce;
 import espresso.minimizers.minimizerInterface.BooleanOnSetDontCareMinimizer;
 import espresso.minimizers.minimizerInterface.BooleanOnSetMinimizer;
+import espresso.urpAlgorithms.OffSetCache;
+import espresso.urpAlgorithms.ParallelComplement;
+import espresso.urpAlgorithms.ParallelTautology;
 
 public class SingleOutputEspressoMinimizer implements BooleanOnSetDontCareMinimizer, BooleanOnSetMinimizer {
+  /**
+   * Off-sets with more than this many cubes per cube of the on-set and the don't care set
+   * aren't built, cubes are expanded with tautology checks instead.
+   *
+   * @see Expand#expandCoverWithoutOffSet(Cover, Cover)
+   */
+  public static final int OFF_SET_BUDGET_FACTOR = 100;
+
   private static SingleOutputEspressoMinimizer instance = new SingleOutputEspressoMinimizer();
 
   public static SingleOutputEspressoMinimizer getInstance() {
@@ -31,8 +43,22 @@ public class SingleOutputEspressoMinimizer implements BooleanOnSetDontCareMinimi
       return new Cover(onSet);
     }
 
-    Cover offSet = onSet.complement(dontcareSet);
-    if (offSet.size() == 0) {
+    int budget = (int) Math.min(
+        Integer.MAX_VALUE, (long) OFF_SET_BUDGET_FACTOR * (onSet.size() + dontcareSet.size())
+    );
+    Cover offSet = OffSetCache.getInstance().complement(
+        onSet, dontcareSet, (f, d) -> ParallelComplement.getInstance().complement(f, d, budget)
+    );
+//    Off-set that an unbounded complement put into the cache can be over the budget.
+    if (offSet != null && offSet.size() > budget) {
+      offSet = null;
+    }
+    Cover onDontcareSet = offSet == null ? onSet.union(dontcareSet) : null;
+
+    boolean tautology = offSet == null
+        ? ParallelTautology.getInstance().singleOutputTautologyCheck(onDontcareSet)
+        : offSet.size() == 0;
+    if (tautology) {
 //      Given cover is tautology.
       return new Cover(new Cube(onSet.inputCount(), onSet.outputCount()));
     }
@@ -41,7 +67,9 @@ public class SingleOutputEspressoMinimizer implements BooleanOnSetDontCareMinimi
     Cover latestMinSet = new Cover(onSet);
     int killCount = 50;
     while (killCount > 0) {
-      Cover expandedOnSet = Expand.expandCover(currentOnSet, offSet);
+      Cover expandedOnSet = offSet == null
+          ? Expand.expandCoverWithoutOffSet(currentOnSet, onDontcareSet)
+          : ParallelExpand.getInstance().expandCover(currentOnSet, offSet);
       Cover irredundantSet = Irredundant.irredundantCover(expandedOnSet, dontcareSet);
 
       int irredundantSize = irredundantSet.size();
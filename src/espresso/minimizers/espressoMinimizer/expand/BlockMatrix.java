@@ -0,0 +1,66 @@
+package espresso.minimizers.espressoMinimizer.expand;
+
+import espresso.minimizers.espressoMinimizer.utils.BooleanMatrix;
+
+import java.util.Collection;
+
+/**
+ * Blocking matrix of first cube. Rows are the cubes of the off-set, columns are the
+ * input variables. An element is true if the variable is first literal of the cube
+ * and the off-set cube has the opposite literal, so raising the variable alone can't
+ * make the cube intersect that off-set cube.<br/>
+ * <br/>
+ * Indexes are the same as in {@link BooleanMatrix}.
+ *
+ * @see SingleOutputBlockMatrix
+ * @see SparseBlockMatrix
+ */
+public interface BlockMatrix {
+
+  int getRowCount();
+
+  int getColumnCount();
+
+  /**
+   * @see BooleanMatrix#nextRow(int)
+   */
+  int nextRow(int from);
+
+  /**
+   * @see BooleanMatrix#nextColumn(int)
+   */
+  int nextColumn(int from);
+
+  /**
+   * @see BooleanMatrix#nextTrueColumn(int, int)
+   */
+  int nextTrueColumn(int row, int from);
+
+  int getTrueRowCount(int row, boolean countIgnoredValues);
+
+  /**
+   * @see BooleanMatrix#getTrueColumnCount(int, boolean)
+   */
+  int getTrueColumnCount(int column, boolean countIgnoredValues);
+
+  boolean getElement(int row, int column);
+
+  boolean isColumnIgnored(int column);
+
+  void addIgnoredColumn(int column);
+
+  void addIgnoredColumns(Collection<Integer> columns);
+
+  /**
+   * @see BooleanMatrix#addIgnoredTrueRows(int)
+   */
+  void addIgnoredTrueRows(int column);
+
+  boolean isFullyIgnored();
+
+  /**
+   * @return {@link BooleanMatrix} with the same elements and the same ignored rows
+   * and columns, for example for first column cover heuristic.
+   */
+  BooleanMatrix toBooleanMatrix();
+}
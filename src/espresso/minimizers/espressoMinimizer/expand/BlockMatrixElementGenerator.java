@@ -1,9 +1,10 @@
 package espresso.minimizers.espressoMinimizer.expand;
 
 
-import espresso.boolFunction.Cover;
 import espresso.boolFunction.InputState;
+import espresso.boolFunction.cube.ColumnIndex;
 import espresso.boolFunction.cube.Cube;
+import espresso.boolFunction.cube.CubeRows;
 import espresso.minimizers.espressoMinimizer.utils.MatrixElementGenerator;
 
 import static espresso.boolFunction.InputState.ONE;
@@ -11,10 +12,11 @@ import static espresso.boolFunction.InputState.ZERO;
 
 public class BlockMatrixElementGenerator implements MatrixElementGenerator {
 
-  private Cover cover;
+  private CubeRows cover;
   private Cube cube;
+  private ColumnIndex columns;
 
-  public BlockMatrixElementGenerator(Cover cover, Cube cube) {
+  public BlockMatrixElementGenerator(CubeRows cover, Cube cube) {
     //region Exceptions
     if (cover.size() == 0) {
       throw new IllegalArgumentException(
@@ -30,15 +32,15 @@ public class BlockMatrixElementGenerator implements MatrixElementGenerator {
 
     this.cover = cover;
     this.cube = cube;
+    this.columns = cover.getColumnIndex();
   }
 
   @Override
   public boolean generateElement(int rowIndex, int columnIndex) {
-    InputState coverInputState = cover.get(rowIndex).getInputState(columnIndex);
     InputState cubeInputState = cube.getInputState(columnIndex);
 
-    return cubeInputState == ONE && coverInputState == ZERO ||
-        cubeInputState == ZERO && coverInputState == ONE;
+    return cubeInputState == ONE && columns.hasZero(rowIndex, columnIndex) ||
+        cubeInputState == ZERO && columns.hasOne(rowIndex, columnIndex);
   }
 
   @Override
@@ -3,6 +3,7 @@ package espresso.minimizers.espressoMinimizer.expand;
 
 import espresso.boolFunction.Cover;
 import espresso.boolFunction.InputState;
+import espresso.boolFunction.cube.ColumnIndex;
 import espresso.boolFunction.cube.Cube;
 import espresso.minimizers.espressoMinimizer.utils.MatrixElementGenerator;
 
@@ -13,6 +14,7 @@ public class CoverMatrixElementGenerator implements MatrixElementGenerator {
 
   private Cover cover;
   private Cube cube;
+  private ColumnIndex columns;
 
   public CoverMatrixElementGenerator(Cover cover, Cube cube) {
     //region Exceptions
@@ -30,15 +32,15 @@ public class CoverMatrixElementGenerator implements MatrixElementGenerator {
 
     this.cover = cover;
     this.cube = cube;
+    this.columns = cover.getColumnIndex();
   }
 
   @Override
   public boolean generateElement(int rowIndex, int columnIndex) {
-    InputState coverInputState = cover.get(rowIndex).getInputState(columnIndex);
     InputState cubeInputState = cube.getInputState(columnIndex);
 
-    return cubeInputState == ONE && coverInputState != ONE ||
-        cubeInputState == ZERO && coverInputState != ZERO;
+    return cubeInputState == ONE && !columns.hasOne(rowIndex, columnIndex) ||
+        cubeInputState == ZERO && !columns.hasZero(rowIndex, columnIndex);
   }
 
   @Override
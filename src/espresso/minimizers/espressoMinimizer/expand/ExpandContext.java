@@ -0,0 +1,348 @@
+package espresso.minimizers.espressoMinimizer.expand;
+
+import espresso.boolFunction.Cover;
+import espresso.boolFunction.cube.Cube;
+import espresso.boolFunction.cube.CubeRows;
+import espresso.minimizers.espressoMinimizer.minColCover.MaxCliqueHeuristic;
+import espresso.utils.Pair;
+
+import java.util.*;
+
+import static espresso.utils.Bitsets.*;
+
+/**
+ * State of the expansion of first cube: the lowering and raising sets and the blocking
+ * and covering matrices of the cube. Every call of {@link Expand} makes its own context,
+ * so concurrent expansions don't share anything. A context expands one cube at a
+ * time, {@link Expand#expandCover(Cover, CubeRows)} reuses it for all cubes of first cover.
+ */
+final class ExpandContext {
+  private final Set<Integer> loweringSet = new HashSet<>();
+  private final Set<Integer> raisingSet = new HashSet<>();
+
+  private BlockMatrix blockMatrix;
+  private SingleOutputCoverMatrix coverMatrix;
+
+  /**
+   * @return expanded cube and indexes of the cubes of the on-set that it covers.
+   * @see Expand#singleOutputCubeExpand(Cube, Cover, CubeRows)
+   */
+  Pair<Cube, List<Integer>> expand(Cube cube, Cover onSet, CubeRows offSet) {
+    loweringSet.clear();
+    raisingSet.clear();
+    blockMatrix = blockMatrix(offSet, cube);
+    coverMatrix = new SingleOutputCoverMatrix(onSet, cube);
+
+    try {
+      return expand(cube);
+    } finally {
+      blockMatrix = null;
+      coverMatrix = null;
+    }
+  }
+
+  private Pair<Cube, List<Integer>> expand(Cube cube) {
+    while (loweringSet.size() + raisingSet.size() < blockMatrix.getColumnCount() &&
+        !blockMatrix.isFullyIgnored() &&
+        !coverMatrix.isFullyIgnored()) {
+
+      List<Integer> essentialColumns = essentialColumns();
+      loweringSet.addAll(essentialColumns);
+
+      firstElimination(essentialColumns);
+
+      Set<Integer> maximumCoveringSet = maximumFeasibleCoveringSet();
+      if (maximumCoveringSet.size() == 0) {
+        int maxColumn = egProcedure();
+        if (maxColumn != -1) {
+          maximumCoveringSet.add(maxColumn);
+        }
+      }
+
+      List<Integer> inessentialColumns = inessentialColumns();
+      raisingSet.addAll(inessentialColumns);
+      raisingSet.addAll(maximumCoveringSet);
+
+      List<Integer> removeColumns = new ArrayList<>(inessentialColumns);
+      removeColumns.addAll(maximumCoveringSet);
+      secondElimination(removeColumns);
+    }
+
+    if (!blockMatrix.isFullyIgnored()) {
+      loweringSet.addAll(
+          MaxCliqueHeuristic.getInstance().calculateMinimumColumnCover(blockMatrix.toBooleanMatrix()));
+    }
+
+    List<Integer> containedRows = rowsContainedByLoweringSet();
+    Cube expandedCube = loweringSetToCube(cube);
+
+    return new Pair<>(expandedCube, containedRows);
+  }
+
+  private static BlockMatrix blockMatrix(CubeRows offSet, Cube cube) {
+    if (offSet.size() >= Expand.MIN_SPARSE_OFF_SET_SIZE) {
+      return new SparseBlockMatrix(offSet, cube);
+    }
+
+    return new SingleOutputBlockMatrix(offSet, cube);
+  }
+
+  private Cube loweringSetToCube(Cube priorExpansionCube) {
+    Cube expandedCube = new Cube(priorExpansionCube.inputLength(), priorExpansionCube.outputLength());
+    expandedCube.setOutput(priorExpansionCube);
+
+    for (Integer index : loweringSet) {
+      expandedCube.setInput(priorExpansionCube.getInputState(index), index);
+    }
+
+    return expandedCube;
+  }
+
+  private List<Integer> rowsContainedByLoweringSet() {
+    List<Integer> retValue = new ArrayList<>();
+
+    for (int i = 0; i < coverMatrix.getRowCount(); i++) {
+      int rowSum = 0;
+      for (int j = 0; j < coverMatrix.getColumnCount(); j++) {
+        if (loweringSet.contains(j)) {
+          rowSum += (coverMatrix.getElement(i, j) ? 1 : 0);
+        }
+      }
+
+      if (rowSum == 0) {
+        retValue.add(i);
+      }
+    }
+
+    return retValue;
+  }
+
+  /**
+   * @return column of the cover matrix with the most true elements that isn't the last
+   * free column of first row of the blocking matrix, -1 if there is no such column.
+   */
+  private int egProcedure() {
+    return coverMatrix.maxTrueCountColumnIndex(false, new HashSet<>(essentialColumns()));
+  }
+
+  /**
+   * @return feasible covering set that contains the most other feasible covering sets.
+   */
+  private Set<Integer> maximumFeasibleCoveringSet() {
+    List<ColumnSet> coveringSets = computeFeasibleCoveringSets();
+
+    Set<Integer> retValue = new HashSet<>();
+    if (coveringSets.size() == 0) {
+      return retValue;
+    }
+
+//    Sets that contain the column, by column. First set isn't contained by S if it
+//    contains first column that isn't in S.
+    int setCount = coveringSets.size();
+    long[][] containingSets = new long[coverMatrix.getColumnCount()][];
+    for (int k = 0; k < setCount; k++) {
+      long[] columns = coveringSets.get(k).columns;
+      for (int j = nextSetBit(columns, null, 0, containingSets.length);
+           j >= 0;
+           j = nextSetBit(columns, null, j + 1, containingSets.length)) {
+        if (containingSets[j] == null) {
+          containingSets[j] = new long[(setCount + 63) >>> 6];
+        }
+        set(containingSets[j], k);
+      }
+    }
+
+    ColumnSet maxCoveringSet = coveringSets.get(0);
+    int maxContainmentCount = 0;
+    long[] notContainedSets = new long[(setCount + 63) >>> 6];
+
+    for (ColumnSet currentSet : coveringSets) {
+      Arrays.fill(notContainedSets, 0L);
+      for (int j = 0; j < containingSets.length; j++) {
+        if (containingSets[j] == null || get(currentSet.columns, j)) continue;
+
+        for (int w = 0; w < notContainedSets.length; w++) {
+          notContainedSets[w] |= containingSets[j][w];
+        }
+      }
+
+      int containmentCount = setCount - count(notContainedSets, setCount) - 1;
+      if (containmentCount > maxContainmentCount) {
+        maxContainmentCount = containmentCount;
+        maxCoveringSet = currentSet;
+      }
+    }
+
+    for (int j = nextSetBit(maxCoveringSet.columns, null, 0, containingSets.length);
+         j >= 0;
+         j = nextSetBit(maxCoveringSet.columns, null, j + 1, containingSets.length)) {
+      retValue.add(j);
+    }
+
+    return retValue;
+  }
+
+  /**
+   * @return distinct feasible covering sets in the order of the rows of the cover matrix.
+   */
+  private List<ColumnSet> computeFeasibleCoveringSets() {
+    List<ColumnSet> retValue = new ArrayList<>();
+
+    int columnCount = coverMatrix.getColumnCount();
+    long[] excludedColumns = new long[(columnCount + 63) >>> 6];
+    for (int j : loweringSet) {
+      set(excludedColumns, j);
+    }
+    for (int j : raisingSet) {
+      set(excludedColumns, j);
+    }
+
+//    Free columns of the rows of the blocking matrix that the covering set has to leave
+//    blocked. Rows that are blocked by first column of the lowering set are always
+//    blocked.
+    List<long[]> blockingRows = new ArrayList<>();
+    List<Integer> freeColumnCounts = new ArrayList<>();
+    for (int i = blockMatrix.nextRow(0); i >= 0; i = blockMatrix.nextRow(i + 1)) {
+      long[] freeColumns = new long[excludedColumns.length];
+      int freeColumnCount = 0;
+      boolean lowered = false;
+
+      for (int j = blockMatrix.nextTrueColumn(i, 0);
+           j >= 0;
+           j = blockMatrix.nextTrueColumn(i, j + 1)) {
+        if (loweringSet.contains(j)) {
+          lowered = true;
+          break;
+        }
+        if (!raisingSet.contains(j)) {
+          set(freeColumns, j);
+          freeColumnCount++;
+        }
+      }
+
+      if (lowered) continue;
+      if (freeColumnCount == 0) {
+        return retValue;
+      }
+
+      blockingRows.add(freeColumns);
+      freeColumnCounts.add(freeColumnCount);
+    }
+
+    Set<ColumnSet> coveringSets = new HashSet<>();
+    for (int i = coverMatrix.nextRow(0); i >= 0; i = coverMatrix.nextRow(i + 1)) {
+      ColumnSet coveringSet = new ColumnSet(coverMatrix.computeCoveringSet(excludedColumns, i));
+      if (coveringSet.size != 0 &&
+          coveringSets.add(coveringSet) &&
+          isFeasiblyCovered(coveringSet, blockingRows, freeColumnCounts)
+          ) {
+        retValue.add(coveringSet);
+      }
+    }
+
+    return retValue;
+  }
+
+  /**
+   * Both matrices ignore the same columns, so first row of the blocking matrix stays
+   * blocked if the covering set doesn't contain all its free columns. Only rows with
+   * at most as many free columns as the covering set are compared.
+   */
+  private static boolean isFeasiblyCovered(
+      ColumnSet coveringSet,
+      List<long[]> blockingRows,
+      List<Integer> freeColumnCounts
+  ) {
+    for (int i = 0; i < blockingRows.size(); i++) {
+      if (freeColumnCounts.get(i) > coveringSet.size) continue;
+
+      long[] freeColumns = blockingRows.get(i);
+      boolean contained = true;
+      for (int w = 0; w < freeColumns.length && contained; w++) {
+        contained = (freeColumns[w] & ~coveringSet.columns[w]) == 0;
+      }
+
+      if (contained) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private List<Integer> essentialColumns() {
+    List<Integer> retValue = new ArrayList<>();
+
+    for (int i = blockMatrix.nextRow(0); i >= 0; i = blockMatrix.nextRow(i + 1)) {
+      if (blockMatrix.getTrueRowCount(i, false) == 1) {
+        retValue.add(blockMatrix.nextTrueColumn(i, 0));
+      }
+    }
+
+    return retValue;
+  }
+
+  /**
+   * @return columns without true elements in the rows of the blocking matrix that
+   * aren't ignored yet. Raising them can't make the cube intersect the off-set.
+   */
+  private List<Integer> inessentialColumns() {
+    List<Integer> retValue = new ArrayList<>();
+
+    for (int j = blockMatrix.nextColumn(0); j >= 0; j = blockMatrix.nextColumn(j + 1)) {
+      if (blockMatrix.getTrueColumnCount(j, false) == 0) {
+        retValue.add(j);
+      }
+    }
+
+    return retValue;
+  }
+
+  private void firstElimination(List<Integer> essentialColumns) {
+    for (int columnIndex : essentialColumns) {
+      if (!blockMatrix.isColumnIgnored(columnIndex)) {
+        blockMatrix.addIgnoredColumn(columnIndex);
+        blockMatrix.addIgnoredTrueRows(columnIndex);
+      }
+      if (!coverMatrix.isColumnIgnored(columnIndex)) {
+        coverMatrix.addIgnoredColumn(columnIndex);
+        coverMatrix.addIgnoredTrueRows(columnIndex);
+      }
+    }
+  }
+
+  //  When something is added to raisingSet.
+  private void secondElimination(List<Integer> columns) {
+    blockMatrix.addIgnoredColumns(columns);
+    coverMatrix.addIgnoredColumns(columns);
+
+    for (int i = coverMatrix.nextRow(0); i >= 0; i = coverMatrix.nextRow(i + 1)) {
+      if (coverMatrix.nextTrueColumn(i, 0) < 0) {
+        coverMatrix.addIgnoredRow(i);
+      }
+    }
+  }
+
+  /**
+   * Columns packed into longs, compared by value.
+   */
+  private static final class ColumnSet {
+    private final long[] columns;
+    private final int size;
+
+    ColumnSet(long[] columns) {
+      this.columns = columns;
+      this.size = count(columns, columns.length << 6);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return this == o || o instanceof ColumnSet && Arrays.equals(columns, ((ColumnSet) o).columns);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(columns);
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package espresso.minimizers.espressoMinimizer.expand;
+
+import espresso.boolFunction.Cover;
+import espresso.boolFunction.cube.Cube;
+import espresso.boolFunction.cube.CubeRows;
+import espresso.utils.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Expansion that expands several cubes of the on-set at the same time
+ * ({@link Expand#expandCover(Cover, CubeRows)}). The result is the same as the result
+ * of the sequential algorithm.<br/>
+ * <br/>
+ * The expansion of first cube depends only on the cube, the on-set and the off-set,
+ * the sequential algorithm just skips cubes that an earlier prime covers. So the next
+ * {@link ParallelExpand#windowSize} cubes that aren't covered yet are expanded
+ * concurrently, each with its own {@link ExpandContext}, and the primes are then
+ * committed in the original order. The speculative prime of a cube that an earlier
+ * prime of the same window covers is dropped, even if its expansion threw first
+ * runtime exception. Covers with fewer than {@link ParallelExpand#minParallelCubes}
+ * cubes are expanded sequentially.
+ */
+public final class ParallelExpand {
+  public static final int DEFAULT_WINDOW_SIZE = 16;
+  public static final int DEFAULT_MIN_PARALLEL_CUBES = 32;
+
+  private static final ParallelExpand instance = new ParallelExpand(
+      ForkJoinPool.commonPool(), DEFAULT_WINDOW_SIZE, DEFAULT_MIN_PARALLEL_CUBES
+  );
+
+  private final ForkJoinPool pool;
+  private final int windowSize;
+  private final int minParallelCubes;
+
+  /**
+   * Expansion on the common pool with the default thresholds.
+   */
+  public static ParallelExpand getInstance() {
+    return instance;
+  }
+
+  public ParallelExpand(ForkJoinPool pool, int windowSize, int minParallelCubes) {
+    if (pool == null) {
+      throw new IllegalArgumentException("Pool can't be null.");
+    }
+    if (windowSize < 1 || minParallelCubes < 1) {
+      throw new IllegalArgumentException("Thresholds must be positive.");
+    }
+
+    this.pool = pool;
+    this.windowSize = windowSize;
+    this.minParallelCubes = minParallelCubes;
+  }
+
+  /**
+   * @see Expand#expandCover(Cover, CubeRows)
+   */
+  public Cover expandCover(Cover onSet, CubeRows offSet) {
+    if (onSet.size() < minParallelCubes || windowSize == 1) {
+      return Expand.expandCover(onSet, offSet);
+    }
+
+    Cover retValue = new Cover(onSet.inputCount(), onSet.outputCount());
+    Cover sortedCover = Expand.sortedCover(onSet);
+
+//    Indexes and views are built here, the tasks only read them. Large off-sets
+//    are read row by row by SparseBlockMatrix and don't need an index.
+    sortedCover.getColumnIndex();
+    if (offSet.size() < Expand.MIN_SPARSE_OFF_SET_SIZE) {
+      offSet.getColumnIndex();
+    }
+
+    boolean[] removedCubes = new boolean[sortedCover.size()];
+    List<CubeExpansion> window = new ArrayList<>(windowSize);
+    int next = 0;
+    while (next < sortedCover.size()) {
+      window.clear();
+      for (; next < sortedCover.size() && window.size() < windowSize; next++) {
+        if (!removedCubes[next]) {
+          window.add(new CubeExpansion(next, sortedCover.get(next), sortedCover, offSet));
+        }
+      }
+
+      invokeAll(window);
+
+      for (CubeExpansion expansion : window) {
+        if (removedCubes[expansion.index]) continue;
+
+        Pair<Cube, List<Integer>> pair = expansion.result();
+        for (int i : pair.second) {
+          removedCubes[i] = true;
+        }
+        retValue.add(pair.first);
+      }
+    }
+
+    return retValue;
+  }
+
+  private void invokeAll(List<CubeExpansion> window) {
+    if (ForkJoinTask.getPool() == pool) {
+      ForkJoinTask.invokeAll(window);
+      return;
+    }
+
+    pool.invoke(new RecursiveAction() {
+      @Override
+      protected void compute() {
+        ForkJoinTask.invokeAll(window);
+      }
+    });
+  }
+
+  private static final class CubeExpansion extends RecursiveTask<Pair<Cube, List<Integer>>> {
+    private static final long serialVersionUID = 1L;
+
+    private final int index;
+    private final Cube cube;
+    private final Cover onSet;
+    private final CubeRows offSet;
+
+    /**
+     * Failure of the expansion. It's thrown only if the prime is committed, the
+     * sequential algorithm never expands cubes that are covered.
+     */
+    private RuntimeException exception;
+
+    CubeExpansion(int index, Cube cube, Cover onSet, CubeRows offSet) {
+      this.index = index;
+      this.cube = cube;
+      this.onSet = onSet;
+      this.offSet = offSet;
+    }
+
+    @Override
+    protected Pair<Cube, List<Integer>> compute() {
+      try {
+        return new ExpandContext().expand(cube, onSet, offSet);
+      } catch (RuntimeException e) {
+        exception = e;
+        return null;
+      }
+    }
+
+    Pair<Cube, List<Integer>> result() {
+      if (exception != null) {
+        throw exception;
+      }
+
+      return getRawResult();
+    }
+  }
+}
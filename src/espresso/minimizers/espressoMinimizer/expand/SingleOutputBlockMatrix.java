@@ -1,12 +1,17 @@
 package espresso.minimizers.espressoMinimizer.expand;
 
-import espresso.boolFunction.Cover;
 import espresso.boolFunction.cube.Cube;
+import espresso.boolFunction.cube.CubeRows;
 import espresso.minimizers.espressoMinimizer.utils.BooleanMatrix;
 
-public class SingleOutputBlockMatrix extends BooleanMatrix {
+public class SingleOutputBlockMatrix extends BooleanMatrix implements BlockMatrix {
 
-  public SingleOutputBlockMatrix(Cover cover, Cube cube) {
+  public SingleOutputBlockMatrix(CubeRows cover, Cube cube) {
     super(new BlockMatrixElementGenerator(cover, cube));
   }
+
+  @Override
+  public BooleanMatrix toBooleanMatrix() {
+    return this;
+  }
 }
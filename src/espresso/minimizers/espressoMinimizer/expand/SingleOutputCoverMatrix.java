@@ -4,9 +4,10 @@ import espresso.boolFunction.Cover;
 import espresso.boolFunction.cube.Cube;
 import espresso.minimizers.espressoMinimizer.utils.BooleanMatrix;
 
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.Collection;
+
+import static espresso.utils.Bitsets.get;
+import static espresso.utils.Bitsets.set;
 
 public class SingleOutputCoverMatrix extends BooleanMatrix {
 
@@ -14,30 +15,35 @@ public class SingleOutputCoverMatrix extends BooleanMatrix {
     super(new CoverMatrixElementGenerator(cover, cube));
   }
 
-  public Set<Integer> computeCoveringSet(
-      Set<Integer> loweringSet,
-      Set<Integer> raisingSet,
-      int rowIndex
-  ) {
-    Set<Integer> coveringSet = new HashSet<>();
-
-    for (Iterator<Integer> columnIter = ignoreColumnsIterator(); columnIter.hasNext(); ) {
-      int j = columnIter.next();
-
-      if (!loweringSet.contains(j) && !raisingSet.contains(j) && getElement(rowIndex, j)) {
-        coveringSet.add(j);
+  /**
+   * @param excludedColumns columns that are left out, packed the same way as the
+   *                        rows of {@link BooleanMatrix}.
+   * @param rowIndex        index of the row.
+   * @return true columns of the row that aren't ignored or excluded.
+   */
+  public long[] computeCoveringSet(long[] excludedColumns, int rowIndex) {
+    long[] coveringSet = new long[excludedColumns.length];
+
+    for (int j = nextTrueColumn(rowIndex, 0); j >= 0; j = nextTrueColumn(rowIndex, j + 1)) {
+      if (!get(excludedColumns, j)) {
+        set(coveringSet, j);
       }
     }
 
     return coveringSet;
   }
 
-  public int maxTrueCountColumnIndex(boolean countIgnoredValues) {
+  /**
+   * @param countIgnoredValues whether ignored rows and columns are counted.
+   * @param excludedColumns    columns that can't be returned.
+   * @return column with the most true elements, -1 if there is no such column.
+   */
+  public int maxTrueCountColumnIndex(boolean countIgnoredValues, Collection<Integer> excludedColumns) {
     int maxColumnIndex = -1;
     int maxTrueCount = -1;
 
     for (int j = 0; j < getColumnCount(); j++) {
-      if (!countIgnoredValues && isColumnIgnored(j)) continue;
+      if (!countIgnoredValues && isColumnIgnored(j) || excludedColumns.contains(j)) continue;
 
       if (getTrueColumnCount(j, countIgnoredValues) > maxTrueCount) {
         maxColumnIndex = j;
@@ -0,0 +1,296 @@
+package espresso.minimizers.espressoMinimizer.expand;
+
+import espresso.boolFunction.InputState;
+import espresso.boolFunction.cube.ColumnIndex;
+import espresso.boolFunction.cube.Cube;
+import espresso.boolFunction.cube.CubeRows;
+import espresso.boolFunction.cube.OffHeapCubeStore;
+import espresso.minimizers.espressoMinimizer.utils.BooleanMatrix;
+import espresso.minimizers.espressoMinimizer.utils.MatrixElementGenerator;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static espresso.boolFunction.cube.CubeEncoding.*;
+import static espresso.utils.Bitsets.*;
+
+/**
+ * {@link BlockMatrix} for large off-sets. Columns are built in one pass over the packed
+ * rows of the off-set and only for the literals of the cube, the off-set doesn't need
+ * first {@link ColumnIndex}, so an {@link OffHeapCubeStore} isn't indexed on the heap.
+ * Rows are computed only when first not ignored row is scanned and they keep only the
+ * indexes of their true columns. Most rows of first large off-set are ignored after the
+ * first elimination of essential columns, they are never computed.<br/>
+ * <br/>
+ * Elements are the same as in {@link SingleOutputBlockMatrix}.
+ */
+public class SparseBlockMatrix implements BlockMatrix {
+  private static final int[] NO_COLUMNS = new int[0];
+
+  private final CubeRows cover;
+  private final int rowCount;
+  private final int columnCount;
+
+  /**
+   * Low bit of every {@link InputState#ONE} and {@link InputState#ZERO} field of the cube.
+   */
+  private final long[] cubeOnes;
+  private final long[] cubeZeros;
+
+  /**
+   * True rows of every column, null for columns that aren't literals of the cube.
+   */
+  private final long[][] columns;
+  private final int[] trueColumnCount;
+
+  /**
+   * True columns of every computed row in ascending order.
+   */
+  private final int[][] rows;
+  private final long[] buffer;
+
+  private final long[] ignoredRows;
+  private final long[] ignoredColumns;
+  private int ignoredRowCount;
+  private int ignoredColumnCount;
+
+  public SparseBlockMatrix(CubeRows cover, Cube cube) {
+    //region Exceptions
+    if (cover.size() == 0) {
+      throw new IllegalArgumentException(
+          "Cover can't be empty."
+      );
+    }
+    if (cover.inputCount() != cube.inputLength()) {
+      throw new IllegalArgumentException(
+          "Input counts for cover and cube need to be equal."
+      );
+    }
+    //endregion
+
+    this.cover = cover;
+    this.rowCount = cover.size();
+    this.columnCount = cube.inputLength();
+
+    int inputWords = inputWordCount(columnCount);
+    cubeOnes = new long[inputWords];
+    cubeZeros = new long[inputWords];
+    for (int w = 0; w < inputWords; w++) {
+      cubeOnes[w] = oneFields(cube.getInputWord(w));
+      cubeZeros[w] = zeroFields(cube.getInputWord(w));
+    }
+
+    columns = new long[columnCount][];
+    trueColumnCount = new int[columnCount];
+    for (int j = 0; j < columnCount; j++) {
+      InputState state = cube.getInputState(j);
+      if (state == InputState.ONE || state == InputState.ZERO) {
+        columns[j] = new long[(rowCount + 63) >>> 6];
+      }
+    }
+
+    buffer = new long[inputWords + outputWordCount(cover.outputCount())];
+    for (int i = 0; i < rowCount; i++) {
+      cover.readRow(i, buffer, 0);
+
+      for (int w = 0; w < inputWords; w++) {
+        for (long fields = blockingFields(w); fields != 0; fields &= fields - 1) {
+          int j = w * INPUTS_PER_WORD + (Long.numberOfTrailingZeros(fields) >>> 1);
+          set(columns[j], i);
+          trueColumnCount[j]++;
+        }
+      }
+    }
+
+    rows = new int[rowCount][];
+    ignoredRows = new long[(rowCount + 63) >>> 6];
+    ignoredColumns = new long[(columnCount + 63) >>> 6];
+  }
+
+  /**
+   * @return true columns of the row.
+   */
+  private int[] row(int row) {
+    int[] retValue = rows[row];
+    if (retValue != null) {
+      return retValue;
+    }
+
+    cover.readRow(row, buffer, 0);
+
+    int size = 0;
+    for (int w = 0; w < cubeOnes.length; w++) {
+      size += Long.bitCount(blockingFields(w));
+    }
+
+    retValue = size == 0 ? NO_COLUMNS : new int[size];
+    int k = 0;
+    for (int w = 0; w < cubeOnes.length; w++) {
+      for (long fields = blockingFields(w); fields != 0; fields &= fields - 1) {
+        retValue[k++] = w * INPUTS_PER_WORD + (Long.numberOfTrailingZeros(fields) >>> 1);
+      }
+    }
+
+    rows[row] = retValue;
+    return retValue;
+  }
+
+  /**
+   * Literals of the cube that are opposite in the row in the buffer.
+   */
+  private long blockingFields(int word) {
+    return cubeOnes[word] & zeroFields(buffer[word]) | cubeZeros[word] & oneFields(buffer[word]);
+  }
+
+  @Override
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return columnCount;
+  }
+
+  @Override
+  public int nextRow(int from) {
+    return nextClearBit(ignoredRows, from, rowCount);
+  }
+
+  @Override
+  public int nextColumn(int from) {
+    return nextClearBit(ignoredColumns, from, columnCount);
+  }
+
+  @Override
+  public int nextTrueColumn(int row, int from) {
+    int[] trueColumns = row(row);
+
+    int k = Arrays.binarySearch(trueColumns, from);
+    for (k = k < 0 ? -k - 1 : k; k < trueColumns.length; k++) {
+      if (!isColumnIgnored(trueColumns[k])) {
+        return trueColumns[k];
+      }
+    }
+
+    return -1;
+  }
+
+  @Override
+  public int getTrueRowCount(int row, boolean countIgnoredValues) {
+    int[] trueColumns = row(row);
+    if (countIgnoredValues) {
+      return trueColumns.length;
+    }
+
+    int retValue = 0;
+    for (int column : trueColumns) {
+      if (!isColumnIgnored(column)) {
+        retValue++;
+      }
+    }
+
+    return retValue;
+  }
+
+  @Override
+  public int getTrueColumnCount(int column, boolean countIgnoredValues) {
+    if (countIgnoredValues || columns[column] == null) {
+      return trueColumnCount[column];
+    }
+
+    int retValue = 0;
+    for (int w = 0; w < ignoredRows.length; w++) {
+      retValue += Long.bitCount(columns[column][w] & ~ignoredRows[w]);
+    }
+
+    return retValue;
+  }
+
+  @Override
+  public boolean getElement(int row, int column) {
+    return columns[column] != null && get(columns[column], row);
+  }
+
+  @Override
+  public boolean isColumnIgnored(int column) {
+    return get(ignoredColumns, column);
+  }
+
+  @Override
+  public void addIgnoredColumn(int column) {
+    if (column < 0 || column >= columnCount) {
+      throw new IndexOutOfBoundsException("Column index out of bounds.");
+    }
+
+    if (!isColumnIgnored(column)) {
+      set(ignoredColumns, column);
+      ignoredColumnCount++;
+    }
+  }
+
+  @Override
+  public void addIgnoredColumns(Collection<Integer> columns) {
+    for (int column : columns) {
+      addIgnoredColumn(column);
+    }
+  }
+
+  @Override
+  public void addIgnoredTrueRows(int column) {
+    if (column < 0 || column >= columnCount) {
+      throw new IndexOutOfBoundsException("Column index out of bounds.");
+    }
+    if (columns[column] == null) {
+      return;
+    }
+
+    for (int i = nextSetBit(columns[column], ignoredRows, 0, rowCount);
+         i >= 0;
+         i = nextSetBit(columns[column], ignoredRows, i + 1, rowCount)) {
+      set(ignoredRows, i);
+      ignoredRowCount++;
+    }
+  }
+
+  @Override
+  public boolean isFullyIgnored() {
+    return ignoredColumnCount == columnCount || ignoredRowCount == rowCount;
+  }
+
+  /**
+   * Whole matrix is materialized.
+   */
+  @Override
+  public BooleanMatrix toBooleanMatrix() {
+    BooleanMatrix retValue = new BooleanMatrix(new MatrixElementGenerator() {
+      @Override
+      public boolean generateElement(int rowIndex, int columnIndex) {
+        return getElement(rowIndex, columnIndex);
+      }
+
+      @Override
+      public int getRowCount() {
+        return rowCount;
+      }
+
+      @Override
+      public int getColumnCount() {
+        return columnCount;
+      }
+    });
+
+    for (int i = nextSetBit(ignoredRows, null, 0, rowCount);
+         i >= 0;
+         i = nextSetBit(ignoredRows, null, i + 1, rowCount)) {
+      retValue.addIgnoredRow(i);
+    }
+    for (int j = nextSetBit(ignoredColumns, null, 0, columnCount);
+         j >= 0;
+         j = nextSetBit(ignoredColumns, null, j + 1, columnCount)) {
+      retValue.addIgnoredColumn(j);
+    }
+
+    return retValue;
+  }
+}
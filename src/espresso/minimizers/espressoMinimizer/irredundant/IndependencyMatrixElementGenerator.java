@@ -4,8 +4,6 @@ package espresso.minimizers.espressoMinimizer.irredundant;
 import espresso.minimizers.espressoMinimizer.utils.BooleanMatrix;
 import espresso.minimizers.espressoMinimizer.utils.MatrixElementGenerator;
 
-import java.util.Iterator;
-
 public class IndependencyMatrixElementGenerator implements MatrixElementGenerator {
 
   private BooleanMatrix matrix;
@@ -16,14 +14,7 @@ public class IndependencyMatrixElementGenerator implements MatrixElementGenerato
 
   @Override
   public boolean generateElement(int rowIndex1, int rowIndex2) {
-    for (Iterator<Integer> iter = matrix.ignoreColumnsIterator(); iter.hasNext(); ) {
-      int column = iter.next();
-      if (matrix.getElement(rowIndex1, column) && matrix.getElement(rowIndex2, column)) {
-        return false;
-      }
-    }
-
-    return true;
+    return !matrix.haveCommonTrueColumn(rowIndex1, rowIndex2);
   }
 
   @Override
@@ -2,20 +2,24 @@ package espresso.minimizers.espressoMinimizer.irredundant;
 
 
 import espresso.boolFunction.Cover;
+import espresso.boolFunction.cube.CoverArena;
 import espresso.boolFunction.cube.Cube;
+import espresso.boolFunction.cube.CubeRows;
 import espresso.minimizers.espressoMinimizer.minColCover.MaxCliqueHeuristic;
+import espresso.urpAlgorithms.ParallelTautology;
+import espresso.urpAlgorithms.ShannonEngine;
+import espresso.urpAlgorithms.TautologyCache;
 import espresso.utils.Pair;
 
 import java.util.*;
 
-import static espresso.urpAlgorithms.Tautology.singleOutputTautologyCheck;
-
 final public class Irredundant {
+  private static final ParallelTautology tautology = ParallelTautology.getInstance();
 
   private Irredundant(Cover onSet, Cover dontcareSet) {
   }
 
-  public static Cover irredundantCover(Cover onSet, Cover dontcareSet) {
+  public static Cover irredundantCover(Cover onSet, CubeRows dontcareSet) {
     Cover retValue = new Cover(onSet.inputCount(), onSet.outputCount());
 
     Pair<List<Cube>, List<Cube>> partitions = partitionRedundancy(onSet, dontcareSet);
@@ -37,17 +41,16 @@ final public class Irredundant {
     return retValue;
   }
 
-  private static Pair<List<Cube>, List<Cube>> partitionRedundancy(Cover onSet, Cover dontcareSet) {
+  private static Pair<List<Cube>, List<Cube>> partitionRedundancy(Cover onSet, CubeRows dontcareSet) {
     List<Cube> relativelyEssential = new ArrayList<>();
     List<Cube> redundant = new ArrayList<>();
 
-    Cover unionSet = onSet.union(dontcareSet);
-
-    for (Cube cube : unionSet) {
-      Cover copySet = new Cover(unionSet);
-      copySet.remove(cube);
+    int unionSize = onSet.size() + dontcareSet.size();
+    for (int i = 0; i < unionSize; i++) {
+      Cube cube = i < onSet.size() ? onSet.get(i) : dontcareSet.copyCube(i - onSet.size());
+      Cover cofactor = unionCofactor(onSet, dontcareSet, cube, i);
 
-      if (singleOutputTautologyCheck(copySet.cofactor(cube))) {
+      if (tautology.singleOutputTautologyCheck(cofactor, TautologyCache.getInstance())) {
         redundant.add(cube.copy());
       } else {
         relativelyEssential.add(cube.copy());
@@ -57,18 +60,33 @@ final public class Irredundant {
     return new Pair<>(relativelyEssential, redundant);
   }
 
+  /**
+   * Cofactor of the union of both rows with respect to the cube. The rows are streamed,
+   * so first don't care set in an off-heap store isn't copied onto the heap.
+   *
+   * @param skipped index of the row of the union that is left out or -1.
+   */
+  private static Cover unionCofactor(CubeRows first, CubeRows second, Cube cube, int skipped) {
+    Cover retValue = new Cover(first.inputCount(), first.outputCount());
+    retValue.addCofactors(first, cube, skipped);
+    retValue.addCofactors(second, cube, skipped < 0 ? -1 : skipped - first.size());
+
+    return retValue;
+  }
+
   private static List<Cube> partiallyRedundant(
       List<Cube> redundant,
       List<Cube> relativelyEssential,
-      Cover dontcareSet
+      CubeRows dontcareSet
   ) {
     List<Cube> partiallyRedundant = new ArrayList<>();
 
-    Cover unionSet = new Cover(dontcareSet);
-    unionSet.addAll(relativelyEssential);
+    Cover essentialSet = new Cover(dontcareSet.inputCount(), dontcareSet.outputCount());
+    essentialSet.addAll(relativelyEssential);
 
     for (Cube cube : redundant) {
-      if (!singleOutputTautologyCheck(unionSet.cofactor(cube))) {
+      Cover cofactor = unionCofactor(dontcareSet, essentialSet, cube, -1);
+      if (!tautology.singleOutputTautologyCheck(cofactor, TautologyCache.getInstance())) {
         partiallyRedundant.add(cube.copy());
       }
     }
@@ -79,7 +97,7 @@ final public class Irredundant {
   private static List<Cube> minimalIrredundant(
       List<Cube> partiallyRedundant,
       List<Cube> relativelyEssential,
-      Cover dontcareSet
+      CubeRows dontcareSet
   ) {
     NoCoverMatrix noCoverMatrix =
         calculateNoCoverMatrix(relativelyEssential, dontcareSet, partiallyRedundant);
@@ -96,18 +114,13 @@ final public class Irredundant {
   }
 
   private static void columnChoiceCleanup(NoCoverMatrix matrix, int columnIndex) {
-    matrix.addIgnoredColumns(columnIndex);
-    for (Iterator<Integer> rowIter = matrix.ignoreRowsIterator(); rowIter.hasNext(); ) {
-      int rowIndex = rowIter.next();
-      if (matrix.getElement(rowIndex, columnIndex)) {
-        matrix.addIgnoredRows(rowIndex);
-      }
-    }
+    matrix.addIgnoredColumn(columnIndex);
+    matrix.addIgnoredTrueRows(columnIndex);
   }
 
   private static NoCoverMatrix calculateNoCoverMatrix(
       List<Cube> relativelyEssential,
-      Cover dontCareSet,
+      CubeRows dontCareSet,
       List<Cube> partiallyRedundant
   ) {
     if (partiallyRedundant.isEmpty()) {
@@ -116,18 +129,15 @@ final public class Irredundant {
       );
     }
 
-    Cube example = relativelyEssential.iterator().next();
-
-    Cover importantCubes = new Cover(example.inputLength(), example.outputLength());
-    importantCubes.addAll(dontCareSet);
-    importantCubes.addAll(relativelyEssential);
+    Cover essentialSet = new Cover(dontCareSet.inputCount(), dontCareSet.outputCount());
+    essentialSet.addAll(relativelyEssential);
 
-    Cover partRedundantCover = new Cover(example.inputLength(), example.outputLength());
+    Cover partRedundantCover = new Cover(dontCareSet.inputCount(), dontCareSet.outputCount());
     partRedundantCover.addAll(partiallyRedundant);
 
     List<List<Integer>> minSets = new ArrayList<>();
     for (Cube partiallyRedundantCube : partiallyRedundant) {
-      Cover beta = importantCubes.cofactor(partiallyRedundantCube);
+      Cover beta = unionCofactor(dontCareSet, essentialSet, partiallyRedundantCube, -1);
 
       Pair<Cover, List<Integer>> alphaPair =
           partRedundantCover.trackingCofactor(partiallyRedundantCube);
@@ -143,50 +153,88 @@ final public class Irredundant {
       Cover beta,
       List<Integer> alphaTrack
   ) {
-    if (alpha.size() == 0) {
-      throw new IllegalArgumentException(
-          "Minimal sets can't be calculated from an empty alpha."
-      );
+    return ShannonEngine.expand(
+        new MinimalSetsNode(alpha, beta, alphaTrack),
+        alpha.inputCount(),
+        new ShannonEngine.Expansion<MinimalSetsNode, List<List<Integer>>>() {
+          @Override
+          public List<List<Integer>> expand(
+              MinimalSetsNode node,
+              ShannonEngine.Frame<MinimalSetsNode, List<List<Integer>>> frame
+          ) {
+            return node.expand(frame);
+          }
+
+          @Override
+          public List<List<Integer>> merge(
+              ShannonEngine.Frame<MinimalSetsNode, List<List<Integer>>> frame,
+              List<List<List<Integer>>> results
+          ) {
+            List<List<Integer>> mergedSets = new ArrayList<>();
+            addAllIgnoringEmptyLists(mergedSets, results.get(1));
+            addAllIgnoringEmptyLists(mergedSets, results.get(0));
+
+            return mergedSets;
+          }
+        });
+  }
+
+  /**
+   * Alpha with the tracked indexes of its cubes and beta, both cofactored
+   * with respect to the same cube.
+   */
+  private static final class MinimalSetsNode {
+    private final Cover alpha;
+    private final Cover beta;
+    private final List<Integer> alphaTrack;
+
+    MinimalSetsNode(Cover alpha, Cover beta, List<Integer> alphaTrack) {
+      this.alpha = alpha;
+      this.beta = beta;
+      this.alphaTrack = alphaTrack;
     }
 
-    Cover alphaBetaUnion = alpha.union(beta);
+    List<List<Integer>> expand(ShannonEngine.Frame<MinimalSetsNode, List<List<Integer>>> frame) {
+      if (alpha.size() == 0) {
+        throw new IllegalArgumentException(
+            "Minimal sets can't be calculated from an empty alpha."
+        );
+      }
 
-    if (alphaBetaUnion.isUnate()) {
-      List<Integer> minSet = new ArrayList<>();
+      Cover alphaBetaUnion = alpha.union(beta, frame.getArena());
 
-      if (beta.hasDONTCARERow()) {
-        return wrapInList(minSet);
-      }
+      if (alphaBetaUnion.isUnate()) {
+        List<Integer> minSet = new ArrayList<>();
+
+        if (beta.hasDONTCARERow()) {
+          return wrapInList(minSet);
+        }
 
-      for (int i = 0; i < alpha.size(); i++) {
-        if (alpha.get(i).isInputPartTautology()) {
-          int index = (alphaTrack != null ? alphaTrack.get(i) : i);
-          minSet.add(index);
+        for (int i = 0; i < alpha.size(); i++) {
+          if (alpha.get(i).isInputPartTautology()) {
+            int index = (alphaTrack != null ? alphaTrack.get(i) : i);
+            minSet.add(index);
+          }
         }
+
+        return wrapInList(minSet);
       }
 
-      return wrapInList(minSet);
-    } else {
       int splitIndex = alphaBetaUnion.binateSelect();
       Cube variable = alpha.generateVariableCube(splitIndex);
       Cube complement = variable.copy().inputComplement();
 
-      Pair<Cover, List<Integer>> positiveAlphaPair = alpha.trackingCofactor(variable, alphaTrack);
-      Pair<Cover, List<Integer>> negativeAlphaPair = alpha.trackingCofactor(complement, alphaTrack);
-
-      Cover positiveBetaCofactor = beta.cofactor(variable);
-      Cover negativeBetaCofactor = beta.cofactor(complement);
+      CoverArena arena = frame.getArena();
+      Pair<Cover, List<Integer>> positiveAlphaPair = alpha.trackingCofactor(variable, alphaTrack, arena);
+      Pair<Cover, List<Integer>> negativeAlphaPair = alpha.trackingCofactor(complement, alphaTrack, arena);
 
-      List<List<Integer>> positiveSets =
-          calculateMinimalSets(positiveAlphaPair.first, positiveBetaCofactor, positiveAlphaPair.second);
-      List<List<Integer>> negativeSets =
-          calculateMinimalSets(negativeAlphaPair.first, negativeBetaCofactor, negativeAlphaPair.second);
-
-      List<List<Integer>> mergedSets = new ArrayList<>();
-      addAllIgnoringEmptyLists(mergedSets, positiveSets);
-      addAllIgnoringEmptyLists(mergedSets, negativeSets);
+      frame.split(
+          splitIndex,
+          new MinimalSetsNode(negativeAlphaPair.first, beta.cofactor(complement, arena), negativeAlphaPair.second),
+          new MinimalSetsNode(positiveAlphaPair.first, beta.cofactor(variable, arena), positiveAlphaPair.second)
+      );
 
-      return mergedSets;
+      return null;
     }
   }
 
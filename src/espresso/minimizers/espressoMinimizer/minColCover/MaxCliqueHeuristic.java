@@ -14,60 +14,96 @@ public class MaxCliqueHeuristic implements MinimumColumnCoverHeuristic {
     return instance;
   }
 
+  /**
+   * Every pass covers the rows of first maximal clique of independent rows, until the
+   * whole matrix is covered. Columns of all passes are weeded against the rows that
+   * weren't ignored at the start, so no column of the cover is redundant.
+   *
+   * @throws IllegalStateException if first pass can't cover any row, for example when
+   *                               the rows of the clique have no not ignored columns.
+   */
   @Override
   public Set<Integer> calculateMinimumColumnCover(BooleanMatrix matrix) {
     Set<Integer> columnCover = new HashSet<>();
+    List<Integer> coveredRows = new ArrayList<>();
+    for (int i = matrix.nextRow(0); i >= 0; i = matrix.nextRow(i + 1)) {
+      coveredRows.add(i);
+    }
 
-    simplify(matrix);
-    IndependencyMatrix independencyMatrix = new IndependencyMatrix(matrix);
-
-    Set<Integer> maxClique = independencyMatrix.computeMaxClique();
-    for (Integer rowIndex : maxClique) {
-      int maxColumnIndex = -1;
-      int maxTrueColumnCount = -1;
-
-      for (Iterator<Integer> iter = matrix.ignoreColumnsIterator(); iter.hasNext(); ) {
-        int columnIndex = iter.next();
-        int trueColumnCount = matrix.getTrueColumnCount(columnIndex, false);
-        if (matrix.getElement(rowIndex, columnIndex) &&
-            trueColumnCount > maxTrueColumnCount
-            ) {
-          maxColumnIndex = columnIndex;
-          maxTrueColumnCount = trueColumnCount;
+    while (true) {
+      Set<Integer> passCover = new HashSet<>();
+      int rowCount = matrix.getNotIgnoredRowCount();
+
+      simplify(matrix);
+      IndependencyMatrix independencyMatrix = new IndependencyMatrix(matrix);
+
+      Set<Integer> maxClique = independencyMatrix.computeMaxClique();
+      for (Integer rowIndex : maxClique) {
+        int maxColumnIndex = -1;
+        int maxTrueColumnCount = -1;
+
+        for (int columnIndex = matrix.nextTrueColumn(rowIndex, 0);
+             columnIndex >= 0;
+             columnIndex = matrix.nextTrueColumn(rowIndex, columnIndex + 1)) {
+          int trueColumnCount = matrix.getTrueColumnCount(columnIndex, false);
+          if (trueColumnCount > maxTrueColumnCount) {
+            maxColumnIndex = columnIndex;
+            maxTrueColumnCount = trueColumnCount;
+          }
         }
+
+//        TODO: Watch this.
+        if (maxColumnIndex != -1) {
+          passCover.add(maxColumnIndex);
+          columnChoiceCleanup(matrix, maxColumnIndex);
+        }
+      }
+
+      columnCover.addAll(passCover);
+      if (matrix.isFullyIgnored()) {
+        weed(matrix, coveredRows, columnCover);
+
+        return columnCover;
       }
 
-//      TODO: Watch this.
-      if (maxColumnIndex != -1) {
-        columnCover.add(maxColumnIndex);
-        columnChoiceCleanup(matrix, maxColumnIndex);
+      if (passCover.size() == 0 && matrix.getNotIgnoredRowCount() == rowCount) {
+        throw new IllegalStateException(
+            "Matrix can't be covered, rows of the clique have no columns left."
+        );
       }
     }
+  }
 
-    if (!matrix.isFullyIgnored()) {
-      columnCover.addAll(calculateMinimumColumnCover(matrix));
-    } else {
-      weed(matrix, columnCover);
+  public void weed(BooleanMatrix matrix, Set<Integer> columnCover) {
+    List<Integer> rows = new ArrayList<>();
+    for (int i = 0; i < matrix.getRowCount(); i++) {
+      rows.add(i);
     }
 
-    return columnCover;
+    weed(matrix, rows, columnCover);
   }
 
-  public void weed(BooleanMatrix matrix, Set<Integer> columnCover) {
+  /**
+   * Removes columns of the cover whose true rows, among the given rows, are all
+   * covered by some other column of the cover.
+   */
+  private void weed(BooleanMatrix matrix, List<Integer> rows, Set<Integer> columnCover) {
     List<Integer> columns = new ArrayList<>(columnCover);
     int[] redundancyCounts = new int[columns.size()];
+    int[] trueCounts = new int[columns.size()];
 
-    for (int i = 0; i < matrix.getRowCount(); i++) {
+    for (int i : rows) {
       int sum = 0;
       for (Integer j : columnCover) {
         sum += (matrix.getElement(i, j) ? 1 : 0);
       }
 
-      if (sum > 1) {
-        for (int columnIndex = 0; columnIndex < columns.size(); columnIndex++) {
-          int j = columns.get(columnIndex);
+      for (int columnIndex = 0; columnIndex < columns.size(); columnIndex++) {
+        int j = columns.get(columnIndex);
 
-          if (matrix.getElement(i, j)) {
+        if (matrix.getElement(i, j)) {
+          trueCounts[columnIndex]++;
+          if (sum > 1) {
             redundancyCounts[columnIndex]++;
           }
         }
@@ -76,25 +112,22 @@ public class MaxCliqueHeuristic implements MinimumColumnCoverHeuristic {
 
     List<Integer> redundantColumns = new ArrayList<>();
     for (int i = 0; i < columns.size(); i++) {
-      if (redundancyCounts[i] == matrix.getTrueColumnCount(columns.get(i))) {
+      if (redundancyCounts[i] == trueCounts[i]) {
         redundantColumns.add(columns.get(i));
       }
     }
 
     if (redundantColumns.size() != 0) {
       columnCover.remove(redundantColumns.get(0));
-      weed(matrix, columnCover);
+      weed(matrix, rows, columnCover);
     }
   }
 
   public void simplify(BooleanMatrix matrix) {
-    for (Iterator<Integer> iter1 = matrix.ignoreRowsIterator(); iter1.hasNext(); ) {
-      int rowIndex1 = iter1.next();
-      for (Iterator<Integer> iter2 = matrix.ignoreRowsIterator(); iter2.hasNext(); ) {
-        int rowIndex2 = iter2.next();
-
+    for (int rowIndex1 = matrix.nextRow(0); rowIndex1 >= 0; rowIndex1 = matrix.nextRow(rowIndex1 + 1)) {
+      for (int rowIndex2 = matrix.nextRow(0); rowIndex2 >= 0; rowIndex2 = matrix.nextRow(rowIndex2 + 1)) {
         if (rowIndex1 != rowIndex2 && isSecondRowRedundant(matrix, rowIndex1, rowIndex2)) {
-          matrix.addIgnoredRows(rowIndex2);
+          matrix.addIgnoredRow(rowIndex2);
         }
       }
     }
@@ -107,27 +140,11 @@ public class MaxCliqueHeuristic implements MinimumColumnCoverHeuristic {
       );
     }
 
-    for (Iterator<Integer> iter1 = matrix.ignoreColumnsIterator(); iter1.hasNext(); ) {
-      int columnIndex = iter1.next();
-
-      boolean firstRowElement = matrix.getElement(firstRow, columnIndex);
-      boolean secondRowElement = matrix.getElement(secondRow, columnIndex);
-
-      if (firstRowElement && !secondRowElement) {
-        return false;
-      }
-    }
-
-    return true;
+    return matrix.isRowContained(firstRow, secondRow);
   }
 
   private void columnChoiceCleanup(BooleanMatrix matrix, int columnIndex) {
-    matrix.addIgnoredColumns(columnIndex);
-    for (Iterator<Integer> rowIter = matrix.ignoreRowsIterator(); rowIter.hasNext(); ) {
-      int rowIndex = rowIter.next();
-      if (matrix.getElement(rowIndex, columnIndex)) {
-        matrix.addIgnoredRows(rowIndex);
-      }
-    }
+    matrix.addIgnoredColumn(columnIndex);
+    matrix.addIgnoredTrueRows(columnIndex);
   }
 }
@@ -4,7 +4,10 @@ package espresso.minimizers.espressoMinimizer.reduce;
 import espresso.boolFunction.Cover;
 import espresso.boolFunction.InputState;
 import espresso.boolFunction.OutputState;
+import espresso.boolFunction.TruthTable;
 import espresso.boolFunction.cube.Cube;
+import espresso.boolFunction.cube.CubeRows;
+import espresso.urpAlgorithms.ShannonEngine;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -13,7 +16,7 @@ import java.util.Set;
 
 public final class Reduce {
 
-  public static Cover reduce(Cover onSet, Cover dontcareSet) {
+  public static Cover reduce(Cover onSet, CubeRows dontcareSet) {
     Cover retValue = new Cover(onSet);
     List<Cube> reducedCubes = new ArrayList<>();
     List<Integer> reducedCubesIndexes = new ArrayList<>();
@@ -23,15 +26,14 @@ public final class Reduce {
     for (int i = 0; i < retValue.size(); i++) {
       Cube cube = retValue.get(i);
 
-      Cover copy = new Cover(retValue);
-      copy.remove(cube);
+//      Cofactor of the other cubes and the don't care set, the rows are streamed
+//      so the don't care set isn't copied.
+      Cover cofactor = new Cover(retValue.inputCount(), retValue.outputCount());
+      cofactor.addCofactors(retValue, cube, i);
+      cofactor.addCofactors(dontcareSet, cube, -1);
 
-      Cover mintermsOfCube = copy.union(dontcareSet).intersect(Cover.of(cube.copy()));
-
-      if (mintermsOfCube.size() != 0) {
-        Cube smallestCubeContainingComplement = smallestCubeContainingComplement(
-            mintermsOfCube.cofactor(cube)
-        );
+      if (cofactor.size() != 0) {
+        Cube smallestCubeContainingComplement = smallestCubeContainingComplement(cofactor);
         Cube reducedCube = cube.and(smallestCubeContainingComplement);
 
         retValue.remove(cube);
@@ -68,23 +70,32 @@ public final class Reduce {
   }
 
   public static Cube smallestCubeContainingComplement(Cover cover) {
-    if (cover.isUnate()) {
-      return smallestCubeContainingComplementUnateCase(cover);
-    }
-
-    int splitIndex = cover.binateSelect();
-    Cover[] covers = cover.shannonCofactors(splitIndex);
+    return ShannonEngine.expand(cover, cover.inputCount(), new ShannonEngine.Expansion<Cover, Cube>() {
+      @Override
+      public Cube expand(Cover node, ShannonEngine.Frame<Cover, Cube> frame) {
+        if (node.outputCount() == 1) {
+          TruthTable truthTable = TruthTable.of(node);
+          if (truthTable != null) {
+            return truthTable.complement().supercube();
+          }
+        }
 
-    Cube positiveCube = smallestCubeContainingComplement(covers[1]);
-    Cube negativeCube = smallestCubeContainingComplement(covers[0]);
+        if (node.isUnate()) {
+          return smallestCubeContainingComplementUnateCase(node);
+        }
 
-    Cube variableCube = cover.generateVariableCube(splitIndex);
-    Cube complementVariableCube = variableCube.copy().inputComplement();
+        int splitIndex = node.binateSelect();
+        Cover[] covers = node.shannonCofactors(splitIndex, frame.getArena());
+        frame.split(splitIndex, covers[0], covers[1]);
 
-    Cube positivePart = variableCube.and(positiveCube);
-    Cube negativePart = complementVariableCube.and(negativeCube);
+        return null;
+      }
 
-    return positiveCube.smallestCubeContainingBoth(negativeCube);
+      @Override
+      public Cube merge(ShannonEngine.Frame<Cover, Cube> frame, List<Cube> results) {
+        return results.get(1).smallestCubeContainingBoth(results.get(0));
+      }
+    });
   }
 
   public static Cube smallestCubeContainingComplementUnateCase(Cover cover) {
@@ -102,23 +113,8 @@ public final class Reduce {
       Cube variableCube = cover.generateVariableCube(i);
       Cube complementVariableCube = variableCube.copy().inputComplement();
 
-      for (Cube cube : cover) {
-        if (cube.generalContain(variableCube)) {
-          for (int j = 0; j < cover.outputCount(); j++) {
-            if (cube.getOutputState(j) == OutputState.OUTPUT) {
-              outputTags.add(j);
-            }
-          }
-        }
-
-        if (cube.generalContain(complementVariableCube)) {
-          for (int j = 0; j < cover.outputCount(); j++) {
-            if (cube.getOutputState(j) == OutputState.OUTPUT) {
-              complementedOutputTags.add(j);
-            }
-          }
-        }
-      }
+      addOutputTags(cover, cover.containingRows(variableCube), outputTags);
+      addOutputTags(cover, cover.containingRows(complementVariableCube), complementedOutputTags);
 
       if (outputTags.size() == cover.outputCount()) {
         inputStates[i] = InputState.ZERO;
@@ -148,4 +144,18 @@ public final class Reduce {
     return new Cube(inputStates, outputStates);
   }
 
+  private static void addOutputTags(Cover cover, long[] rows, Set<Integer> outputTags) {
+    for (int w = 0; w < rows.length; w++) {
+      for (long bits = rows[w]; bits != 0; bits &= bits - 1) {
+        Cube cube = cover.get((w << 6) + Long.numberOfTrailingZeros(bits));
+
+        for (int j = 0; j < cover.outputCount(); j++) {
+          if (cube.getOutputState(j) == OutputState.OUTPUT) {
+            outputTags.add(j);
+          }
+        }
+      }
+    }
+  }
+
 }
@@ -1,62 +1,211 @@
 package espresso.minimizers.espressoMinimizer.utils;
 
 
-import espresso.utils.IgnoreIndexIterator;
-
 import java.util.*;
-import java.util.stream.IntStream;
 
+import static espresso.utils.Bitsets.*;
+
+/**
+ * Boolean matrix with rows and columns that can be ignored.<br/>
+ * <br/>
+ * Every row is first bitset over the columns packed into longs, ignored rows and columns
+ * are bitsets of the same kind. Row sums are popcounts of the row without the ignored
+ * columns and the indexes are iterated with {@link BooleanMatrix#nextRow(int)},
+ * {@link BooleanMatrix#nextColumn(int)} and {@link BooleanMatrix#nextTrueColumn(int, int)}.
+ * Column sums are counted once and updated as rows are ignored. Column-major copy of the
+ * matrix is built the first time first column is scanned.
+ */
 public class BooleanMatrix implements Iterable<List<Boolean>> {
+  private final int rowCount;
+  private final int columnCount;
+
+  /**
+   * Words of first bitset over the rows.
+   */
+  private final int rowWords;
+
+  /**
+   * Words of first bitset over the columns.
+   */
+  private final int columnWords;
 
-  private int[] trueColumnCount;
-  private int[] trueIgnoreColumnCount;
+  private final long[][] rows;
 
-  private Set<Integer> ignoredColumns = new HashSet<>();
-  private Set<Integer> ignoredRows = new HashSet<>();
+  /**
+   * Transposed matrix, null until first column is scanned.
+   */
+  private long[][] columns;
 
-  private List<List<Boolean>> matrix = new ArrayList<>();
+  private final int[] trueColumnCount;
+  private final int[] trueIgnoreColumnCount;
+
+  private final long[] ignoredColumns;
+  private final long[] ignoredRows;
+  private int ignoredColumnCount;
+  private int ignoredRowCount;
 
   public BooleanMatrix(MatrixElementGenerator generator) {
     if (generator.getRowCount() == 0 || generator.getColumnCount() == 0) {
       throw new UnsupportedOperationException("Can't create a boolean matrix with 0 columns or rows");
     }
 
-    trueColumnCount = new int[generator.getColumnCount()];
-    trueIgnoreColumnCount = new int[generator.getColumnCount()];
-
-    for (int i = 0; i < generator.getRowCount(); i++) {
-      List<Boolean> row = new ArrayList<>();
-
-      for (int j = 0; j < generator.getColumnCount(); j++) {
-        boolean matrixElement = generator.generateElement(i, j);
-        trueColumnCount[j] += (matrixElement ? 1 : 0);
-        row.add(matrixElement);
+    rowCount = generator.getRowCount();
+    columnCount = generator.getColumnCount();
+    rowWords = (rowCount + 63) >>> 6;
+    columnWords = (columnCount + 63) >>> 6;
+
+    rows = new long[rowCount][columnWords];
+    trueColumnCount = new int[columnCount];
+    trueIgnoreColumnCount = new int[columnCount];
+    ignoredColumns = new long[columnWords];
+    ignoredRows = new long[rowWords];
+
+    for (int i = 0; i < rowCount; i++) {
+      long[] row = rows[i];
+
+      for (int j = 0; j < columnCount; j++) {
+        if (generator.generateElement(i, j)) {
+          set(row, j);
+          trueColumnCount[j]++;
+        }
       }
-
-      matrix.add(row);
     }
   }
 
   @Override
   public Iterator<List<Boolean>> iterator() {
-    return matrix.iterator();
+    return new Iterator<List<Boolean>>() {
+      private int row;
+
+      @Override
+      public boolean hasNext() {
+        return row < rowCount;
+      }
+
+      @Override
+      public List<Boolean> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+
+        return rowList(row++);
+      }
+    };
+  }
+
+  private List<Boolean> rowList(int row) {
+    return new AbstractList<Boolean>() {
+      @Override
+      public Boolean get(int index) {
+        if (index < 0 || index >= columnCount) {
+          throw new IndexOutOfBoundsException("Column index out of bounds.");
+        }
+
+        return getElement(row, index);
+      }
+
+      @Override
+      public int size() {
+        return columnCount;
+      }
+    };
   }
 
   public Iterator<Integer> ignoreRowsIterator() {
-    return new IgnoreIndexIterator(getRowCount(), ignoredRows);
+    return new IndexIterator(true);
   }
 
   public Iterator<Integer> ignoreColumnsIterator() {
-    return new IgnoreIndexIterator(getColumnCount(), ignoredColumns);
+    return new IndexIterator(false);
+  }
+
+  /**
+   * Not ignored rows or columns in ascending order.
+   */
+  private final class IndexIterator implements Iterator<Integer> {
+    private final boolean overRows;
+    private int next;
+
+    IndexIterator(boolean overRows) {
+      this.overRows = overRows;
+      this.next = advance(0);
+    }
+
+    private int advance(int from) {
+      return overRows ? nextRow(from) : nextColumn(from);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next >= 0;
+    }
+
+    @Override
+    public Integer next() {
+      if (next < 0) {
+        throw new NoSuchElementException();
+      }
+
+      int retValue = next;
+      next = advance(retValue + 1);
+      return retValue;
+    }
+  }
+
+  /**
+   * @return first not ignored row with an index of at least from or -1.
+   */
+  public int nextRow(int from) {
+    return nextClearBit(ignoredRows, from, rowCount);
+  }
+
+  /**
+   * @return first not ignored column with an index of at least from or -1.
+   */
+  public int nextColumn(int from) {
+    return nextClearBit(ignoredColumns, from, columnCount);
+  }
+
+  /**
+   * @return first not ignored column with an index of at least from that is true
+   * in the row or -1.
+   */
+  public int nextTrueColumn(int row, int from) {
+    return nextSetBit(rows[row], ignoredColumns, from, columnCount);
+  }
+
+  /**
+   * @return first not ignored row with an index of at least from that is true
+   * in the column or -1.
+   */
+  public int nextTrueRow(int column, int from) {
+    return nextSetBit(columns()[column], ignoredRows, from, rowCount);
+  }
+
+  private long[][] columns() {
+    if (columns == null) {
+      columns = new long[columnCount][rowWords];
+
+      for (int i = 0; i < rowCount; i++) {
+        long[] row = rows[i];
+        for (int j = nextSetBit(row, null, 0, columnCount); j >= 0; j = nextSetBit(row, null, j + 1, columnCount)) {
+          set(columns[j], i);
+        }
+      }
+    }
+
+    return columns;
   }
 
   public void clearIgnoredRows() {
-    ignoredRows.clear();
+    Arrays.fill(ignoredRows, 0L);
+    ignoredRowCount = 0;
     Arrays.fill(trueIgnoreColumnCount, 0);
   }
 
   public void clearIgnoredColumns() {
-    ignoredColumns.clear();
+    Arrays.fill(ignoredColumns, 0L);
+    ignoredColumnCount = 0;
   }
 
   protected void validateColumnIndex(int column) {
@@ -72,9 +221,9 @@ public class BooleanMatrix implements Iterable<List<Boolean>> {
   }
 
   private void increaseTrueIgnoreColumnCount(int row) {
-    for (int j = 0; j < getColumnCount(); j++) {
-      boolean value = getElement(row, j);
-      trueIgnoreColumnCount[j] += (value ? 1 : 0);
+    long[] bits = rows[row];
+    for (int j = nextSetBit(bits, null, 0, columnCount); j >= 0; j = nextSetBit(bits, null, j + 1, columnCount)) {
+      trueIgnoreColumnCount[j]++;
     }
   }
 
@@ -84,8 +233,16 @@ public class BooleanMatrix implements Iterable<List<Boolean>> {
 
   public void addIgnoredColumns(Collection<Integer> columns) {
     for (int column : columns) {
-      validateColumnIndex(column);
-      ignoredColumns.add(column);
+      addIgnoredColumn(column);
+    }
+  }
+
+  public void addIgnoredColumn(int column) {
+    validateColumnIndex(column);
+
+    if (!isColumnIgnored(column)) {
+      set(ignoredColumns, column);
+      ignoredColumnCount++;
     }
   }
 
@@ -95,37 +252,53 @@ public class BooleanMatrix implements Iterable<List<Boolean>> {
 
   public void addIgnoredRows(Collection<Integer> rows) {
     for (int row : rows) {
-      validateRowIndex(row);
+      addIgnoredRow(row);
+    }
+  }
 
-      if (!ignoredRows.contains(row)) {
-        increaseTrueIgnoreColumnCount(row);
-      }
-      ignoredRows.add(row);
+  public void addIgnoredRow(int row) {
+    validateRowIndex(row);
+
+    if (!isRowIgnored(row)) {
+      set(ignoredRows, row);
+      ignoredRowCount++;
+      increaseTrueIgnoreColumnCount(row);
+    }
+  }
+
+  /**
+   * Ignores every row that is true in the column.
+   */
+  public void addIgnoredTrueRows(int column) {
+    validateColumnIndex(column);
+
+    for (int i = nextTrueRow(column, 0); i >= 0; i = nextTrueRow(column, i + 1)) {
+      addIgnoredRow(i);
     }
   }
 
   public boolean isRowIgnored(int row) {
-    return ignoredRows.contains(row);
+    return get(ignoredRows, row);
   }
 
   public boolean isColumnIgnored(int column) {
-    return ignoredColumns.contains(column);
+    return get(ignoredColumns, column);
   }
 
   public int getRowCount() {
-    return matrix.size();
+    return rowCount;
   }
 
   public int getColumnCount() {
-    return matrix.get(0).size();
+    return columnCount;
   }
 
   public int getNotIgnoredRowCount() {
-    return getRowCount() - ignoredRows.size();
+    return getRowCount() - ignoredRowCount;
   }
 
   public int getNotIgnoredColumnCount() {
-    return getColumnCount() - ignoredColumns.size();
+    return getColumnCount() - ignoredColumnCount;
   }
 
   public int getTrueColumnCount(int index) {
@@ -148,7 +321,7 @@ public class BooleanMatrix implements Iterable<List<Boolean>> {
     if (countIgnoredValues) {
       return getRowCount() - trueColumnCount[index];
     } else {
-      int ignoredFalseCount = ignoredRows.size() - trueIgnoreColumnCount[index];
+      int ignoredFalseCount = ignoredRowCount - trueIgnoreColumnCount[index];
       return (getRowCount() - trueColumnCount[index]) - ignoredFalseCount;
     }
   }
@@ -158,54 +331,88 @@ public class BooleanMatrix implements Iterable<List<Boolean>> {
   }
 
   public int getTrueRowCount(int rowIndex, boolean countIgnoredValues) {
+    long[] row = rows[rowIndex];
     int retValue = 0;
 
-    Iterator<Integer> iter;
-    if (!countIgnoredValues) {
-      iter = new IgnoreIndexIterator(getColumnCount(), ignoredColumns);
-    } else {
-      iter = new IgnoreIndexIterator(getColumnCount(), new HashSet<>());
-    }
-
-    for (; iter.hasNext(); ) {
-      int columnIndex = iter.next();
-      retValue += (getElement(rowIndex, columnIndex) ? 1 : 0);
+    for (int w = 0; w < columnWords; w++) {
+      retValue += Long.bitCount(countIgnoredValues ? row[w] : row[w] & ~ignoredColumns[w]);
     }
 
     return retValue;
   }
 
   public int getFalseRowCount(int rowIndex) {
-    return getColumnCount() - getTrueColumnCount(rowIndex);
+    return getColumnCount() - getTrueRowCount(rowIndex);
   }
 
 //  TODO: getFalseRowCount(int rowIndex, boolean countIgnoredValues){}
 
+  /**
+   * @return true if every not ignored column that is true in the first row is also
+   * true in the second row.
+   */
+  public boolean isRowContained(int firstRow, int secondRow) {
+    long[] first = rows[firstRow];
+    long[] second = rows[secondRow];
+
+    for (int w = 0; w < columnWords; w++) {
+      if ((first[w] & ~second[w] & ~ignoredColumns[w]) != 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * @return true if some not ignored column is true in both rows.
+   */
+  public boolean haveCommonTrueColumn(int firstRow, int secondRow) {
+    long[] first = rows[firstRow];
+    long[] second = rows[secondRow];
+
+    for (int w = 0; w < columnWords; w++) {
+      if ((first[w] & second[w] & ~ignoredColumns[w]) != 0) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
   public boolean getElement(int i, int j) {
-    return matrix.get(i).get(j);
+    return get(rows[i], j);
   }
 
   public Set<Integer> getIgnoredColumns() {
-    return Collections.unmodifiableSet(ignoredColumns);
+    return Collections.unmodifiableSet(indexes(ignoredColumns, columnCount));
   }
 
   public Set<Integer> getIgnoredRows() {
-    return Collections.unmodifiableSet(ignoredRows);
+    return Collections.unmodifiableSet(indexes(ignoredRows, rowCount));
+  }
+
+  private static Set<Integer> indexes(long[] mask, int length) {
+    Set<Integer> retValue = new LinkedHashSet<>();
+    for (int i = nextSetBit(mask, null, 0, length); i >= 0; i = nextSetBit(mask, null, i + 1, length)) {
+      retValue.add(i);
+    }
+
+    return retValue;
   }
 
   public boolean isFullyIgnored() {
-    return getColumnCount() == ignoredColumns.size() ||
-        getRowCount() == ignoredRows.size();
+    return getColumnCount() == ignoredColumnCount ||
+        getRowCount() == ignoredRowCount;
   }
 
   @Override
   public String toString() {
-    String retValue = "";
-    for (List<Boolean> row : matrix) {
-      retValue += rowToString(row) + "\n";
+    StringBuilder retValue = new StringBuilder();
+    for (List<Boolean> row : this) {
+      retValue.append(rowToString(row)).append("\n");
     }
-    if (retValue.equals("")) return "empty\n";
-    return retValue;
+    return retValue.toString();
   }
 
   private String rowToString(List<Boolean> row) {
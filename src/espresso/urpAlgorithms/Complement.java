@@ -1,12 +1,21 @@
 package espresso.urpAlgorithms;
 
 import espresso.boolFunction.Cover;
-import espresso.boolFunction.OutputState;
+import espresso.boolFunction.TruthTable;
 import espresso.boolFunction.cube.Cube;
+import espresso.boolFunction.cube.CubePool;
 import espresso.minimizers.CoverUtility;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.UnaryOperator;
+
 import static espresso.boolFunction.InputState.ONE;
 import static espresso.boolFunction.InputState.ZERO;
+import static espresso.boolFunction.cube.CubeEncoding.*;
 
 /**
  * Complement
@@ -27,6 +36,52 @@ final public class Complement {
    * @return A {@link Cover} for which the boolean function will return false
    */
   public static Cover complement(Cover onSet, Cover dontcareSet) {
+    return complement(onSet, dontcareSet, null);
+  }
+
+  /**
+   * Same as {@link Complement#complement(Cover, Cover)}. Cubes generated by the
+   * recursion are interned in the given pool.
+   *
+   * @param pool {@link CubePool} or null for no interning.
+   */
+  public static Cover complement(Cover onSet, Cover dontcareSet, CubePool pool) {
+    return complement(onSet, dontcareSet, pool, null);
+  }
+
+  /**
+   * Same as {@link Complement#complement(Cover, Cover, CubePool)}, the outputs are
+   * complemented concurrently on the given executor.
+   *
+   * @param executor {@link Executor} or null to complement the outputs one by one.
+   */
+  public static Cover complement(Cover onSet, Cover dontcareSet, CubePool pool, Executor executor) {
+    return multipleOutputComplement(onSet, dontcareSet, f -> singleOutputComplement(f, pool), executor);
+  }
+
+  /**
+   * Same as {@link Complement#complement(Cover, Cover)}, but gives up as soon as the
+   * complement of some output, or of first cofactor on the way, has more than the
+   * given number of cubes.
+   *
+   * @param budget maximum number of cubes in the complement of one output.
+   * @return complement or null if it is larger than the budget.
+   */
+  public static Cover complement(Cover onSet, Cover dontcareSet, int budget) {
+    return multipleOutputComplement(onSet, dontcareSet, f -> singleOutputComplement(f, null, budget), null);
+  }
+
+  /**
+   * Multiple output complement on top of the given single output complement.
+   * Both covers are split into single output covers in one pass. The complement
+   * of output i is the complement of its on-set and don't care set, its cubes
+   * are tagged with output i only.
+   *
+   * @param executor {@link Executor} or null to complement the outputs one by one.
+   * @return complement or null if the single output complement of some output is null.
+   */
+  static Cover multipleOutputComplement(Cover onSet, Cover dontcareSet,
+                                        UnaryOperator<Cover> singleOutputComplement, Executor executor) {
     if (onSet.inputCount() != dontcareSet.inputCount() ||
         onSet.outputCount() != dontcareSet.outputCount()) {
       throw new IllegalArgumentException(
@@ -34,18 +89,82 @@ final public class Complement {
       );
     }
 
+    Cover[] outputSets = splitOutputs(onSet, dontcareSet);
+    Cover[] complements = new Cover[outputSets.length];
+
+    if (executor == null || outputSets.length == 1) {
+      for (int i = 0; i < outputSets.length; i++) {
+        complements[i] = singleOutputComplement.apply(outputSets[i]);
+      }
+    } else {
+      List<CompletableFuture<Cover>> futures = new ArrayList<>();
+      for (Cover outputSet : outputSets) {
+        futures.add(CompletableFuture.supplyAsync(() -> singleOutputComplement.apply(outputSet), executor));
+      }
+      for (int i = 0; i < complements.length; i++) {
+        complements[i] = futures.get(i).join();
+      }
+    }
+
     Cover retValue = new Cover(onSet.inputCount(), onSet.outputCount());
+    for (int i = 0; i < complements.length; i++) {
+      if (complements[i] == null) {
+        return null;
+      }
+      addWithOutput(retValue, complements[i], i);
+    }
 
-    for (int i = 0; i < onSet.outputCount(); i++) {
-      Cover singleOutputOnSet = extract(onSet, i);
-      Cover singleOutputDontcareSet = extract(dontcareSet, i);
+    return retValue;
+  }
+
+  /**
+   * @return for every output first cover of the cubes of both covers that have it,
+   * cubes are tagged with that output only.
+   */
+  private static Cover[] splitOutputs(Cover onSet, Cover dontcareSet) {
+    int outputCount = onSet.outputCount();
+    int inputWords = inputWordCount(onSet.inputCount());
+    int outputWords = outputWordCount(outputCount);
+    long[] row = new long[inputWords + outputWords];
+    long[] outputs = new long[outputWords];
 
-      retValue.addAll(singleOutputComplement(singleOutputOnSet.union(singleOutputDontcareSet)));
+    Cover[] retValue = new Cover[outputCount];
+    for (int i = 0; i < outputCount; i++) {
+      retValue[i] = new Cover(onSet.inputCount(), outputCount);
+    }
+
+    for (Cover cover : new Cover[]{onSet, dontcareSet}) {
+      for (int i = 0; i < cover.size(); i++) {
+        cover.readRow(i, row, 0);
+        System.arraycopy(row, inputWords, outputs, 0, outputWords);
+        Arrays.fill(row, inputWords, row.length, 0);
+
+        for (int w = 0; w < outputWords; w++) {
+          for (long bits = outputs[w]; bits != 0; bits &= bits - 1) {
+            long bit = Long.lowestOneBit(bits);
+            row[inputWords + w] = bit;
+            retValue[w * OUTPUTS_PER_WORD + Long.numberOfTrailingZeros(bit)].addRow(row, 0);
+          }
+          row[inputWords + w] = 0;
+        }
+      }
     }
 
     return retValue;
   }
 
+  private static void addWithOutput(Cover target, Cover cover, int output) {
+    int inputWords = inputWordCount(cover.inputCount());
+    long[] row = new long[inputWords + outputWordCount(cover.outputCount())];
+
+    for (int i = 0; i < cover.size(); i++) {
+      cover.readRow(i, row, 0);
+      Arrays.fill(row, inputWords, row.length, 0);
+      row[inputWords + output / OUTPUTS_PER_WORD] = 1L << (output % OUTPUTS_PER_WORD);
+      target.addRow(row, 0);
+    }
+  }
+
   /**
    * Fast method for calculating complement of single output {@link Cover}s.
    * <p>
@@ -58,12 +177,125 @@ final public class Complement {
    * @return Complement of given {@link Cover} which is first {@link Cover}
    */
   public static Cover singleOutputComplement(Cover f) {
+    return singleOutputComplement(f, null);
+  }
+
+  /**
+   * Same as {@link Complement#singleOutputComplement(Cover)}. Cubes generated by the
+   * recursion are interned in the given pool.
+   *
+   * @param f    Single output {@link Cover}
+   * @param pool {@link CubePool} or null for no interning.
+   * @return Complement of given {@link Cover}
+   */
+  public static Cover singleOutputComplement(Cover f, CubePool pool) {
+    return singleOutputComplement(f, pool, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param budget maximum number of cubes in the complement and in the complements
+   *               of the cofactors.
+   * @return complement of the cover or null if it is larger than the budget.
+   */
+  static Cover singleOutputComplement(Cover f, CubePool pool, int budget) {
+    Cover retValue = ShannonEngine.expand(f, f.inputCount(), new SingleOutputComplement(pool, budget));
+    return retValue == SingleOutputComplement.OVER_BUDGET ? null : retValue;
+  }
+
+  /**
+   * Special cases and unate covers are complemented directly. Otherwise the literals
+   * that all cubes have are complemented on their own and the rest is split into
+   * Shannon cofactors, whose complements are merged with the splitting variable.
+   */
+  private static final class SingleOutputComplement implements ShannonEngine.Expansion<Cover, Cover> {
+    /**
+     * Result of first node whose complement is larger than the budget.
+     */
+    static final Cover OVER_BUDGET = new Cover(1, 1);
+
+    private final CubePool pool;
+    private final int budget;
+
+    SingleOutputComplement(CubePool pool, int budget) {
+      this.pool = pool;
+      this.budget = budget;
+    }
+
+    @Override
+    public Cover expand(Cover f, ShannonEngine.Frame<Cover, Cover> frame) {
+      Cover retValue = specialCase(f, pool);
+      if (retValue != null) {
+        return checkBudget(retValue);
+      }
+
+      if (f.isUnate()) {
+        return checkBudget(TransversalComplement.complement(f, pool, budget));
+      }
+
+      Cube c = commonCube(f);
+      if (c != null) {
+        f = f.cofactor(c, frame.getArena());
+      }
+
+      int splitIndex = f.binateSelect();
+      Cover[] cofactors = f.shannonCofactors(splitIndex, frame.getArena());
+      frame.split(splitIndex, cofactors[0], cofactors[1]);
+      frame.setAttachment(c);
+
+      return null;
+    }
+
+    @Override
+    public boolean isDecided(ShannonEngine.Frame<Cover, Cover> frame, Cover childResult) {
+      return childResult == OVER_BUDGET;
+    }
+
+    @Override
+    public Cover merge(ShannonEngine.Frame<Cover, Cover> frame, List<Cover> results) {
+      for (Cover result : results) {
+        if (result == OVER_BUDGET) {
+          return OVER_BUDGET;
+        }
+      }
+
+      Cover retValue = new Cover(frame.getNode().inputCount(), frame.getNode().outputCount());
+
+      Cube c = frame.getAttachment();
+      if (c != null) {
+        retValue.addAll(c.complement(pool));
+      }
+
+      retValue.addAll(
+          CoverUtility.mergeWithContainment(
+              results.get(0),
+              results.get(1),
+              frame.getVariable(),
+              false,
+              pool)
+      );
+
+      return checkBudget(retValue);
+    }
+
+    private Cover checkBudget(Cover complement) {
+      return complement == null || complement.size() > budget ? OVER_BUDGET : complement;
+    }
+  }
+
+  /**
+   * Returns null if special case didn't occur.
+   *
+   * @param f    Single output {@link Cover}
+   * @param pool {@link CubePool} or null for no interning.
+   * @return complement of the cover or null.
+   */
+  static Cover specialCase(Cover f, CubePool pool) {
     //region Special cases
     Cover retValue = new Cover(f.inputCount(), f.outputCount());
 
 //    If given cover is empty then the complement is first tautology.
     if (f.size() == 0) {
-      retValue.add(new Cube(f.inputCount(), f.outputCount()));
+      retValue.add(universalCube(f.inputCount(), f.outputCount(), pool));
       return retValue;
     }
 
@@ -71,10 +303,21 @@ final public class Complement {
       return retValue;
     }
 
-    if (f.isUnate()) {
-      return UnateOperations.unateComplement(f);
+    TruthTable truthTable = TruthTable.of(f);
+    if (truthTable != null) {
+      return truthTable.complement().toCover();
     }
+    //endregion
 
+    return null;
+  }
+
+  /**
+   * @param f {@link Cover}
+   * @return cube of the literals that all cubes of the cover have or
+   * null if there are no such literals.
+   */
+  static Cube commonCube(Cover f) {
     Cube c = new Cube(f.inputCount(), f.outputCount());
     boolean cubeChanged = false;
     for (int i = 0; i < f.inputCount(); i++) {
@@ -87,41 +330,14 @@ final public class Complement {
       }
     }
 
-    if (cubeChanged) {
-      retValue.addAll(c.complement());
-      f = f.cofactor(c);
-    }
-    //endregion
-
-    int splitIndex = f.binateSelect();
-    Cover[] cofactors = f.shannonCofactors(splitIndex);
-
-    retValue.addAll(
-        CoverUtility.mergeWithContainment(
-            singleOutputComplement(cofactors[0]),
-            singleOutputComplement(cofactors[1]),
-            splitIndex,
-            false)
-    );
-
-    return retValue;
+    return cubeChanged ? c : null;
   }
 
-  private static Cover extract(Cover cover, int extractionIndex) {
-    if (extractionIndex < 0 || extractionIndex >= cover.outputCount()) {
-      throw new IllegalArgumentException("Extraction index out of bounds.");
-    }
-
-    Cover retValue = new Cover(cover.inputCount(), cover.outputCount());
-
-    for (Cube cube : cover) {
-      if (cube.getOutputState(extractionIndex) == OutputState.OUTPUT) {
-        Cube extractedCube = new Cube(cover.inputCount(), cover.outputCount(), extractionIndex);
-        extractedCube.setInput(cube);
-        retValue.add(extractedCube);
-      }
-    }
-
-    return retValue;
+  /**
+   * @return universal {@link Cube}, interned if first pool is given.
+   */
+  static Cube universalCube(int inputCount, int outputCount, CubePool pool) {
+    return pool == null ? new Cube(inputCount, outputCount) : pool.universal(inputCount, outputCount);
   }
+
 }
@@ -0,0 +1,268 @@
+package espresso.urpAlgorithms;
+
+import espresso.boolFunction.Cover;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.BinaryOperator;
+
+import static espresso.boolFunction.cube.CubeEncoding.*;
+
+/**
+ * Computed table for {@link Complement#complement(Cover, Cover)}.<br/>
+ * <br/>
+ * The off-set depends only on the union of the on-set and the don't care set, so the
+ * key is first 128 bit fingerprint of that union: rows of all non empty cubes of both
+ * covers are packed, sorted and duplicates are removed before hashing. The same function
+ * given with the cubes in first different order, split differently between the two covers
+ * or minimized again with other settings is complemented only once.<br/>
+ * <br/>
+ * Eviction is size aware. The table keeps off-sets with at most {@link OffSetCache#capacity()}
+ * cubes in total and evicts the least recently used ones, larger off-sets aren't stored.
+ * Off-sets are copied on the way in and out, copies share the rows until one of them
+ * changes. The table is thread safe.
+ */
+public final class OffSetCache {
+  public static final int DEFAULT_CAPACITY = 1 << 18;
+
+  private static final OffSetCache instance = new OffSetCache(DEFAULT_CAPACITY);
+
+  private final int capacity;
+  private final LinkedHashMap<Key, Cover> table = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long weight;
+  private long hitCount;
+  private long missCount;
+
+  /**
+   * Shared table used by {@link Cover#complement(Cover)} and the espresso minimizer.
+   */
+  public static OffSetCache getInstance() {
+    return instance;
+  }
+
+  public OffSetCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive.");
+    }
+
+    this.capacity = capacity;
+  }
+
+  /**
+   * Returns the cached off-set of the function or computes it with the given complement.
+   *
+   * @param onSet       {@link Cover}
+   * @param dontcareSet {@link Cover}
+   * @param complement  computes the off-set from the on-set and the don't care set on first miss,
+   *                    null results (for example of first bounded complement) aren't stored.
+   * @return {@link Cover} for which the boolean function will return false or null.
+   */
+  public Cover complement(Cover onSet, Cover dontcareSet, BinaryOperator<Cover> complement) {
+    Key key = key(onSet, dontcareSet);
+
+    Cover retValue = get(key);
+    if (retValue == null) {
+      retValue = complement.apply(onSet, dontcareSet);
+      if (retValue != null) {
+        put(key, retValue);
+      }
+    }
+
+    return retValue;
+  }
+
+  /**
+   * 128 bit fingerprint of the canonical form of first function, see {@link OffSetCache}.
+   */
+  static final class Key {
+    private final int inputCount;
+    private final int outputCount;
+    private final long high;
+    private final long low;
+
+    private Key(int inputCount, int outputCount, long high, long low) {
+      this.inputCount = inputCount;
+      this.outputCount = outputCount;
+      this.high = high;
+      this.low = low;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      Key key = (Key) o;
+
+      return high == key.high && low == key.low &&
+          inputCount == key.inputCount && outputCount == key.outputCount;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) (low ^ (low >>> 32));
+    }
+  }
+
+  static Key key(Cover onSet, Cover dontcareSet) {
+    if (onSet.inputCount() != dontcareSet.inputCount() ||
+        onSet.outputCount() != dontcareSet.outputCount()) {
+      throw new IllegalArgumentException(
+          "Given covers are not compatible. Input/output lengths are different"
+      );
+    }
+
+    int inputCount = onSet.inputCount();
+    int inputWords = inputWordCount(inputCount);
+    int stride = inputWords + outputWordCount(onSet.outputCount());
+    long[][] rows = new long[onSet.size() + dontcareSet.size()][];
+    int count = 0;
+
+    for (Cover cover : new Cover[]{onSet, dontcareSet}) {
+      for (int i = 0; i < cover.size(); i++) {
+        long[] row = new long[stride];
+        cover.readRow(i, row, 0);
+        if (!isEmptyRow(row, inputCount, inputWords)) {
+          rows[count++] = row;
+        }
+      }
+    }
+
+    Arrays.sort(rows, 0, count, OffSetCache::compareRows);
+
+    long high = 0x6A09E667F3BCC908L;
+    long low = 0xBB67AE8584CAA73BL;
+    for (int i = 0; i < count; i++) {
+      if (i != 0 && compareRows(rows[i - 1], rows[i]) == 0) {
+        continue;
+      }
+
+      for (long word : rows[i]) {
+        high = mix(high ^ word) * 0x9E3779B97F4A7C15L;
+        low = Long.rotateLeft(low, 29) + mix(word + 0xC2B2AE3D27D4EB4FL);
+      }
+      high = mix(high);
+      low = mix(low ^ high);
+    }
+
+    return new Key(inputCount, onSet.outputCount(), high, low);
+  }
+
+  /**
+   * Finalizer of the 64 bit MurmurHash3.
+   */
+  private static long mix(long x) {
+    x ^= x >>> 33;
+    x *= 0xFF51AFD7ED558CCDL;
+    x ^= x >>> 33;
+    x *= 0xC4CEB9FE1A85EC53L;
+    x ^= x >>> 33;
+    return x;
+  }
+
+  private static boolean isEmptyRow(long[] row, int inputCount, int inputWords) {
+    for (int w = 0; w < inputWords; w++) {
+      if (emptyFields(row[w], inputMask(inputCount, w)) != 0) {
+        return true;
+      }
+    }
+    for (int w = inputWords; w < row.length; w++) {
+      if (row[w] != 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static int compareRows(long[] a, long[] b) {
+    for (int i = 0; i < a.length; i++) {
+      int retValue = Long.compare(a[i], b[i]);
+      if (retValue != 0) {
+        return retValue;
+      }
+    }
+
+    return 0;
+  }
+
+  /**
+   * @return copy of the cached off-set or null.
+   */
+  synchronized Cover get(Key key) {
+    Cover retValue = table.get(key);
+
+    if (retValue == null) {
+      missCount++;
+      return null;
+    }
+
+    hitCount++;
+    return new Cover(retValue);
+  }
+
+  synchronized void put(Key key, Cover offSet) {
+    if (weight(offSet) > capacity) {
+      return;
+    }
+
+    Cover previous = table.put(key, new Cover(offSet));
+    weight += weight(offSet) - (previous == null ? 0 : weight(previous));
+
+    Iterator<Cover> iterator = table.values().iterator();
+    while (weight > capacity) {
+      weight -= weight(iterator.next());
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Empty off-sets are counted as first cube so that tautologies are evicted too.
+   */
+  private static int weight(Cover offSet) {
+    return Math.max(1, offSet.size());
+  }
+
+  public synchronized int size() {
+    return table.size();
+  }
+
+  /**
+   * @return number of cubes in all cached off-sets.
+   */
+  public synchronized long weight() {
+    return weight;
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return share of lookups answered from the table, 0 if there were none.
+   */
+  public synchronized double getHitRate() {
+    long lookups = hitCount + missCount;
+    return lookups == 0 ? 0 : (double) hitCount / lookups;
+  }
+
+  public synchronized void resetCounters() {
+    hitCount = 0;
+    missCount = 0;
+  }
+
+  public synchronized void clear() {
+    table.clear();
+    weight = 0;
+  }
+}
@@ -0,0 +1,217 @@
+package espresso.urpAlgorithms;
+
+import espresso.boolFunction.Cover;
+import espresso.boolFunction.cube.Cube;
+import espresso.boolFunction.cube.CubePool;
+import espresso.minimizers.CoverUtility;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Complement that computes the complements of the two Shannon cofactors of binate
+ * covers as fork/join subtasks ({@link Complement#singleOutputComplement(Cover)}).
+ * Unate covers are complemented by {@link TransversalComplement} in the current task.
+ * The results are the same as the results of the sequential algorithm.<br/>
+ * <br/>
+ * Granularity adapts to the load of the pool. A cofactor is forked only if it has
+ * at least {@link ParallelComplement#minForkCubes} cubes, it is less than
+ * {@link ParallelComplement#maxForkDepth} splits deep and the current worker doesn't
+ * already have more than {@link ParallelComplement#MAX_SURPLUS_TASKS} queued tasks that
+ * no other worker took. The two halves of first large merge are also intersected in parallel.
+ * Covers that can't be forked any more are complemented in the current task on first
+ * {@link ShannonEngine}.
+ */
+public final class ParallelComplement {
+  public static final int DEFAULT_MIN_FORK_CUBES = 32;
+  public static final int DEFAULT_MAX_FORK_DEPTH = 12;
+
+  /**
+   * Queued tasks are first sign that the other workers are busy, so no more tasks are forked.
+   */
+  static final int MAX_SURPLUS_TASKS = 2;
+
+  private static final ParallelComplement instance = new ParallelComplement(
+      ForkJoinPool.commonPool(), DEFAULT_MIN_FORK_CUBES, DEFAULT_MAX_FORK_DEPTH
+  );
+
+  private final ForkJoinPool pool;
+  private final int minForkCubes;
+  private final int maxForkDepth;
+
+  /**
+   * Complement on the common pool with the default thresholds.
+   */
+  public static ParallelComplement getInstance() {
+    return instance;
+  }
+
+  public ParallelComplement(ForkJoinPool pool, int minForkCubes, int maxForkDepth) {
+    if (pool == null) {
+      throw new IllegalArgumentException("Pool can't be null.");
+    }
+    if (minForkCubes < 1 || maxForkDepth < 0) {
+      throw new IllegalArgumentException("Thresholds must be positive.");
+    }
+
+    this.pool = pool;
+    this.minForkCubes = minForkCubes;
+    this.maxForkDepth = maxForkDepth;
+  }
+
+  /**
+   * @see Complement#complement(Cover, Cover)
+   */
+  public Cover complement(Cover onSet, Cover dontcareSet) {
+    return complement(onSet, dontcareSet, null);
+  }
+
+  /**
+   * Outputs are complemented concurrently on the pool of this complement.
+   *
+   * @see Complement#complement(Cover, Cover, CubePool, java.util.concurrent.Executor)
+   */
+  public Cover complement(Cover onSet, Cover dontcareSet, CubePool cubePool) {
+    return Complement.multipleOutputComplement(onSet, dontcareSet, f -> singleOutputComplement(f, cubePool), pool);
+  }
+
+  /**
+   * @see Complement#complement(Cover, Cover, int)
+   */
+  public Cover complement(Cover onSet, Cover dontcareSet, int budget) {
+    return Complement.multipleOutputComplement(
+        onSet, dontcareSet, f -> singleOutputComplement(f, null, budget), pool
+    );
+  }
+
+  /**
+   * @see Complement#singleOutputComplement(Cover)
+   */
+  public Cover singleOutputComplement(Cover f) {
+    return singleOutputComplement(f, null);
+  }
+
+  /**
+   * @see Complement#singleOutputComplement(Cover, CubePool)
+   */
+  public Cover singleOutputComplement(Cover f, CubePool cubePool) {
+    return singleOutputComplement(f, cubePool, Integer.MAX_VALUE);
+  }
+
+  private Cover singleOutputComplement(Cover f, CubePool cubePool, int budget) {
+    if (f.size() < minForkCubes) {
+      return Complement.singleOutputComplement(f, cubePool, budget);
+    }
+
+    ComplementTask task = new ComplementTask(f, cubePool, budget, 0);
+//    Outputs complemented on the pool run the task in the current worker.
+    return ForkJoinTask.getPool() == pool ? task.invoke() : pool.invoke(task);
+  }
+
+  private final class ComplementTask extends RecursiveTask<Cover> {
+    private static final long serialVersionUID = 1L;
+
+    private final Cover cover;
+    private final CubePool cubePool;
+    private final int budget;
+    private final int depth;
+
+    ComplementTask(Cover cover, CubePool cubePool, int budget, int depth) {
+      this.cover = cover;
+      this.cubePool = cubePool;
+      this.budget = budget;
+      this.depth = depth;
+    }
+
+    @Override
+    protected Cover compute() {
+      return complement(cover, depth);
+    }
+
+    /**
+     * @see Complement#singleOutputComplement(Cover, CubePool, int)
+     */
+    private Cover complement(Cover f, int depth) {
+//      No split below can be forked any more.
+      if (depth >= maxForkDepth || f.size() < minForkCubes) {
+        return Complement.singleOutputComplement(f, cubePool, budget);
+      }
+
+      Cover retValue = Complement.specialCase(f, cubePool);
+      if (retValue != null) {
+        return retValue.size() > budget ? null : retValue;
+      }
+
+      if (f.isUnate()) {
+        return TransversalComplement.complement(f, cubePool, budget);
+      }
+
+      retValue = new Cover(f.inputCount(), f.outputCount());
+
+      Cube c = Complement.commonCube(f);
+      if (c != null) {
+        retValue.addAll(c.complement(cubePool));
+        f = f.cofactor(c);
+      }
+
+      int splitIndex = f.binateSelect();
+      Cover[] complements = cofactorComplements(f.shannonCofactors(splitIndex), depth);
+      if (complements == null) {
+        return null;
+      }
+
+      retValue.addAll(merge(complements[0], complements[1], splitIndex));
+
+      return retValue.size() > budget ? null : retValue;
+    }
+
+    /**
+     * @return complements of the cofactors or null if one of them is larger than the budget.
+     */
+    private Cover[] cofactorComplements(Cover[] cofactors, int depth) {
+      if (!shouldFork(cofactors[1], depth)) {
+        Cover negative = complement(cofactors[0], depth + 1);
+        Cover positive = negative == null ? null : complement(cofactors[1], depth + 1);
+
+        return positive == null ? null : new Cover[]{negative, positive};
+      }
+
+      ComplementTask positive = new ComplementTask(cofactors[1], cubePool, budget, depth + 1);
+      positive.fork();
+      Cover negative = complement(cofactors[0], depth + 1);
+      if (negative == null) {
+        positive.cancel(false);
+        return null;
+      }
+
+      Cover positiveComplement = positive.join();
+      return positiveComplement == null ? null : new Cover[]{negative, positiveComplement};
+    }
+
+    private boolean shouldFork(Cover cofactor, int depth) {
+      return depth < maxForkDepth &&
+          cofactor.size() >= minForkCubes &&
+          getSurplusQueuedTaskCount() <= MAX_SURPLUS_TASKS;
+    }
+
+    /**
+     * Same as {@link CoverUtility#mergeWithContainment(Cover, Cover, int, boolean, CubePool)}
+     * without containment, both halves are intersected at the same time.
+     */
+    private Cover merge(Cover h1, Cover h2, int splitIndex) {
+      if (h1.size() + h2.size() < minForkCubes) {
+        return CoverUtility.mergeWithContainment(h1, h2, splitIndex, false, cubePool);
+      }
+
+      Cover h3 = CoverUtility.extractIdenticalCubes(h1, h2);
+      Cube x = h1.generateVariableCube(splitIndex, cubePool);
+      Cover complementedX = x.complement(cubePool);
+
+      ForkJoinTask<Cover> negativeHalf = ForkJoinTask.adapt(() -> complementedX.intersect(h1)).fork();
+      Cover positiveHalf = Cover.of(x).intersect(h2);
+
+      return negativeHalf.join().union(positiveHalf).union(h3);
+    }
+  }
+}
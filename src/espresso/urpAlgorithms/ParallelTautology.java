@@ -0,0 +1,211 @@
+package espresso.urpAlgorithms;
+
+import espresso.boolFunction.Cover;
+import espresso.boolFunction.TruthTable;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Tautology check that runs the two Shannon branches of large covers in parallel
+ * on first {@link ForkJoinPool}. The reductions are the same as in {@link Tautology}.<br/>
+ * <br/>
+ * A branch is forked only if its cover has at least {@link ParallelTautology#minForkCubes}
+ * cubes and it is less than {@link ParallelTautology#maxForkDepth} splits deep, smaller
+ * problems are checked in the current task by {@link Tautology} on first {@link ShannonEngine}.
+ * As soon as one branch proves that its cover isn't first tautology, the answer is known,
+ * so the sibling task is cancelled and all tasks
+ * below the same split stop at their next node. Stopped tasks return null, their results
+ * are never stored to the {@link TautologyCache}.
+ */
+public final class ParallelTautology {
+  public static final int DEFAULT_MIN_FORK_CUBES = 32;
+  public static final int DEFAULT_MAX_FORK_DEPTH = 12;
+
+  private static final ParallelTautology instance = new ParallelTautology(
+      ForkJoinPool.commonPool(), DEFAULT_MIN_FORK_CUBES, DEFAULT_MAX_FORK_DEPTH
+  );
+
+  private final ForkJoinPool pool;
+  private final int minForkCubes;
+  private final int maxForkDepth;
+
+  /**
+   * Checker on the common pool with the default thresholds.
+   */
+  public static ParallelTautology getInstance() {
+    return instance;
+  }
+
+  public ParallelTautology(ForkJoinPool pool, int minForkCubes, int maxForkDepth) {
+    if (pool == null) {
+      throw new IllegalArgumentException("Pool can't be null.");
+    }
+    if (minForkCubes < 1 || maxForkDepth < 0) {
+      throw new IllegalArgumentException("Thresholds must be positive.");
+    }
+
+    this.pool = pool;
+    this.minForkCubes = minForkCubes;
+    this.maxForkDepth = maxForkDepth;
+  }
+
+  public boolean singleOutputTautologyCheck(Cover cover) {
+    return singleOutputTautologyCheck(cover, null);
+  }
+
+  /**
+   * @param cover {@link Cover}
+   * @param cache {@link TautologyCache} or null for no memoization.
+   * @return true if the cover is first tautology.
+   * @see Tautology#singleOutputTautologyCheck(Cover, TautologyCache)
+   */
+  public boolean singleOutputTautologyCheck(Cover cover, TautologyCache cache) {
+    if (cover.size() < minForkCubes) {
+      return Tautology.singleOutputTautologyCheck(cover, cache);
+    }
+
+    return pool.invoke(new Check(cover, cache, 0, new Scope(null)));
+  }
+
+  /**
+   * Cubes below first Shannon split share first scope. The scope is decided once any
+   * cover in it isn't first tautology. Blocks of first component decomposition are
+   * OR-ed, so every block gets its own scope that is also decided with its parent.
+   */
+  private static final class Scope {
+    private final Scope parent;
+    private volatile boolean decided;
+
+    Scope(Scope parent) {
+      this.parent = parent;
+    }
+
+    boolean isDecided() {
+      return decided || (parent != null && parent.isDecided());
+    }
+  }
+
+  private final class Check extends RecursiveTask<Boolean> {
+    private static final long serialVersionUID = 1L;
+
+    private final Cover cover;
+    private final TautologyCache cache;
+    private final int depth;
+    private final Scope scope;
+
+    Check(Cover cover, TautologyCache cache, int depth, Scope scope) {
+      this.cover = cover;
+      this.cache = cache;
+      this.depth = depth;
+      this.scope = scope;
+    }
+
+    @Override
+    protected Boolean compute() {
+      return check(cover, depth);
+    }
+
+    /**
+     * @return true or false, null if the check was stopped.
+     */
+    private Boolean check(Cover cover, int depth) {
+      if (scope.isDecided()) {
+        return null;
+      }
+
+      if (depth >= maxForkDepth || cover.size() < minForkCubes) {
+        return Tautology.singleOutputTautologyCheck(cover, cache, scope::isDecided);
+      }
+
+      Boolean specialCaseCheck = Tautology.specialCase(cover);
+      if (specialCaseCheck != null) {
+        return specialCaseCheck;
+      }
+
+      Cover reducedCover = Tautology.unateReduction(cover);
+      if (reducedCover != null) {
+        return check(reducedCover, depth + 1);
+      }
+
+      List<Cover> components = Tautology.components(cover);
+      if (components != null) {
+        return checkComponents(components, depth + 1);
+      }
+
+      TautologyCache.Key key = null;
+      if (cache != null) {
+        key = TautologyCache.key(cover);
+        Boolean cached = cache.get(key);
+        if (cached != null) {
+          return cached;
+        }
+      }
+
+      Boolean retValue = split(cover, depth);
+      if (cache != null && retValue != null) {
+        cache.put(key, retValue);
+      }
+
+      return retValue;
+    }
+
+    private Boolean checkComponents(List<Cover> components, int depth) {
+      boolean stopped = false;
+
+      for (Cover component : components) {
+        Boolean componentCheck = new Check(component, cache, depth, new Scope(scope)).compute();
+
+        if (componentCheck == null) {
+          stopped = true;
+        } else if (componentCheck) {
+          return true;
+        }
+      }
+
+      return stopped ? null : false;
+    }
+
+    private Boolean split(Cover cover, int depth) {
+      TruthTable truthTable = TruthTable.of(cover);
+      if (truthTable != null) {
+        return truthTable.isTautology();
+      }
+
+      int splitIndex = cover.binateSelect();
+      Cover[] cofactors = cover.shannonCofactors(splitIndex);
+
+      Check positive = new Check(cofactors[1], cache, depth + 1, scope);
+      positive.fork();
+
+      Boolean negativeCheck = check(cofactors[0], depth + 1);
+      if (isFalse(negativeCheck)) {
+        positive.cancel(false);
+        return decide();
+      }
+
+      return both(negativeCheck, positive.join());
+    }
+
+    /**
+     * Both cofactors must be tautologies.
+     */
+    private Boolean both(Boolean first, Boolean second) {
+      if (isFalse(first) || isFalse(second)) {
+        return decide();
+      }
+
+      return first == null || second == null ? null : true;
+    }
+
+    private Boolean decide() {
+      scope.decided = true;
+      return false;
+    }
+  }
+
+  private static boolean isFalse(Boolean check) {
+    return check != null && !check;
+  }
+}
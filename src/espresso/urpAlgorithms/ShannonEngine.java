@@ -0,0 +1,270 @@
+package espresso.urpAlgorithms;
+
+import espresso.boolFunction.cube.CoverArena;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Unate recursive paradigm without Java recursion. Nodes are expanded on an explicit
+ * stack of frames, so the depth of first Shannon expansion isn't limited by the thread
+ * stack and the algorithms don't have to be inlined through recursive calls.<br/>
+ * <br/>
+ * An algorithm plugs in as an {@link Expansion}. It either solves first node directly or
+ * splits it into children with the frame of the node, usually into the two Shannon
+ * cofactors with respect to first variable. Once the children are solved, or once the
+ * algorithm decides that the remaining children don't matter, their results are merged
+ * into the result of the node.<br/>
+ * <br/>
+ * Frames are allocated once per engine and reused. Every split has to remove at least
+ * one variable from the support of the node, so first engine with as many frames as
+ * there are inputs is deep enough for any cover.<br/>
+ * <br/>
+ * An engine with first {@link CoverArena} keeps the level of the arena at the depth of the
+ * node that is being expanded. Children made with {@link Frame#getArena()} are released
+ * as soon as their parent is merged, so the cofactors of the next nodes at the same depth
+ * reuse their storage. Algorithms whose results can be their own nodes mustn't make
+ * children with the arena.
+ *
+ * @param <N> node, usually first {@link espresso.boolFunction.Cover}.
+ * @param <R> result of first node.
+ */
+public final class ShannonEngine<N, R> {
+  private final Frame<N, R>[] frames;
+  private final CoverArena arena;
+
+  /**
+   * @param maxDepth maximum number of nested splits.
+   */
+  public ShannonEngine(int maxDepth) {
+    this(maxDepth, null);
+  }
+
+  /**
+   * @param maxDepth maximum number of nested splits.
+   * @param arena    {@link CoverArena} of the current thread or null.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public ShannonEngine(int maxDepth, CoverArena arena) {
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException("Depth can't be negative.");
+    }
+
+    this.arena = arena;
+    frames = new Frame[maxDepth];
+    for (int i = 0; i < maxDepth; i++) {
+      frames[i] = new Frame<>(arena);
+    }
+  }
+
+  /**
+   * Expands the root with first engine that is deep enough for covers with the given
+   * number of inputs and that uses the arena of the current thread.
+   */
+  public static <N, R> R expand(N root, int inputCount, Expansion<N, R> expansion) {
+    return new ShannonEngine<N, R>(inputCount + 1, CoverArena.current()).expand(root, expansion);
+  }
+
+  public R expand(N root, Expansion<N, R> expansion) {
+    return expand(root, expansion, null);
+  }
+
+  /**
+   * @param stopped checked before every node, null if the expansion can't be stopped.
+   * @return result of the root or null if the expansion was stopped. Results of the
+   * subtrees that were solved before are merged, the other ones are dropped.
+   */
+  public R expand(N root, Expansion<N, R> expansion, BooleanSupplier stopped) {
+    if (arena == null) {
+      return expand(root, expansion, stopped, 0);
+    }
+
+//    Levels of an engine that runs inside of first node of another one start below that node.
+    int outerLevel = arena.level();
+    try {
+      return expand(root, expansion, stopped, outerLevel + 1);
+    } finally {
+      arena.release(outerLevel + 1);
+      arena.setLevel(outerLevel);
+    }
+  }
+
+  /**
+   * @param base arena level of the root.
+   */
+  private R expand(N root, Expansion<N, R> expansion, BooleanSupplier stopped, int base) {
+    int depth = 0;
+    N node = root;
+
+    while (true) {
+      if (stopped != null && stopped.getAsBoolean()) {
+        for (int i = 0; i < depth; i++) {
+          frames[i].clear();
+        }
+        return null;
+      }
+
+      if (depth == frames.length) {
+        throw new IllegalStateException("Shannon expansion is deeper than " + frames.length + " splits.");
+      }
+
+      Frame<N, R> frame = frames[depth];
+      if (arena != null) {
+        arena.setLevel(base + depth);
+      }
+      R result = expansion.expand(node, frame.reset(node));
+      if (result == null) {
+        if (frame.children.isEmpty()) {
+          throw new IllegalStateException("Node was neither solved nor split.");
+        }
+
+        depth++;
+        node = frame.children.get(0);
+        continue;
+      }
+      frame.clear();
+
+//      Pass the result up until first frame has an unsolved child.
+      while (true) {
+        if (depth == 0) {
+          return result;
+        }
+
+        Frame<N, R> parent = frames[depth - 1];
+        parent.results.add(result);
+
+        int next = parent.results.size();
+        if (next < parent.children.size() && !expansion.isDecided(parent, result)) {
+          node = parent.children.get(next);
+          break;
+        }
+
+        result = expansion.merge(parent, Collections.unmodifiableList(parent.results));
+        if (result == null) {
+          throw new IllegalStateException("Merge can't return null.");
+        }
+        parent.clear();
+        if (arena != null) {
+          arena.release(base + depth - 1);
+        }
+        depth--;
+      }
+    }
+  }
+
+  /**
+   * Algorithm on top of {@link ShannonEngine}.
+   */
+  public interface Expansion<N, R> {
+    /**
+     * Solves the node or splits it with the given frame.
+     *
+     * @return result of the node or null if the node was split.
+     */
+    R expand(N node, Frame<N, R> frame);
+
+    /**
+     * Called after every child except the last one.
+     *
+     * @return true if the result of the node doesn't depend on the remaining children.
+     */
+    default boolean isDecided(Frame<N, R> frame, R childResult) {
+      return false;
+    }
+
+    /**
+     * @param results results of the solved children in the order of the children.
+     * @return result of the node, never null.
+     */
+    R merge(Frame<N, R> frame, List<R> results);
+  }
+
+  /**
+   * Node that is being expanded and its children.
+   */
+  public static final class Frame<N, R> {
+    private final CoverArena arena;
+    private N node;
+    private int variable;
+    private Object attachment;
+    private final List<N> children = new ArrayList<>(2);
+    private final List<R> results = new ArrayList<>(2);
+
+    private Frame(CoverArena arena) {
+      this.arena = arena;
+    }
+
+    private Frame<N, R> reset(N node) {
+      this.node = node;
+      variable = -1;
+      attachment = null;
+      children.clear();
+      results.clear();
+      return this;
+    }
+
+    private void clear() {
+      reset(null);
+    }
+
+    /**
+     * Shannon expansion with respect to the variable.
+     */
+    public void split(int variable, N negative, N positive) {
+      this.variable = variable;
+      children.add(negative);
+      children.add(positive);
+    }
+
+    /**
+     * Node is replaced by first simpler node with the same result.
+     */
+    public void split(N child) {
+      children.add(child);
+    }
+
+    /**
+     * Any other decomposition, for example into blocks with disjoint supports.
+     */
+    public void split(List<N> children) {
+      this.children.addAll(children);
+    }
+
+    public N getNode() {
+      return node;
+    }
+
+    /**
+     * @return variable of the Shannon expansion or -1 for other splits.
+     */
+    public int getVariable() {
+      return variable;
+    }
+
+    public int getChildCount() {
+      return children.size();
+    }
+
+    /**
+     * @return arena for the children of the node, they live until the node is merged.
+     * Null if the engine doesn't have an arena.
+     */
+    public CoverArena getArena() {
+      return arena;
+    }
+
+    /**
+     * Data that the algorithm needs again in {@link Expansion#merge(Frame, List)}.
+     */
+    public void setAttachment(Object attachment) {
+      this.attachment = attachment;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getAttachment() {
+      return (T) attachment;
+    }
+  }
+}
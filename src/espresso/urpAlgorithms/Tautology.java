@@ -1,30 +1,122 @@
 package espresso.urpAlgorithms;
 
 import espresso.boolFunction.Cover;
-import espresso.boolFunction.cube.Cube;
+import espresso.boolFunction.TruthTable;
+import espresso.boolFunction.cube.CoverArena;
 
-import static espresso.boolFunction.InputState.DONTCARE;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static espresso.boolFunction.cube.CubeEncoding.*;
 
 final public class Tautology {
 
   public static boolean singleOutputTautologyCheck(Cover cover) {
-    Boolean specialCaseCheck = specialCase(cover);
-    if (specialCaseCheck != null) {
-      return specialCaseCheck;
+    return singleOutputTautologyCheck(cover, null);
+  }
+
+  /**
+   * Same as {@link Tautology#singleOutputTautologyCheck(Cover)}, but every node
+   * of the recursion that isn't first trivial special case is looked up in and
+   * stored to the given computed table.
+   *
+   * @param cover {@link Cover}
+   * @param cache {@link TautologyCache} or null for no memoization.
+   * @return true if the cover is first tautology.
+   */
+  public static boolean singleOutputTautologyCheck(Cover cover, TautologyCache cache) {
+    return ShannonEngine.expand(cover, cover.inputCount(), new Check(cache));
+  }
+
+  /**
+   * Same as {@link Tautology#singleOutputTautologyCheck(Cover, TautologyCache)}.
+   *
+   * @param stopped checked before every node of the recursion.
+   * @return true or false, null if the check was stopped.
+   */
+  static Boolean singleOutputTautologyCheck(Cover cover, TautologyCache cache, BooleanSupplier stopped) {
+    return new ShannonEngine<Cover, Boolean>(cover.inputCount() + 1, CoverArena.current())
+        .expand(cover, new Check(cache), stopped);
+  }
+
+  /**
+   * Special cases, unate variable reduction and decomposition into blocks with disjoint
+   * supports are tried first, the cover is first tautology if any of the blocks is. Other
+   * covers are looked up in the computed table, decided by first truth table if the
+   * support is small and split into Shannon cofactors otherwise.
+   */
+  private static final class Check implements ShannonEngine.Expansion<Cover, Boolean> {
+    private final TautologyCache cache;
+
+    Check(TautologyCache cache) {
+      this.cache = cache;
     }
 
-    int splitIndex = cover.binateSelect();
-    Cover[] cofactors = cover.shannonCofactors(splitIndex);
+    @Override
+    public Boolean expand(Cover cover, ShannonEngine.Frame<Cover, Boolean> frame) {
+      Boolean specialCaseCheck = specialCase(cover);
+      if (specialCaseCheck != null) {
+        return specialCaseCheck;
+      }
 
-    if (!singleOutputTautologyCheck(cofactors[0])) {
-      return false;
+      Cover reducedCover = unateReduction(cover, frame.getArena());
+      if (reducedCover != null) {
+        frame.split(reducedCover);
+        return null;
+      }
+
+      List<Cover> components = components(cover, frame.getArena());
+      if (components != null) {
+        frame.split(components);
+        return null;
+      }
+
+      TautologyCache.Key key = null;
+      if (cache != null) {
+        key = TautologyCache.key(cover);
+        Boolean cached = cache.get(key);
+        if (cached != null) {
+          return cached;
+        }
+      }
+
+//      Small support, the whole subtree is decided by first truth table.
+      TruthTable truthTable = TruthTable.of(cover);
+      if (truthTable != null) {
+        return store(key, truthTable.isTautology());
+      }
+
+      int splitIndex = cover.binateSelect();
+      Cover[] cofactors = cover.shannonCofactors(splitIndex, frame.getArena());
+      frame.split(splitIndex, cofactors[0], cofactors[1]);
+      frame.setAttachment(key);
+
+      return null;
     }
 
-    if (!singleOutputTautologyCheck(cofactors[1])) {
-      return true;
+    /**
+     * Both cofactors must be tautologies, one of the blocks must be first tautology.
+     */
+    @Override
+    public boolean isDecided(ShannonEngine.Frame<Cover, Boolean> frame, Boolean childResult) {
+      return frame.getVariable() >= 0 ? !childResult : childResult;
+    }
+
+    @Override
+    public Boolean merge(ShannonEngine.Frame<Cover, Boolean> frame, List<Boolean> results) {
+      Boolean last = results.get(results.size() - 1);
+
+      return frame.getVariable() >= 0 ? store(frame.getAttachment(), last) : last;
     }
 
-    return true;
+    private Boolean store(TautologyCache.Key key, boolean tautology) {
+      if (key != null) {
+        cache.put(key, tautology);
+      }
+
+      return tautology;
+    }
   }
 
   /**
@@ -34,11 +126,20 @@ final public class Tautology {
    * @return {@link Boolean}, true if it is tautology, false if it isn't
    * null if it couldn't tell.
    */
-  private static Boolean specialCase(Cover cover) {
+  static Boolean specialCase(Cover cover) {
+    if (cover.size() == 0) {
+      return false;
+    }
+
     if (cover.hasDONTCARERow()) {
       return true;
     }
 
+//    Unate cover is first tautology only if it has first don't care row.
+    if (cover.isUnate()) {
+      return false;
+    }
+
     for (int i = 0; i < cover.inputCount(); ++i) {
       if (cover.getZeroColumnCount(i) == cover.size()) {
         return false;
@@ -53,24 +154,147 @@ final public class Tautology {
       return false;
     }
 
-    if (cover.size() <= 7) {
-//      TODO: Truth table check.
+    return null;
+  }
+
+  /**
+   * Unate variable reduction. If first variable is unate, the cofactor with respect to
+   * its missing literal is contained in the other cofactor. So the cover is first tautology
+   * only if that cofactor is, which consists of the cubes that don't depend on the variable.
+   *
+   * @param cover {@link Cover}
+   * @return cubes that don't depend on any unate variable or null if no variable is unate.
+   */
+  static Cover unateReduction(Cover cover) {
+    return unateReduction(cover, null);
+  }
+
+  /**
+   * @param arena {@link CoverArena} for the reduced cover or null.
+   */
+  static Cover unateReduction(Cover cover, CoverArena arena) {
+    int inputCount = cover.inputCount();
+    long[] unateColumns = new long[inputWordCount(inputCount)];
+    boolean found = false;
+
+    for (int i = 0; i < inputCount; i++) {
+      if ((cover.getOneColumnCount(i) == 0) != (cover.getZeroColumnCount(i) == 0)) {
+        unateColumns[inputWordIndex(i)] |= DONTCARE_BITS << inputShift(i);
+        found = true;
+      }
+    }
+
+    if (!found) {
       return null;
     }
 
-    return null;
+    Cover retValue = new Cover(inputCount, cover.outputCount(), arena);
+    long[] row = new long[unateColumns.length + outputWordCount(cover.outputCount())];
+
+    for (int i = 0; i < cover.size(); i++) {
+      cover.readRow(i, row, 0);
+
+      int w = 0;
+      while (w < unateColumns.length && (row[w] & unateColumns[w]) == unateColumns[w]) {
+        w++;
+      }
+      if (w == unateColumns.length) {
+        retValue.addRow(row, 0);
+      }
+    }
+
+    return retValue;
+  }
+
+  /**
+   * Splits the cover into connected components of the graph where two variables
+   * are connected if they appear in the same cube.
+   *
+   * @param cover {@link Cover} without don't care rows.
+   * @return covers of the components or null if there is only one.
+   */
+  static List<Cover> components(Cover cover) {
+    return components(cover, null);
+  }
+
+  /**
+   * @param arena {@link CoverArena} for the components or null.
+   */
+  static List<Cover> components(Cover cover, CoverArena arena) {
+    int inputCount = cover.inputCount();
+    int inputWords = inputWordCount(inputCount);
+    int[] parent = new int[inputCount];
+    int[] firstColumn = new int[cover.size()];
+    long[] row = new long[inputWords + outputWordCount(cover.outputCount())];
+
+    for (int i = 0; i < inputCount; i++) {
+      parent[i] = i;
+    }
+
+    for (int i = 0; i < cover.size(); i++) {
+      cover.readRow(i, row, 0);
+      firstColumn[i] = -1;
+
+      for (int w = 0; w < inputWords; w++) {
+        for (long literals = oneFields(row[w]) | zeroFields(row[w]); literals != 0; literals &= literals - 1) {
+          int column = w * INPUTS_PER_WORD + Long.numberOfTrailingZeros(literals) / 2;
+
+          if (firstColumn[i] < 0) {
+            firstColumn[i] = column;
+          } else {
+            parent[find(parent, column)] = find(parent, firstColumn[i]);
+          }
+        }
+      }
+    }
+
+    int componentCount = 0;
+    int[] component = new int[inputCount];
+    for (int i = 0; i < cover.size(); i++) {
+      int root = firstColumn[i] < 0 ? -1 : find(parent, firstColumn[i]);
+      if (root >= 0 && component[root] == 0) {
+        component[root] = ++componentCount;
+      }
+    }
+
+    if (componentCount < 2) {
+      return null;
+    }
+
+    List<Cover> retValue = new ArrayList<>(componentCount);
+    for (int c = 0; c < componentCount; c++) {
+      retValue.add(new Cover(inputCount, cover.outputCount(), arena));
+    }
+    for (int i = 0; i < cover.size(); i++) {
+      if (firstColumn[i] >= 0) {
+        cover.readRow(i, row, 0);
+        retValue.get(component[find(parent, firstColumn[i])] - 1).addRow(row, 0);
+      }
+    }
+
+    return retValue;
+  }
+
+  private static int find(int[] parent, int column) {
+    while (parent[column] != column) {
+      parent[column] = parent[parent[column]];
+      column = parent[column];
+    }
+
+    return column;
   }
 
   private static double mintermCountUpperBound(Cover cover) {
+    int inputWords = inputWordCount(cover.inputCount());
+    long[] row = new long[inputWords + outputWordCount(cover.outputCount())];
     double retValue = 0;
 
-    for (Cube cube : cover) {
+    for (int i = 0; i < cover.size(); i++) {
+      cover.readRow(i, row, 0);
       int dontcareCount = 0;
 
-      for (int i = 0; i < cube.inputLength(); ++i) {
-        if (cube.getInputState(i) == DONTCARE) {
-          ++dontcareCount;
-        }
+      for (int w = 0; w < inputWords; w++) {
+        dontcareCount += Long.bitCount(dontcareFields(row[w]));
       }
 
       retValue += Math.pow(2, dontcareCount);
@@ -0,0 +1,188 @@
+package espresso.urpAlgorithms;
+
+import espresso.boolFunction.Cover;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static espresso.boolFunction.cube.CubeEncoding.*;
+
+/**
+ * Computed table for {@link Tautology#singleOutputTautologyCheck(Cover, TautologyCache)}.<br/>
+ * <br/>
+ * Covers are canonicalized before the lookup: input parts of all non empty cubes
+ * are packed, sorted and duplicates are removed, output parts are ignored. So the
+ * same sub-problem reached from different cubes, in first different order, or in
+ * another iteration of the minimizer is decided only once. The table keeps at most
+ * {@link TautologyCache#capacity()} results and evicts the least recently used one.
+ * The table is thread safe.
+ */
+public final class TautologyCache {
+  public static final int DEFAULT_CAPACITY = 1 << 14;
+
+  private static final TautologyCache instance = new TautologyCache(DEFAULT_CAPACITY);
+
+  private final int capacity;
+  private final Map<Key, Boolean> table;
+
+  private long hitCount;
+  private long missCount;
+
+  /**
+   * Shared table used by the espresso minimizer.
+   */
+  public static TautologyCache getInstance() {
+    return instance;
+  }
+
+  public TautologyCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive.");
+    }
+
+    this.capacity = capacity;
+    this.table = new LinkedHashMap<Key, Boolean>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+        return size() > TautologyCache.this.capacity;
+      }
+    };
+  }
+
+  /**
+   * Canonical form of first cover, see {@link TautologyCache}.
+   */
+  static final class Key {
+    private final int inputCount;
+    private final long[] rows;
+    private final int hash;
+
+    private Key(int inputCount, long[] rows) {
+      this.inputCount = inputCount;
+      this.rows = rows;
+      this.hash = 31 * inputCount + hashRow(rows, 0, rows.length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      Key key = (Key) o;
+
+      return hash == key.hash && inputCount == key.inputCount && Arrays.equals(rows, key.rows);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  static Key key(Cover cover) {
+    int inputCount = cover.inputCount();
+    int inputWords = inputWordCount(inputCount);
+    int stride = inputWords + outputWordCount(cover.outputCount());
+    long[] row = new long[stride];
+    long[][] rows = new long[cover.size()][];
+    int count = 0;
+
+    for (int i = 0; i < cover.size(); i++) {
+      cover.readRow(i, row, 0);
+      if (!isEmptyRow(row, inputCount, inputWords, stride)) {
+        rows[count++] = Arrays.copyOf(row, inputWords);
+      }
+    }
+
+    Arrays.sort(rows, 0, count, TautologyCache::compareRows);
+
+    long[] retValue = new long[count * inputWords];
+    int distinct = 0;
+    for (int i = 0; i < count; i++) {
+      if (i == 0 || compareRows(rows[i - 1], rows[i]) != 0) {
+        System.arraycopy(rows[i], 0, retValue, distinct++ * inputWords, inputWords);
+      }
+    }
+
+    return new Key(inputCount, Arrays.copyOf(retValue, distinct * inputWords));
+  }
+
+  private static boolean isEmptyRow(long[] row, int inputCount, int inputWords, int stride) {
+    for (int w = 0; w < inputWords; w++) {
+      if (emptyFields(row[w], inputMask(inputCount, w)) != 0) {
+        return true;
+      }
+    }
+    for (int w = inputWords; w < stride; w++) {
+      if (row[w] != 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static int compareRows(long[] a, long[] b) {
+    for (int i = 0; i < a.length; i++) {
+      int retValue = Long.compare(a[i], b[i]);
+      if (retValue != 0) {
+        return retValue;
+      }
+    }
+
+    return 0;
+  }
+
+  /**
+   * @return cached result or null.
+   */
+  synchronized Boolean get(Key key) {
+    Boolean retValue = table.get(key);
+
+    if (retValue == null) {
+      missCount++;
+    } else {
+      hitCount++;
+    }
+
+    return retValue;
+  }
+
+  synchronized void put(Key key, boolean tautology) {
+    table.put(key, tautology);
+  }
+
+  public synchronized int size() {
+    return table.size();
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return share of lookups answered from the table, 0 if there were none.
+   */
+  public synchronized double getHitRate() {
+    long lookups = hitCount + missCount;
+    return lookups == 0 ? 0 : (double) hitCount / lookups;
+  }
+
+  public synchronized void resetCounters() {
+    hitCount = 0;
+    missCount = 0;
+  }
+
+  public synchronized void clear() {
+    table.clear();
+  }
+}
@@ -0,0 +1,333 @@
+package espresso.urpAlgorithms;
+
+import espresso.boolFunction.Cover;
+import espresso.boolFunction.cube.CubeEncoding;
+import espresso.boolFunction.cube.CubePool;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static espresso.boolFunction.cube.CubeEncoding.*;
+
+/**
+ * Complement of unate covers computed as first monotone dualization.<br/>
+ * <br/>
+ * Every cube of first unate cover is the set of its literals and first cube of the
+ * complement has to contradict all of them. So the prime cubes of the complement are the
+ * minimal sets of columns that meet every cube of the cover (minimal transversals), with
+ * the literals complemented. The transversals are generated by the decomposition on the
+ * most frequent variable that the duality test of Fredman and Khachiyan uses, see
+ * {@link TransversalComplement#transversals(List, int)}. Unlike the Shannon recursion of
+ * {@link UnateOperations#unateComplement(Cover)} no cube is generated twice or has to be
+ * removed by first containment check.<br/>
+ * <br/>
+ * Sets of columns are bitsets with the low bit of every input field of the packed rows,
+ * see {@link CubeEncoding}. Nothing is shared between calls, so first complement can run
+ * in any number of threads.
+ */
+public final class TransversalComplement {
+
+  private TransversalComplement() {
+  }
+
+  public static Cover complement(Cover cover) {
+    return complement(cover, null);
+  }
+
+  /**
+   * Complement of first unate cover. Output parts are ignored like in
+   * {@link Complement#singleOutputComplement(Cover)}, all outputs of the result are set.
+   *
+   * @param cover unate {@link Cover}
+   * @param pool  {@link CubePool} or null for no interning.
+   * @return {@link Cover} of all prime cubes of the complement.
+   */
+  public static Cover complement(Cover cover, CubePool pool) {
+    return complement(cover, pool, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param budget maximum number of cubes in the complement.
+   * @return complement of the cover or null if it has more cubes than the budget.
+   */
+  static Cover complement(Cover cover, CubePool pool, int budget) {
+    if (cover.size() != 0 && !cover.isUnate())
+      throw new UnsupportedOperationException("Can't perform unate complement on non unate covers.");
+
+    int inputCount = cover.inputCount();
+    int outputCount = cover.outputCount();
+    Cover retValue = new Cover(inputCount, outputCount);
+
+    List<long[]> edges = literalSets(cover);
+    if (edges.isEmpty()) {
+      retValue.add(Complement.universalCube(inputCount, outputCount, pool));
+      return retValue;
+    }
+//    Unate cover with first don't care row is first tautology.
+    if (isZero(edges.get(0))) {
+      return retValue;
+    }
+
+    List<long[]> transversals = transversals(edges, inputWordCount(inputCount), budget);
+    if (transversals == null) {
+      return null;
+    }
+
+    long[] row = new long[inputWordCount(inputCount) + outputWordCount(outputCount)];
+    for (long[] transversal : transversals) {
+      complementedLiterals(cover, transversal, row);
+      if (pool == null) {
+        retValue.addRow(row, 0);
+      } else {
+        retValue.add(pool.intern(row, 0, inputCount, outputCount));
+      }
+    }
+
+    return retValue;
+  }
+
+  /**
+   * @return minimal literal sets of the non empty cubes, first set is the smallest one.
+   */
+  private static List<long[]> literalSets(Cover cover) {
+    int inputWords = inputWordCount(cover.inputCount());
+    long[] row = new long[inputWords + outputWordCount(cover.outputCount())];
+    List<long[]> retValue = new ArrayList<>();
+
+    for (int i = 0; i < cover.size(); i++) {
+      cover.readRow(i, row, 0);
+      if (isEmptyRow(row, cover.inputCount(), inputWords)) {
+        continue;
+      }
+
+      long[] literals = new long[inputWords];
+      for (int w = 0; w < inputWords; w++) {
+        literals[w] = ~dontcareFields(row[w]) & LOW_BITS & inputMask(cover.inputCount(), w);
+      }
+      retValue.add(literals);
+    }
+
+    return minimal(retValue);
+  }
+
+  private static boolean isEmptyRow(long[] row, int inputCount, int inputWords) {
+    for (int w = 0; w < inputWords; w++) {
+      if (emptyFields(row[w], inputMask(inputCount, w)) != 0) {
+        return true;
+      }
+    }
+    for (int w = inputWords; w < row.length; w++) {
+      if (row[w] != 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Writes first cube with the complemented literal of the cover in every column of the set.
+   */
+  private static void complementedLiterals(Cover cover, long[] columns, long[] row) {
+    int inputWords = columns.length;
+
+    for (int w = 0; w < inputWords; w++) {
+      row[w] = inputMask(cover.inputCount(), w);
+
+      for (long bits = columns[w]; bits != 0; bits &= bits - 1) {
+        int shift = Long.numberOfTrailingZeros(bits);
+        int column = w * INPUTS_PER_WORD + shift / 2;
+        long literal = cover.getOneColumnCount(column) != 0 ? ZERO_BITS : ONE_BITS;
+        row[w] &= ~(DONTCARE_BITS << shift) | (literal << shift);
+      }
+    }
+    for (int w = inputWords; w < row.length; w++) {
+      row[w] = outputMask(cover.outputCount(), w - inputWords);
+    }
+  }
+
+  //region Transversals
+  /**
+   * Minimal transversals of first hypergraph with minimal edges. With x the most frequent
+   * variable, H0 the edges without x and H1 the edges with x where x is removed, the
+   * minimal transversals are:
+   * <ul>
+   * <li>minimal transversals of H0 + H1 (the ones without x) and</li>
+   * <li>minimal transversals T of H0 that miss some edge of H1, extended with x.</li>
+   * </ul>
+   * Both kinds are minimal, so every transversal is generated exactly once and no
+   * containment check of the results is needed.
+   *
+   * @return transversals or null if there are more than the given limit.
+   */
+  static List<long[]> transversals(List<long[]> edges, int words, int limit) {
+    List<long[]> retValue = new ArrayList<>();
+
+    if (edges.isEmpty()) {
+      retValue.add(new long[words]);
+      return retValue;
+    }
+    if (isZero(edges.get(0))) {
+      return retValue;
+    }
+    if (edges.size() == 1) {
+      long[] edge = edges.get(0);
+      for (int w = 0; w < words; w++) {
+        for (long bits = edge[w]; bits != 0; bits &= bits - 1) {
+          long[] transversal = new long[words];
+          transversal[w] = Long.lowestOneBit(bits);
+          retValue.add(transversal);
+        }
+      }
+      return retValue.size() > limit ? null : retValue;
+    }
+
+    int variable = mostFrequentVariable(edges, words);
+    int word = variable / Long.SIZE;
+    long bit = 1L << (variable % Long.SIZE);
+
+    List<long[]> without = new ArrayList<>();
+    List<long[]> with = new ArrayList<>();
+    split(edges, word, bit, without, with);
+
+    List<long[]> all = new ArrayList<>(without);
+    all.addAll(with);
+    List<long[]> withoutVariable = transversals(minimal(all), words, limit);
+    if (withoutVariable == null) {
+      return null;
+    }
+    retValue.addAll(withoutVariable);
+
+    List<long[]> withVariable = transversals(without, words, limit);
+    if (withVariable == null) {
+      return null;
+    }
+    for (long[] transversal : withVariable) {
+      if (!meetsAll(with, transversal)) {
+        transversal[word] |= bit;
+        retValue.add(transversal);
+      }
+    }
+
+    return retValue.size() > limit ? null : retValue;
+  }
+
+  private static int mostFrequentVariable(List<long[]> edges, int words) {
+    int[] counts = new int[words * Long.SIZE];
+    for (long[] edge : edges) {
+      for (int w = 0; w < words; w++) {
+        for (long bits = edge[w]; bits != 0; bits &= bits - 1) {
+          counts[w * Long.SIZE + Long.numberOfTrailingZeros(bits)]++;
+        }
+      }
+    }
+
+    int retValue = 0;
+    for (int i = 1; i < counts.length; i++) {
+      if (counts[i] > counts[retValue]) {
+        retValue = i;
+      }
+    }
+
+    return retValue;
+  }
+
+  /**
+   * Edges without the variable go to the first list, the other edges
+   * go to the second one with the variable removed.
+   */
+  private static void split(List<long[]> edges, int word, long bit, List<long[]> without, List<long[]> with) {
+    for (long[] edge : edges) {
+      if ((edge[word] & bit) == 0) {
+        without.add(edge);
+      } else {
+        long[] reduced = edge.clone();
+        reduced[word] &= ~bit;
+        with.add(reduced);
+      }
+    }
+  }
+
+  /**
+   * @return sets that don't contain any other set, without duplicates and sorted by size.
+   */
+  private static List<long[]> minimal(List<long[]> sets) {
+    List<long[]> sorted = new ArrayList<>(sets);
+    sorted.sort(Comparator.comparingInt(TransversalComplement::count));
+
+    List<long[]> retValue = new ArrayList<>();
+    for (long[] set : sorted) {
+      if (!containsSet(retValue, set)) {
+        retValue.add(set);
+      }
+    }
+
+    return retValue;
+  }
+  //endregion
+
+  //region Bitset helpers
+  /**
+   * @return true if some of the sets is first subset of the given set.
+   */
+  private static boolean containsSet(List<long[]> sets, long[] set) {
+    for (long[] s : sets) {
+      if (isSubset(s, set)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private static boolean meetsAll(List<long[]> sets, long[] set) {
+    for (long[] s : sets) {
+      if (!intersects(s, set)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean isSubset(long[] a, long[] b) {
+    for (int w = 0; w < a.length; w++) {
+      if ((a[w] & ~b[w]) != 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean intersects(long[] a, long[] b) {
+    for (int w = 0; w < a.length; w++) {
+      if ((a[w] & b[w]) != 0) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private static boolean isZero(long[] set) {
+    for (long word : set) {
+      if (word != 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static int count(long[] set) {
+    int retValue = 0;
+    for (long word : set) {
+      retValue += Long.bitCount(word);
+    }
+
+    return retValue;
+  }
+  //endregion
+}
@@ -2,62 +2,74 @@ package espresso.urpAlgorithms;
 
 import espresso.boolFunction.Cover;
 import espresso.boolFunction.cube.Cube;
+import espresso.boolFunction.cube.CubePool;
+
+import java.util.List;
 
 import static espresso.boolFunction.InputState.DONTCARE;
-import static espresso.boolFunction.InputState.ONE;
 
 final public class UnateOperations {
-  private static int inputCount = 0;
-  private static int outputCount = 0;
 
   private UnateOperations() {
   }
 
   public static Cover unateComplement(Cover cover) {
+    return unateComplement(cover, null);
+  }
+
+  /**
+   * Same as {@link UnateOperations#unateComplement(Cover)}. Cubes generated by the
+   * recursion are interned in the given pool.
+   *
+   * @param pool {@link CubePool} or null for no interning.
+   */
+  public static Cover unateComplement(Cover cover, CubePool pool) {
     if (!cover.isUnate())
       throw new UnsupportedOperationException("Can't perform unate complement on non unate covers.");
 
-    inputCount = cover.inputCount();
-    outputCount = cover.outputCount();
-
-    return recursiveUnateComplement(cover);
-  }
+    return ShannonEngine.expand(cover, cover.inputCount(), new ShannonEngine.Expansion<Cover, Cover>() {
+      @Override
+      public Cover expand(Cover node, ShannonEngine.Frame<Cover, Cover> frame) {
+        Cover retValue = specialCase(node, pool);
+        if (retValue != null) {
+          return retValue;
+        }
 
-  private static Cover recursiveUnateComplement(Cover cover) {
-    //region Debug
-//    System.out.println("Current cover:");
-//    System.out.println(cover);
-    //endregion
-    Cover retValue = specialCase(cover);
+        int splitIndex = unateComplementBinateSelect(node);
+        Cover[] cofactors = node.shannonCofactors(splitIndex, frame.getArena());
+        frame.split(splitIndex, cofactors[0], cofactors[1]);
 
-    if (retValue != null) {
-      return retValue;
-    }
+        return null;
+      }
 
-    int splitIndex = unateComplementBinateSelect(cover);
-    Cube splittingCube = new Cube(inputCount, outputCount);
-    splittingCube.setInput(ONE, splitIndex);
-    Cover[] cofactors = cover.shannonCofactors(splitIndex);
-
-    //region Debug
-//    System.out.println("Splitting cubes:");
-//    System.out.println(splittingCube.copy().inputComplement());
-//    System.out.println(splittingCube);
-//    System.out.println("\nCofactors:");
-//    System.out.println(cofactors[0]);
-//    System.out.println(cofactors[1]);
-//    System.out.println("--------------------------------------------------");
-    //endregion
+      @Override
+      public Cover merge(ShannonEngine.Frame<Cover, Cover> frame, List<Cover> results) {
+        return UnateOperations.merge(frame.getNode(), frame.getVariable(), results.get(0), results.get(1), pool);
+      }
+    });
+  }
 
+  /**
+   * Puts together the complement of first unate cover from the complements of its
+   * Shannon cofactors with respect to the split variable. Only the cofactor of the
+   * missing literal needs the split literal, the other cofactor is contained in it.
+   *
+   * @param negativeComplement complement of the cofactor with respect to the complemented variable.
+   * @param positiveComplement complement of the cofactor with respect to the variable.
+   * @return complement of the cover.
+   */
+  static Cover merge(Cover cover, int splitIndex, Cover negativeComplement, Cover positiveComplement,
+                     CubePool pool) {
+    Cube splittingCube = cover.generateVariableCube(splitIndex, pool);
     Cover left;
     Cover right;
 
     if (cover.getZeroColumnCount(splitIndex) == 0) {
-      left = recursiveUnateComplement(cofactors[1]);
-      right = splittingCube.complement().intersect(recursiveUnateComplement(cofactors[0]));
+      left = positiveComplement;
+      right = splittingCube.complement(pool).intersect(negativeComplement);
     } else if (cover.getOneColumnCount(splitIndex) == 0) {
-      left = Cover.of(splittingCube).intersect(recursiveUnateComplement(cofactors[1]));
-      right = recursiveUnateComplement(cofactors[0]);
+      left = Cover.of(splittingCube).intersect(positiveComplement);
+      right = negativeComplement;
     } else {
       throw new UnsupportedOperationException("Call the poor programmer.");
     }
@@ -65,7 +77,7 @@ final public class UnateOperations {
     return left.union(right);
   }
 
-  private static Cover specialCase(Cover cover) {
+  static Cover specialCase(Cover cover, CubePool pool) {
     Cover retValue = new Cover(cover.inputCount(), cover.outputCount());
 
 //    Unate cover with don't care rows are tautologies.
@@ -75,13 +87,13 @@ final public class UnateOperations {
 
 //    Function is empty so the complement is first tautology.
     if (cover.size() == 0) {
-      retValue.add(new Cube(inputCount, outputCount));
+      retValue.add(Complement.universalCube(cover.inputCount(), cover.outputCount(), pool));
       return retValue;
     }
 
 //    Only one cube so complement is calculated using De Morgan laws.
     if (cover.size() == 1) {
-      return cover.get(0).complement();
+      return cover.get(0).complement(pool);
     }
 
 //    Not first special case.
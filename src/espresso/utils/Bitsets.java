@@ -0,0 +1,78 @@
+package espresso.utils;
+
+/**
+ * Scans of bitsets that are packed into longs, bit i is bit i % 64 of word i / 64.
+ */
+public final class Bitsets {
+
+  private Bitsets() {
+  }
+
+  /**
+   * @param bitset  bitset.
+   * @param skipped bits that are skipped, null to skip none.
+   * @param from    first index.
+   * @param length  number of bits in the bitset.
+   * @return first set bit with an index of at least from or -1.
+   */
+  public static int nextSetBit(long[] bitset, long[] skipped, int from, int length) {
+    if (from >= length) {
+      return -1;
+    }
+
+    int word = from >>> 6;
+    int words = (length + 63) >>> 6;
+    long bits = bitset[word] & (skipped == null ? -1L : ~skipped[word]) & (-1L << from);
+    while (bits == 0) {
+      if (++word == words) {
+        return -1;
+      }
+      bits = bitset[word] & (skipped == null ? -1L : ~skipped[word]);
+    }
+
+    int retValue = (word << 6) + Long.numberOfTrailingZeros(bits);
+    return retValue < length ? retValue : -1;
+  }
+
+  /**
+   * @param bitset bitset.
+   * @param from   first index.
+   * @param length number of bits in the bitset.
+   * @return first clear bit with an index of at least from or -1.
+   */
+  public static int nextClearBit(long[] bitset, int from, int length) {
+    if (from >= length) {
+      return -1;
+    }
+
+    int word = from >>> 6;
+    int words = (length + 63) >>> 6;
+    long bits = ~bitset[word] & (-1L << from);
+    while (bits == 0) {
+      if (++word == words) {
+        return -1;
+      }
+      bits = ~bitset[word];
+    }
+
+    int retValue = (word << 6) + Long.numberOfTrailingZeros(bits);
+    return retValue < length ? retValue : -1;
+  }
+
+  public static boolean get(long[] bitset, int index) {
+    return (bitset[index >>> 6] & (1L << index)) != 0;
+  }
+
+  public static void set(long[] bitset, int index) {
+    bitset[index >>> 6] |= 1L << index;
+  }
+
+  public static int count(long[] bitset, int length) {
+    int retValue = 0;
+    for (int w = 0; w < (length + 63) >>> 6; w++) {
+      retValue += Long.bitCount(bitset[w]);
+    }
+
+    return retValue;
+  }
+}
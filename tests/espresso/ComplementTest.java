@@ -1,9 +1,28 @@
 package espresso;
 
 import espresso.boolFunction.Cover;
+import espresso.boolFunction.InputState;
+import espresso.boolFunction.TruthTable;
+import espresso.boolFunction.cube.Cube;
 import espresso.urpAlgorithms.Complement;
+import espresso.urpAlgorithms.OffSetCache;
+import espresso.urpAlgorithms.ParallelComplement;
+import espresso.urpAlgorithms.Tautology;
+import espresso.urpAlgorithms.TransversalComplement;
+import espresso.urpAlgorithms.UnateOperations;
 import org.junit.Test;
 
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+
+import static espresso.TestCovers.covers;
+import static espresso.TestCovers.randomCover;
+import static espresso.boolFunction.InputState.DONTCARE;
+import static espresso.boolFunction.InputState.ONE;
+import static espresso.boolFunction.InputState.ZERO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class ComplementTest {
@@ -33,4 +52,166 @@ public class ComplementTest {
     }
   }
 
-}
\ No newline at end of file
+  @Test
+  public void parallelComplementShouldMatchSequentialComplement() throws Exception {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    ParallelComplement parallel = new ParallelComplement(pool, 2, 10);
+    Random random = new Random(23);
+    int inputCount = TruthTable.MAX_VARIABLES + 4;
+
+    try {
+      for (String file : new String[]{"testCase1.txt", "testCase2.txt", "testCase3.txt"}) {
+        Cover c = new Cover(file);
+        assertEquals(Complement.singleOutputComplement(new Cover(c)), parallel.singleOutputComplement(new Cover(c)));
+      }
+
+      for (int k = 0; k < 20; k++) {
+        Cover cover = new Cover(inputCount, 1);
+        for (int i = 0; i < 10 + random.nextInt(30); i++) {
+          Cube cube = new Cube(inputCount, 1);
+          for (int j = 0; j < inputCount; j++) {
+            int r = random.nextInt(10);
+            if (r < 2 && (k % 2 == 0 || r == 1)) cube.setInput(r == 0 ? ZERO : ONE, j);
+          }
+          cover.add(cube);
+        }
+
+        Cover expected = Complement.singleOutputComplement(new Cover(cover));
+        assertEquals("Cover " + k, expected, parallel.singleOutputComplement(new Cover(cover)));
+        assertEquals("Cover " + k, 0, expected.intersect(cover).size());
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void multipleOutputComplementShouldComplementEveryOutput() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    Random random = new Random(29);
+    int inputCount = 7;
+    int outputCount = 3;
+
+    try {
+      for (int k = 0; k < 20; k++) {
+        Cover onSet = randomCover(random, inputCount, outputCount, 12, 3);
+        Cover dontcareSet = randomCover(random, inputCount, outputCount, 3, 3);
+
+        Cover complement = Complement.complement(onSet, dontcareSet);
+        assertEquals("Cover " + k, complement, Complement.complement(onSet, dontcareSet, null, pool));
+
+        for (int m = 0; m < 1 << inputCount; m++) {
+          for (int o = 0; o < outputCount; o++) {
+            boolean onOrDontcare = covers(onSet, m, o) || covers(dontcareSet, m, o);
+            assertTrue("Cover " + k + ", minterm " + m + ", output " + o,
+                onOrDontcare != covers(complement, m, o));
+          }
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void transversalComplementShouldReturnAllPrimesOfTheComplement() throws Exception {
+    Random random = new Random(31);
+    int inputCount = TruthTable.MAX_VARIABLES + 8;
+
+    for (int k = 0; k < 20; k++) {
+      Cover cover = new Cover(inputCount, 1);
+      for (int i = 0; i < 5 + random.nextInt(20); i++) {
+        Cube cube = new Cube(inputCount, 1);
+        for (int j = 0; j < inputCount; j++) {
+          if (random.nextInt(6) == 0) cube.setInput(j % 3 == 0 ? ZERO : ONE, j);
+        }
+        cover.add(cube);
+      }
+
+      Cover complement = TransversalComplement.complement(cover);
+      assertEquals("Cover " + k, 0, complement.intersect(cover).size());
+      assertTrue("Cover " + k, Tautology.singleOutputTautologyCheck(complement.union(cover)));
+
+      for (Cube cube : complement) {
+        for (int j = 0; j < inputCount; j++) {
+          if (cube.getInputState(j) == DONTCARE) continue;
+
+          Cube raised = new Cube(cube);
+          raised.setInput(DONTCARE, j);
+          assertTrue("Cover " + k + ", prime " + cube, Cover.of(raised).intersect(cover).size() != 0);
+        }
+      }
+
+      for (Cube cube : UnateOperations.unateComplement(new Cover(cover))) {
+        boolean contained = false;
+        for (Cube prime : complement) {
+          boolean primeContains = true;
+          for (int j = 0; j < inputCount; j++) {
+            primeContains &= prime.getInputState(j) == DONTCARE || prime.getInputState(j) == cube.getInputState(j);
+          }
+          contained |= primeContains;
+        }
+        assertTrue("Cover " + k + ", cube " + cube, contained);
+      }
+    }
+  }
+
+  @Test
+  public void offSetCacheShouldComplementFirstFunctionOnlyOnce() {
+    OffSetCache cache = new OffSetCache(1000);
+    Random random = new Random(37);
+    Cover onSet = randomCover(random, 8, 2, 10, 3);
+    Cover dontcareSet = randomCover(random, 8, 2, 3, 3);
+    int[] complementCount = {0};
+    BinaryOperator<Cover> complement = (f, d) -> {
+      complementCount[0]++;
+      return Complement.complement(f, d);
+    };
+
+    Cover offSet = cache.complement(onSet, dontcareSet, complement);
+    offSet.remove(0);
+
+//    Same function with the cubes in reverse order, moved between the covers and repeated.
+    Cover reordered = new Cover(onSet.inputCount(), onSet.outputCount());
+    for (int i = dontcareSet.size() - 1; i >= 0; i--) reordered.add(dontcareSet.get(i).copy());
+    for (int i = onSet.size() - 1; i >= 0; i--) reordered.add(onSet.get(i).copy());
+    reordered.add(onSet.get(0).copy());
+    Cover cached = cache.complement(reordered, new Cover(onSet.inputCount(), onSet.outputCount()), complement);
+
+    assertEquals(1, complementCount[0]);
+    assertEquals(1, cache.getHitCount());
+    assertEquals(Complement.complement(onSet, dontcareSet), cached);
+
+    cache.complement(randomCover(random, 8, 2, 10, 3), dontcareSet, complement);
+    assertEquals(2, complementCount[0]);
+    assertTrue(cache.weight() <= cache.capacity());
+
+    OffSetCache small = new OffSetCache(cached.size());
+    small.complement(onSet, dontcareSet, complement);
+    small.complement(randomCover(random, 8, 2, 10, 3), dontcareSet, complement);
+    assertEquals(1, small.size());
+    assertTrue(small.weight() <= small.capacity());
+  }
+
+  @Test
+  public void boundedComplementShouldGiveUpAboveTheBudget() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    ParallelComplement parallel = new ParallelComplement(pool, 2, 10);
+    Random random = new Random(43);
+
+    try {
+      for (int k = 0; k < 10; k++) {
+        Cover onSet = randomCover(random, 20, 1, 30, 3);
+        Cover dontcareSet = new Cover(20, 1);
+        Cover complement = Complement.complement(onSet, dontcareSet);
+
+        assertEquals("Cover " + k, complement, Complement.complement(onSet, dontcareSet, complement.size()));
+        assertEquals("Cover " + k, complement, parallel.complement(onSet, dontcareSet, complement.size()));
+        assertNull("Cover " + k, Complement.complement(onSet, dontcareSet, complement.size() - 1));
+        assertNull("Cover " + k, parallel.complement(onSet, dontcareSet, complement.size() - 1));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package espresso;
+
+import espresso.boolFunction.Cover;
+import espresso.boolFunction.InputState;
+import espresso.boolFunction.cube.Cube;
+
+import java.util.Random;
+
+import static espresso.boolFunction.InputState.DONTCARE;
+import static espresso.boolFunction.InputState.ONE;
+import static espresso.boolFunction.InputState.ZERO;
+import static espresso.boolFunction.OutputState.NOT_OUTPUT;
+import static espresso.boolFunction.OutputState.OUTPUT;
+
+/**
+ * Random cubes and covers for the tests. Every input is zero or one with probability
+ * 1 / bound each, otherwise it's first don't care.
+ */
+public final class TestCovers {
+
+  private TestCovers() {
+  }
+
+  /**
+   * Single output cube.
+   */
+  public static Cube randomCube(Random random, int inputCount, int bound) {
+    Cube retValue = new Cube(inputCount, 1);
+    for (int j = 0; j < inputCount; j++) {
+      int r = random.nextInt(bound);
+      if (r < 2) retValue.setInput(r == 0 ? ZERO : ONE, j);
+    }
+
+    return retValue;
+  }
+
+  /**
+   * Every output is dropped with probability 1 / 2.
+   */
+  public static Cube randomCube(Random random, int inputCount, int outputCount, int bound) {
+    Cube retValue = new Cube(inputCount, outputCount);
+    for (int j = 0; j < inputCount; j++) {
+      int r = random.nextInt(bound);
+      if (r < 2) retValue.setInput(r == 0 ? ZERO : ONE, j);
+    }
+    for (int j = 0; j < outputCount; j++) {
+      if (random.nextBoolean()) retValue.setOutput(NOT_OUTPUT, j);
+    }
+
+    return retValue;
+  }
+
+  /**
+   * Single output cover.
+   */
+  public static Cover randomCover(Random random, int inputCount, int size, int bound) {
+    Cover retValue = new Cover(inputCount, 1);
+    for (int i = 0; i < size; i++) {
+      retValue.add(randomCube(random, inputCount, bound));
+    }
+
+    return retValue;
+  }
+
+  /**
+   * @see TestCovers#randomCube(Random, int, int, int)
+   */
+  public static Cover randomCover(Random random, int inputCount, int outputCount, int size, int bound) {
+    Cover retValue = new Cover(inputCount, outputCount);
+    for (int i = 0; i < size; i++) {
+      retValue.add(randomCube(random, inputCount, outputCount, bound));
+    }
+
+    return retValue;
+  }
+
+  /**
+   * @param minterm inputs of the minterm, input j is bit j.
+   * @return whether first cube of the cover has the output and contains the minterm.
+   */
+  public static boolean covers(Cover cover, int minterm, int output) {
+    for (Cube cube : cover) {
+      boolean covered = cube.getOutputState(output) == OUTPUT;
+      for (int j = 0; j < cover.inputCount() && covered; j++) {
+        InputState state = cube.getInputState(j);
+        covered = state == DONTCARE || (state == ONE) == ((minterm >> j & 1) == 1);
+      }
+      if (covered) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+}
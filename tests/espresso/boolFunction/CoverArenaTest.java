@@ -0,0 +1,79 @@
+package espresso.boolFunction;
+
+import espresso.boolFunction.cube.CoverArena;
+import espresso.boolFunction.cube.Cube;
+import espresso.urpAlgorithms.Tautology;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static espresso.TestCovers.randomCover;
+import static org.junit.Assert.*;
+
+public class CoverArenaTest {
+
+  @Test
+  public void arenaCoversShouldMatchCoversAndReuseReleasedStorage() {
+    Random random = new Random(7);
+    CoverArena arena = new CoverArena();
+    Cover cover = randomCover(random, 40, 30, 5);
+    Cover other = randomCover(random, 40, 30, 5);
+    Cube cube = new Cube(40, 1);
+    cube.setInput(InputState.ONE, 3);
+
+    arena.setLevel(0);
+    Cover[] cofactors = cover.shannonCofactors(5, arena);
+    Cover[] expected = cover.shannonCofactors(5);
+    assertEquals(expected[0], cofactors[0]);
+    assertEquals(expected[1], cofactors[1]);
+    assertEquals(cover.cofactor(cube), cover.cofactor(cube, arena));
+    assertEquals(cover.intersect(other), cover.intersect(other, arena));
+    assertEquals(cover.union(other), cover.union(other, arena));
+
+//    Copies and cubes taken out of arena covers stay valid after the release.
+    Cover copy = new Cover(cofactors[1]);
+    Cube view = cofactors[0].get(0);
+    Cube viewCopy = view.copy();
+
+    long allocations = arena.getAllocationCount();
+    assertTrue(allocations > 0);
+    arena.release(0);
+
+    assertEquals(expected[1], copy);
+    assertEquals(viewCopy, view);
+
+    assertEquals(expected[0], cover.shannonCofactors(5, arena)[0]);
+    assertEquals(cover.cofactor(cube), cover.cofactor(cube, arena));
+    assertTrue(arena.getReuseCount() > 0);
+    arena.release(0);
+    arena.setLevel(-1);
+  }
+
+  @Test
+  public void arenaShouldAllocateNormallyOutsideOfLevels() {
+    CoverArena arena = new CoverArena();
+    Cover cover = randomCover(new Random(3), 10, 10, 5);
+
+    Cover cofactor = cover.shannonCofactors(0, arena)[1];
+    arena.release(0);
+
+    assertEquals(cover.shannonCofactors(0)[1], cofactor);
+    assertEquals(0, arena.getAllocationCount());
+  }
+
+  @Test
+  public void repeatedCheckShouldRunOnReleasedStorage() {
+    Random random = new Random(13);
+    CoverArena arena = CoverArena.current();
+
+    for (int k = 0; k < 10; k++) {
+      Cover cover = randomCover(random, 30, 150, 5);
+      boolean expected = Tautology.singleOutputTautologyCheck(new Cover(cover));
+
+      arena.resetCounters();
+      assertEquals(expected, Tautology.singleOutputTautologyCheck(new Cover(cover)));
+      assertEquals("Cover " + k, 0, arena.getAllocationCount());
+      assertEquals(-1, arena.level());
+    }
+  }
+}
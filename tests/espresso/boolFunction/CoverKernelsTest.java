@@ -0,0 +1,70 @@
+package espresso.boolFunction;
+
+import espresso.boolFunction.cube.CoverKernels;
+import espresso.boolFunction.cube.Cube;
+import espresso.boolFunction.cube.CubeArray;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static espresso.TestCovers.randomCube;
+import static espresso.boolFunction.InputState.EMPTY;
+import static org.junit.Assert.assertArrayEquals;
+
+public class CoverKernelsTest {
+
+  @Test
+  public void bitSlicedKernelsShouldMatchScalarKernels() {
+    Random random = new Random(7);
+    int inputCount = 37;
+    int outputCount = 3;
+
+    CubeArray cubes = new CubeArray(inputCount, outputCount);
+    for (int i = 0; i < 150; i++) {
+      Cube cube = randomCube(random, inputCount, outputCount, 4);
+      if (i % 10 == 0) cube.setInput(EMPTY, random.nextInt(inputCount));
+      cubes.add(cube);
+    }
+    cubes.getColumnIndex();
+
+    CoverKernels scalar = CoverKernels.scalar();
+    CoverKernels bitSliced = CoverKernels.bitSliced();
+
+    for (int k = 0; k < 200; k++) {
+      Cube cube = k < cubes.size() ? cubes.get(k).copy() : randomCube(random, inputCount, outputCount, 4);
+      long[] packed = packed(cube);
+
+      assertArrayEquals(
+          scalar.intersectingRows(cubes, packed, 0),
+          bitSliced.intersectingRows(cubes, packed, 0)
+      );
+      assertArrayEquals(
+          scalar.containedRows(cubes, packed, 0),
+          bitSliced.containedRows(cubes, packed, 0)
+      );
+      assertArrayEquals(
+          scalar.containingRows(cubes, packed, 0),
+          bitSliced.containingRows(cubes, packed, 0)
+      );
+      assertArrayEquals(
+          scalar.inputDistances(cubes, packed, 0),
+          bitSliced.inputDistances(cubes, packed, 0)
+      );
+    }
+  }
+
+  private static long[] packed(Cube cube) {
+    int inputWords = (cube.inputLength() + 31) / 32;
+    int outputWords = (cube.outputLength() + 63) / 64;
+    long[] retValue = new long[inputWords + outputWords];
+
+    for (int i = 0; i < inputWords; i++) {
+      retValue[i] = cube.getInputWord(i);
+    }
+    for (int i = 0; i < outputWords; i++) {
+      retValue[inputWords + i] = cube.getOutputWord(i);
+    }
+
+    return retValue;
+  }
+}
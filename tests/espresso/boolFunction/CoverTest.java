@@ -6,7 +6,9 @@ import org.junit.Test;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
+import static espresso.TestCovers.randomCover;
 import static espresso.boolFunction.InputState.*;
 import static espresso.boolFunction.OutputState.*;
 import static org.junit.Assert.*;
@@ -171,6 +173,134 @@ public class CoverTest {
     );
   }
 
+  @Test
+  public void shannonCofactorsShouldMatchVariableCubeCofactors() {
+    Cover cover = randomCover(new Random(3), 5, 2, 150, 3);
+
+    for (int split = 0; split < cover.inputCount(); split++) {
+      Cube variable = cover.generateVariableCube(split);
+      Cover[] cofactors = cover.shannonCofactors(split);
+      Cover[] expected = {
+          cover.cofactor(new Cube(variable).inputComplement()),
+          cover.cofactor(variable)
+      };
+
+      for (int k = 0; k < 2; k++) {
+        assertEquals("Cofactor is incorrect.", expected[k], cofactors[k]);
+
+        for (int j = 0; j < cover.inputCount(); j++) {
+          assertEquals(expected[k].getZeroColumnCount(j), cofactors[k].getZeroColumnCount(j));
+          assertEquals(expected[k].getOneColumnCount(j), cofactors[k].getOneColumnCount(j));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void nestedShannonCofactorsShouldNotDependOnLaterChanges() {
+    Cover cover = randomCover(new Random(11), 6, 100, 3);
+
+    Cover lazy = cover.shannonCofactors(2)[1].shannonCofactors(4)[0].shannonCofactors(2)[0];
+    Cover expected = cover
+        .cofactor(cover.generateVariableCube(2))
+        .cofactor(new Cube(cover.generateVariableCube(4)).inputComplement());
+
+    assertEquals(expected.size(), lazy.size());
+    assertEquals(expected.hasDONTCARERow(), lazy.hasDONTCARERow());
+    assertEquals(expected.isUnate(), lazy.isUnate());
+    for (int j = 0; j < cover.inputCount(); j++) {
+      assertEquals(expected.getZeroColumnCount(j), lazy.getZeroColumnCount(j));
+      assertEquals(expected.getOneColumnCount(j), lazy.getOneColumnCount(j));
+    }
+
+    cover.get(0).setInput(ONE, 2);
+    cover.remove(1);
+    cover.add(new Cube(6, 1));
+
+    assertEquals("Cofactor changed with its parent.", expected, lazy);
+  }
+
+  @Test
+  public void hashIndexShouldFollowChangesOfTheCover() {
+    Cover cover = new Cover(8, 1);
+    for (int i = 0; i < 40; i++) {
+      InputState[] inputs = new InputState[8];
+      for (int j = 0; j < inputs.length; j++)
+        inputs[j] = (i >> j & 1) == 1 ? ONE : DONTCARE;
+      cover.add(new Cube(inputs, new OutputState[]{OUTPUT}));
+    }
+
+    Cube third = cover.get(3).copy();
+    assertTrue(cover.hasCube(third));
+    assertFalse("Duplicate was added.", cover.addIfAbsent(third.copy()));
+
+    cover.remove(3);
+    assertFalse("Removed cube is still found.", cover.hasCube(third));
+    assertTrue(cover.addIfAbsent(third.copy()));
+    assertTrue(cover.hasCube(third));
+
+    Cube changed = cover.get(10).copy();
+    cover.get(10).setInput(ZERO, 7);
+    assertFalse("Cube changed through first view is still found.", cover.hasCube(changed));
+    changed.setInput(ZERO, 7);
+    assertTrue(cover.hasCube(changed));
+
+    cover.add(changed.copy());
+    cover.add(changed.copy());
+    List<Cube> removed = cover.removeEqual(changed);
+    assertEquals(3, removed.size());
+    assertFalse(cover.hasCube(changed));
+    assertEquals(39, cover.size());
+  }
+
+  @Test
+  public void equalCoversShouldHaveEqualHashCodes() {
+    Cover cover = randomCover(new Random(11), 8, 30, 3);
+
+    Cover reversed = new Cover(8, 1);
+    for (int i = cover.size() - 1; i >= 0; i--) {
+      reversed.add(cover.get(i).copy());
+    }
+
+    assertEquals(cover, reversed);
+    assertEquals(cover.hashCode(), reversed.hashCode());
+  }
+
+  @Test
+  public void coversWithDuplicateCubesShouldBeComparedAsMultisets() {
+    for (int size : new int[]{2, 40}) {
+      Cover first = new Cover(8, 1);
+      Cover second = new Cover(8, 1);
+      for (int i = 0; i < size - 2; i++) {
+        InputState[] inputs = new InputState[8];
+        for (int j = 0; j < inputs.length; j++)
+          inputs[j] = (i >> j & 1) == 1 ? ONE : ZERO;
+        first.add(new Cube(inputs, new OutputState[]{OUTPUT}));
+        second.add(new Cube(inputs, new OutputState[]{OUTPUT}));
+      }
+
+      Cube c = new Cube(new InputState[]{ONE, ONE, ONE, ONE, ONE, ONE, ONE, DONTCARE},
+          new OutputState[]{OUTPUT});
+      Cube d = new Cube(new InputState[]{ZERO, ZERO, ZERO, ZERO, ZERO, ZERO, ZERO, DONTCARE},
+          new OutputState[]{OUTPUT});
+      first.add(c.copy());
+      first.add(c.copy());
+      second.add(c.copy());
+      second.add(d.copy());
+
+      assertNotEquals("Size " + size, first, second);
+      assertNotEquals("Size " + size, second, first);
+
+      Cover reordered = new Cover(8, 1);
+      for (int i = first.size() - 1; i >= 0; i--) {
+        reordered.add(first.get(i).copy());
+      }
+      assertEquals("Size " + size, first, reordered);
+      assertEquals("Size " + size, reordered, first);
+      assertEquals("Size " + size, first.hashCode(), reordered.hashCode());
+    }
+  }
+
   @Test
   public void shallowTrackingCofactorTest() throws Exception {
     Cover cover = new Cover("testCase1.txt");
@@ -193,4 +193,74 @@ public class CubeArrayTest {
         cubes.getOneColumnCount(0)
     );
   }
-}
\ No newline at end of file
+
+  @Test
+  public void cubesShouldStayValidWhenArrayGrowsAndShrinks() throws Exception {
+    CubeArray cubes = new CubeArray(3, 1);
+    Cube first = new Cube(new InputState[]{ZERO, ONE, DONTCARE}, new OutputState[]{OUTPUT});
+    cubes.add(first);
+
+    for (int i = 0; i < 100; i++) {
+      cubes.add(new Cube(new InputState[]{ONE, DONTCARE, ONE}, new OutputState[]{OUTPUT}));
+    }
+
+    Cube removed = cubes.remove(1);
+    Cube last = cubes.get(cubes.size() - 1);
+    cubes.remove(0);
+
+    assertEquals(
+        "Cube obtained before the array grew doesn't show its values.",
+        new Cube(new InputState[]{ZERO, ONE, DONTCARE}, new OutputState[]{OUTPUT}),
+        first
+    );
+    assertEquals(
+        "Removed cube should keep its values.",
+        new Cube(new InputState[]{ONE, DONTCARE, ONE}, new OutputState[]{OUTPUT}),
+        removed
+    );
+
+    last.setInput(ZERO, 1);
+    assertEquals(
+        "Changes made through a cube should be visible in the array.",
+        ZERO,
+        cubes.get(cubes.size() - 1).getInputState(1)
+    );
+    assertEquals("Counters don't follow changes made through cubes.", 1, cubes.getZeroColumnCount(1));
+    assertEquals("Counters don't follow removals.", 99, cubes.getOneColumnCount(0));
+
+    first.setInput(ONE, 0);
+    assertEquals("Removed cube still changes the counters.", 99, cubes.getOneColumnCount(0));
+    cubes.add(first);
+    assertEquals(100, cubes.getOneColumnCount(0));
+  }
+
+  @Test
+  public void copiesShouldNotSeeChangesOfEachOther() {
+    CubeArray original = new CubeArray(3, 1);
+    for (int i = 0; i < 20; i++) {
+      original.add(new Cube(new InputState[]{ONE, i % 2 == 0 ? ZERO : ONE, DONTCARE}, new OutputState[]{OUTPUT}));
+    }
+    Cube originalView = original.get(0);
+
+    CubeArray copy = new CubeArray(original);
+    copy.remove(5);
+    copy.get(0).setInput(ZERO, 0);
+    copy.swapCubes(1, 2);
+
+    assertEquals(20, original.size());
+    assertEquals(19, copy.size());
+    assertEquals("Write through first copy changed the original.", ONE, originalView.getInputState(0));
+    assertEquals(20, original.getOneColumnCount(0));
+    assertEquals(18, copy.getOneColumnCount(0));
+    assertEquals(ONE, original.get(1).getInputState(1));
+    assertEquals("Swap in first copy changed the original.", ZERO, copy.get(1).getInputState(1));
+    assertEquals(ONE, copy.get(2).getInputState(1));
+
+    originalView.setInput(ZERO, 2);
+    original.add(new Cube(3, 1));
+    assertEquals(DONTCARE, copy.get(0).getInputState(2));
+    assertEquals(ZERO, copy.get(0).getInputState(0));
+    assertEquals(21, original.size());
+    assertEquals(19, copy.size());
+  }
+}
@@ -0,0 +1,69 @@
+package espresso.boolFunction;
+
+import espresso.boolFunction.cube.Cube;
+import espresso.boolFunction.cube.CubePool;
+import espresso.urpAlgorithms.UnateOperations;
+import org.junit.Test;
+
+import static espresso.boolFunction.InputState.*;
+import static espresso.boolFunction.OutputState.NOT_OUTPUT;
+import static espresso.boolFunction.OutputState.OUTPUT;
+import static org.junit.Assert.*;
+
+public class CubePoolTest {
+
+  @Test
+  public void equalCubesShouldBeInternedToSameInstance() {
+    CubePool pool = new CubePool();
+    Cube cube = new Cube(new InputState[]{ONE, DONTCARE, ZERO}, new OutputState[]{OUTPUT, NOT_OUTPUT});
+
+    Cube first = pool.intern(cube);
+    Cube second = pool.intern(cube.copy());
+    assertSame(first, second);
+    assertNotSame(cube, first);
+    assertEquals(cube, first);
+    assertSame(pool.universal(3, 2), pool.intern(new Cube(3, 2)));
+    assertSame(pool.variable(3, 2, 1, ONE), new Cover(3, 2).generateVariableCube(1, pool));
+
+    assertEquals(3, pool.getMissCount());
+    assertEquals(3, pool.getHitCount());
+    assertEquals(3, pool.size());
+  }
+
+  @Test
+  public void internedCubesShouldBeCopiedIntoCovers() {
+    CubePool pool = new CubePool();
+    Cube cube = pool.variable(3, 1, 0, ZERO);
+
+    try {
+      cube.setInput(ONE, 1);
+      fail("Interned cube was changed.");
+    } catch (UnsupportedOperationException ignored) {
+    }
+
+    Cover cover = Cover.of(cube, cube);
+    cover.get(0).setInput(ONE, 1);
+    assertEquals(DONTCARE, cube.getInputState(1));
+    assertEquals(cube, cover.get(1));
+    assertFalse(cover.get(0).isInterned());
+  }
+
+  @Test
+  public void unateComplementWithPoolShouldMatchComplementWithoutPool() {
+    CubePool pool = new CubePool();
+    Cover cover = new Cover(8, 1);
+
+    for (int i = 0; i < 8; i++) {
+      for (int j = i + 1; j < 8; j += 3) {
+        Cube cube = new Cube(8, 1);
+        cube.setInput(ONE, i);
+        cube.setInput(ONE, j);
+        cover.add(cube);
+      }
+    }
+
+    assertEquals(UnateOperations.unateComplement(new Cover(cover)),
+        UnateOperations.unateComplement(new Cover(cover), pool));
+    assertTrue("Recursion should reuse cubes.", pool.getHitCount() > 0);
+  }
+}
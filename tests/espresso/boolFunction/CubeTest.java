@@ -3,6 +3,8 @@ package espresso.boolFunction;
 import espresso.boolFunction.cube.Cube;
 import org.junit.Test;
 
+import java.util.Arrays;
+
 import static espresso.boolFunction.InputState.*;
 import static espresso.boolFunction.OutputState.*;
 import static org.junit.Assert.*;
@@ -84,4 +86,47 @@ public class CubeTest {
         actual
     );
   }
-}
\ No newline at end of file
+
+  @Test
+  public void packedOperationsSpanMultipleWords() throws Exception {
+    InputState[] inputs1 = new InputState[70];
+    InputState[] inputs2 = new InputState[70];
+    Arrays.fill(inputs1, DONTCARE);
+    Arrays.fill(inputs2, DONTCARE);
+    inputs1[3] = ONE;
+    inputs1[40] = ZERO;
+    inputs1[69] = ONE;
+    inputs2[3] = ONE;
+    inputs2[40] = ONE;
+    inputs2[69] = ZERO;
+
+    Cube cube1 = new Cube(inputs1, new OutputState[]{OUTPUT, NOT_OUTPUT});
+    Cube cube2 = new Cube(inputs2, new OutputState[]{OUTPUT, OUTPUT});
+
+    assertEquals("Distance should count both empty variables.", 2, cube1.inputDistance(cube2));
+    assertEquals("Outputs that don't intersect should be counted.", 1, cube1.outputDistance(cube2));
+    assertNull("Cubes don't intersect.", cube1.and(cube2));
+    assertEquals(EMPTY, cube1.and(cube2, true).getInputState(69));
+
+    Cube union = cube1.smallestCubeContainingBoth(cube2);
+    assertTrue("Union should contain both cubes.", union.generalContain(cube1) && union.generalContain(cube2));
+    assertFalse("Cube doesn't contain its union.", cube1.generalContain(union));
+    assertEquals(ONE, union.getInputState(3));
+    assertEquals(DONTCARE, union.getInputState(69));
+
+    Cube cofactor = cube1.cofactor(new Cube(inputs1, new OutputState[]{OUTPUT, OUTPUT}));
+    assertTrue("Cofactor with respect to itself is the universal cube.", cofactor.isInputPartTautology());
+    assertEquals(67, cube1.dontcareCount());
+  }
+
+  @Test
+  public void equalCubesShouldHaveEqualHashCodes() {
+    Cube cube = new Cube(new InputState[]{ONE, ZERO, DONTCARE}, new OutputState[]{OUTPUT, NOT_OUTPUT});
+    Cover cover = new Cover(cube.copy());
+    Cube other = new Cube(new InputState[]{ZERO, ONE, DONTCARE}, new OutputState[]{OUTPUT, NOT_OUTPUT});
+
+    assertEquals(cube.hashCode(), cube.copy().hashCode());
+    assertEquals("View and copy must hash the same.", cube.hashCode(), cover.get(0).hashCode());
+    assertNotEquals(cube.hashCode(), other.hashCode());
+  }
+}
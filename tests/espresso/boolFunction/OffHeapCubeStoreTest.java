@@ -0,0 +1,95 @@
+package espresso.boolFunction;
+
+import espresso.boolFunction.cube.Cube;
+import espresso.boolFunction.cube.OffHeapCubeStore;
+import espresso.minimizers.espressoMinimizer.expand.Expand;
+import espresso.minimizers.espressoMinimizer.irredundant.Irredundant;
+import org.junit.Test;
+
+import static espresso.boolFunction.InputState.*;
+import static org.junit.Assert.*;
+
+public class OffHeapCubeStoreTest {
+
+  @Test
+  public void storeShouldReadSameRowsAsCover() throws Exception {
+    Cover cover = new Cover("testCase3.txt");
+
+    OffHeapCubeStore store = Cover.readOffHeap("testCase3.txt");
+    assertEquals(cover.size(), store.size());
+
+    for (int i = 0; i < cover.size(); i++) {
+      assertEquals("Row " + i + " is different.", cover.get(i), store.get(i));
+
+      for (int j = 0; j < cover.inputCount(); j++) {
+        assertEquals(cover.getInputState(i, j), store.getInputState(i, j));
+      }
+    }
+
+    Cover copy = new Cover(store.inputCount(), store.outputCount());
+    copy.addAll(store);
+    assertEquals("Copy of the store is incorrect.", cover, copy);
+  }
+
+  @Test
+  public void storeShouldGrowPastInitialCapacity() {
+    OffHeapCubeStore store = new OffHeapCubeStore(40, 1, 1);
+    for (int i = 0; i < 100; i++) {
+      Cube cube = new Cube(40, 1);
+      cube.setInput(i % 2 == 0 ? ONE : ZERO, i % 40);
+      store.add(cube);
+    }
+
+    assertEquals(100, store.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i % 2 == 0 ? ONE : ZERO, store.getInputState(i, i % 40));
+      assertEquals(DONTCARE, store.getInputState(i, (i + 1) % 40));
+    }
+    assertEquals(3, store.getColumnIndex().oneCount(0));
+    assertEquals(3, store.getColumnIndex().zeroCount(1));
+  }
+
+  @Test
+  public void expandShouldGiveSameResultForOffHeapOffSet() throws Exception {
+    Cover onSet = new Cover("testCase3.txt");
+    Cover offSet = onSet.complement();
+
+    OffHeapCubeStore store = new OffHeapCubeStore(offSet.inputCount(), offSet.outputCount());
+    store.addAll(offSet);
+
+    assertEquals(
+        "Expand must not depend on the storage of the off-set.",
+        Expand.expandCover(onSet, offSet),
+        Expand.expandCover(onSet, store)
+    );
+  }
+
+  @Test
+  public void irredundantShouldStreamOffHeapDontcareSet() throws Exception {
+    Cover cover = new Cover("testCase3.txt");
+    Cover onSet = new Cover(cover.inputCount(), cover.outputCount());
+    Cover dontcareSet = new Cover(cover.inputCount(), cover.outputCount());
+    for (int i = 0; i < cover.size(); i++) {
+      (i % 4 == 3 ? dontcareSet : onSet).add(cover.get(i).copy());
+    }
+
+    OffHeapCubeStore store = new OffHeapCubeStore(cover.inputCount(), cover.outputCount());
+    store.addAll(dontcareSet);
+
+    assertEquals(
+        "Irredundant must not depend on the storage of the don't care set.",
+        Irredundant.irredundantCover(onSet, dontcareSet),
+        Irredundant.irredundantCover(onSet, store)
+    );
+    for (Cube cube : onSet) {
+      Cover cofactor = new Cover(cover.inputCount(), cover.outputCount());
+      cofactor.addCofactors(store, cube, -1);
+      assertEquals("Streamed cofactor is incorrect.", dontcareSet.cofactor(cube), cofactor);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void capacityAbove2GBShouldThrow() {
+    new OffHeapCubeStore(40, 1, Integer.MAX_VALUE / 3 + 1);
+  }
+}
@@ -0,0 +1,80 @@
+package espresso.boolFunction;
+
+import espresso.boolFunction.cube.Cube;
+import espresso.urpAlgorithms.Tautology;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static espresso.TestCovers.covers;
+import static espresso.TestCovers.randomCover;
+import static espresso.boolFunction.InputState.*;
+import static espresso.boolFunction.OutputState.OUTPUT;
+import static org.junit.Assert.*;
+
+public class TruthTableTest {
+
+  @Test
+  public void complementCoverShouldBeExactComplement() {
+    Random random = new Random(3);
+
+    for (int inputCount : new int[]{3, 6, 9}) {
+      for (int k = 0; k < 30; k++) {
+        Cover cover = randomCover(random, inputCount, 1 + random.nextInt(12), 4);
+        TruthTable table = TruthTable.of(cover);
+        Cover complement = table.complement().toCover();
+
+        for (int m = 0; m < 1 << inputCount; m++) {
+          assertNotEquals("Minterm " + m, covers(cover, m, 0), covers(complement, m, 0));
+        }
+
+        Cover union = new Cover(cover);
+        union.addAll(complement);
+        assertTrue(TruthTable.of(union).isTautology());
+        assertEquals(table, table.complement().complement());
+        assertEquals(table, TruthTable.of(table.toCover(), table.getSupport()));
+      }
+    }
+  }
+
+  @Test
+  public void containmentShouldFollowCubeContainment() {
+    Cube big = new Cube(new InputState[]{ONE, DONTCARE, DONTCARE, DONTCARE, DONTCARE, DONTCARE, ZERO, DONTCARE},
+        new OutputState[]{OUTPUT});
+    Cube small = new Cube(new InputState[]{ONE, ZERO, DONTCARE, DONTCARE, DONTCARE, DONTCARE, ZERO, ONE},
+        new OutputState[]{OUTPUT});
+    int[] support = {0, 1, 6, 7};
+
+    TruthTable bigTable = TruthTable.of(Cover.of(big), support);
+    TruthTable smallTable = TruthTable.of(Cover.of(small), support);
+
+    assertTrue(bigTable.contains(smallTable));
+    assertFalse(smallTable.contains(bigTable));
+    assertEquals(small, smallTable.supercube());
+    assertTrue(bigTable.complement().complement().contains(bigTable));
+  }
+
+  /**
+   * Support above {@link TruthTable#MAX_VARIABLES} so that the recursion runs,
+   * the cover misses only the minterm with all inputs true.
+   */
+  @Test
+  public void recursiveTautologyShouldCheckBothCofactors() {
+    int inputCount = TruthTable.MAX_VARIABLES + 2;
+    Cover cover = new Cover(inputCount, 1);
+
+    for (int i = 0; i < inputCount; i++) {
+      Cube cube = new Cube(inputCount, 1);
+      cube.setInput(ZERO, i);
+      cover.add(cube);
+    }
+    assertFalse(Tautology.singleOutputTautologyCheck(cover));
+
+    Cube cube = new Cube(inputCount, 1);
+    for (int i = 0; i < inputCount; i++) {
+      cube.setInput(ONE, i);
+    }
+    cover.add(cube);
+    assertTrue(Tautology.singleOutputTautologyCheck(cover));
+  }
+}
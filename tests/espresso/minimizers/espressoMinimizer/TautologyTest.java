@@ -5,9 +5,16 @@ import espresso.boolFunction.InputState;
 import espresso.boolFunction.OutputState;
 import espresso.boolFunction.cube.Cube;
 import espresso.urpAlgorithms.Complement;
+import espresso.boolFunction.TruthTable;
+import espresso.urpAlgorithms.ParallelTautology;
 import espresso.urpAlgorithms.Tautology;
+import espresso.urpAlgorithms.TautologyCache;
 import org.junit.Test;
 
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static espresso.TestCovers.randomCover;
 import static org.junit.Assert.*;
 
 public class TautologyTest {
@@ -37,4 +44,143 @@ public class TautologyTest {
     );
   }
 
-}
\ No newline at end of file
+  @Test
+  public void memoizedTautologyCheckShouldMatchPlainCheck() throws Exception {
+    TautologyCache cache = new TautologyCache(64);
+    Random random = new Random(11);
+    int inputCount = TruthTable.MAX_VARIABLES + 4;
+
+    for (int k = 0; k < 40; k++) {
+      Cover cover = randomCover(random, inputCount, 30, 6);
+      for (int j = 0; j < inputCount; j++) {
+        Cube cube = new Cube(inputCount, 1);
+        cube.setInput(random.nextBoolean() ? InputState.ZERO : InputState.ONE, j);
+        cover.add(cube);
+      }
+
+      boolean expected = Tautology.singleOutputTautologyCheck(new Cover(cover));
+      assertEquals(expected, Tautology.singleOutputTautologyCheck(new Cover(cover), cache));
+
+      long hits = cache.getHitCount();
+      cover.shuffle(k);
+      assertEquals(expected, Tautology.singleOutputTautologyCheck(cover, cache));
+      assertTrue("Shuffled cover should be found.", cache.getHitCount() > hits);
+    }
+
+    assertTrue(cache.size() <= cache.capacity());
+    assertTrue(cache.getHitRate() > 0);
+  }
+
+  /**
+   * Covers made of blocks with disjoint supports, compared with first check of all minterms.
+   */
+  @Test
+  public void tautologyOfLooselyCoupledCoversShouldMatchMintermCheck() {
+    Random random = new Random(5);
+    int inputCount = 18;
+    int tautologies = 0;
+
+    for (int k = 0; k < 30; k++) {
+      Cover cover = new Cover(inputCount, 1);
+      int[] care = new int[40];
+      int[] value = new int[40];
+
+      for (int block = 0; block < 3; block++) {
+        for (int i = 0; i < 6 + random.nextInt(6); i++) {
+          Cube cube = new Cube(inputCount, 1);
+          int c = cover.size();
+          for (int j = block * 6; j < block * 6 + 6; j++) {
+            if (random.nextInt(3) == 0) {
+              boolean one = random.nextInt(4) != 0 || k % 2 == 0;
+              cube.setInput(one ? InputState.ONE : InputState.ZERO, j);
+              care[c] |= 1 << j;
+              value[c] |= one ? 1 << j : 0;
+            }
+          }
+          cover.add(cube);
+        }
+      }
+
+      boolean expected = true;
+      for (int m = 0; m < 1 << inputCount && expected; m++) {
+        boolean covered = false;
+        for (int c = 0; c < cover.size() && !covered; c++) {
+          covered = (m & care[c]) == value[c];
+        }
+        expected = covered;
+      }
+
+      tautologies += expected ? 1 : 0;
+      assertEquals("Cover " + k, expected, Tautology.singleOutputTautologyCheck(cover));
+    }
+
+    assertTrue("Test should contain tautologies.", tautologies > 0);
+    assertTrue("Test should contain non tautologies.", tautologies < 30);
+  }
+
+  @Test
+  public void parallelTautologyCheckShouldMatchSequentialCheck() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    ParallelTautology parallel = new ParallelTautology(pool, 2, 8);
+    Random random = new Random(17);
+    int inputCount = TruthTable.MAX_VARIABLES + 4;
+    int tautologies = 0;
+
+    try {
+      for (int k = 0; k < 60; k++) {
+        Cover cover = randomCover(random, inputCount, 20 + random.nextInt(40), k % 2 == 0 ? 12 : 5);
+
+        boolean expected = Tautology.singleOutputTautologyCheck(new Cover(cover));
+        tautologies += expected ? 1 : 0;
+
+        assertEquals("Cover " + k, expected, parallel.singleOutputTautologyCheck(new Cover(cover)));
+        assertEquals("Cover " + k, expected,
+            parallel.singleOutputTautologyCheck(new Cover(cover), new TautologyCache(256)));
+      }
+    } finally {
+      pool.shutdown();
+    }
+
+    assertTrue("Test should contain tautologies.", tautologies > 0);
+    assertTrue("Test should contain non tautologies.", tautologies < 60);
+  }
+
+  @Test
+  public void deepShannonExpansionShouldNotNeedLargeStack() throws Exception {
+    int inputCount = 400;
+    Cover chain = new Cover(inputCount, 1);
+    Cube last = new Cube(inputCount, 1);
+    for (int i = 0; i < inputCount; i++) {
+      Cube cube = last.copy();
+      cube.setInput(InputState.ZERO, i);
+      chain.add(cube);
+      last.setInput(InputState.ONE, i);
+    }
+
+    Cover tautology = new Cover(chain);
+    tautology.add(last);
+
+    boolean[] checks = new boolean[2];
+    Cover[] complement = new Cover[1];
+    Throwable[] error = new Throwable[1];
+
+//    Every split removes one input, so first recursive check would need 400 nested calls.
+    Thread thread = new Thread(null, () -> {
+      try {
+        checks[0] = Tautology.singleOutputTautologyCheck(new Cover(tautology));
+        checks[1] = Tautology.singleOutputTautologyCheck(new Cover(chain));
+        complement[0] = Complement.singleOutputComplement(new Cover(chain));
+      } catch (Throwable t) {
+        error[0] = t;
+      }
+    }, "deep-shannon", 1 << 17);
+    thread.start();
+    thread.join();
+
+    assertNull(error[0]);
+    assertTrue(checks[0]);
+    assertFalse(checks[1]);
+    assertEquals(Cover.of(last.copy()), complement[0]);
+  }
+
+}
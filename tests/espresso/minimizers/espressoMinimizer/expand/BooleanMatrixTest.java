@@ -4,16 +4,22 @@ import espresso.boolFunction.Cover;
 import espresso.boolFunction.InputState;
 import espresso.boolFunction.OutputState;
 import espresso.boolFunction.cube.Cube;
+import espresso.minimizers.espressoMinimizer.irredundant.NoCoverMatrix;
 import espresso.minimizers.espressoMinimizer.utils.BooleanMatrix;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
 import static espresso.boolFunction.InputState.ONE;
 import static espresso.boolFunction.InputState.ZERO;
 import static espresso.boolFunction.OutputState.OUTPUT;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 
 public class BooleanMatrixTest {
@@ -166,4 +172,37 @@ public class BooleanMatrixTest {
     BooleanMatrix matrix = new SingleOutputCoverMatrix(cover, cube);
     matrix.addIgnoredRows(100);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void scansShouldSkipIgnoredRowsAndColumns() throws Exception {
+    List<List<Integer>> minSets = new ArrayList<>();
+    for (int i = 0; i < 70; i++) {
+      minSets.add(Arrays.asList(i % 3, 64 + i % 2, 100));
+    }
+    BooleanMatrix matrix = new NoCoverMatrix(minSets, 130);
+
+    assertEquals(3, matrix.getTrueRowCount(5, false));
+    assertEquals(127, matrix.getFalseRowCount(5));
+    assertEquals(24, matrix.getTrueColumnCount(0));
+
+    matrix.addIgnoredColumns(100);
+    assertEquals(2, matrix.getTrueRowCount(5, false));
+    assertEquals(3, matrix.getTrueRowCount(5, true));
+    assertEquals(65, matrix.nextTrueColumn(3, 1));
+    assertEquals(-1, matrix.nextTrueColumn(3, 66));
+    assertEquals(101, matrix.nextColumn(100));
+
+    matrix.addIgnoredTrueRows(65);
+    assertEquals(35, matrix.getNotIgnoredRowCount());
+    assertEquals(2, matrix.nextRow(1));
+    assertEquals(64, matrix.nextTrueRow(1, 64));
+    assertEquals(12, matrix.getTrueColumnCount(0, false));
+    assertEquals(23, matrix.getFalseColumnCount(0, false));
+
+    assertTrue(matrix.isRowContained(0, 6));
+    assertFalse(matrix.isRowContained(0, 2));
+    assertTrue(matrix.haveCommonTrueColumn(0, 2));
+    matrix.addIgnoredColumns(64);
+    assertFalse(matrix.haveCommonTrueColumn(0, 2));
+  }
+}
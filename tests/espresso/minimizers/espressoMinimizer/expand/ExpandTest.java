@@ -0,0 +1,186 @@
+package espresso.minimizers.espressoMinimizer.expand;
+
+import espresso.boolFunction.Cover;
+import espresso.boolFunction.InputState;
+import espresso.boolFunction.OutputState;
+import espresso.boolFunction.cube.Cube;
+import espresso.minimizers.espressoMinimizer.SingleOutputEspressoMinimizer;
+import espresso.urpAlgorithms.Complement;
+import espresso.urpAlgorithms.Tautology;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static espresso.TestCovers.randomCover;
+import static espresso.TestCovers.randomCube;
+import static espresso.boolFunction.InputState.DONTCARE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExpandTest {
+
+  /**
+   * Single output cover with inputs written as in the input file, 0, 1 or 2 for
+   * first don't care.
+   */
+  private static Cover cover(String... rows) {
+    Cover retValue = new Cover(rows[0].length(), 1);
+    for (String row : rows) {
+      InputState[] inputs = new InputState[row.length()];
+      for (int j = 0; j < row.length(); j++) {
+        inputs[j] = InputState.fromValue(Character.getNumericValue(row.charAt(j)));
+      }
+      retValue.add(new Cube(inputs, new OutputState[]{OutputState.OUTPUT}));
+    }
+
+    return retValue;
+  }
+
+  /**
+   * Expanded cover must not intersect the off-set, it must cover every cube of the
+   * on-set and no literal of its cubes can be raised.
+   */
+  private static void assertPrimeCover(String message, Cover onSet, Cover offSet, Cover expanded) {
+    assertEquals(message, 0, expanded.intersect(offSet).size());
+    for (Cube cube : onSet) {
+      boolean contained = false;
+      for (Cube expandedCube : expanded) {
+        contained |= expandedCube.generalContain(cube);
+      }
+      assertTrue(message + ", cube " + cube, contained);
+    }
+
+    for (Cube cube : expanded) {
+      for (int j = 0; j < cube.inputLength(); j++) {
+        if (cube.getInputState(j) == DONTCARE) continue;
+
+        Cube raised = cube.copy();
+        raised.setInput(DONTCARE, j);
+        assertTrue(message + ", prime " + cube, Cover.of(raised).intersect(offSet).size() != 0);
+      }
+    }
+  }
+
+  @Test
+  public void expansionWithoutOffSetShouldGivePrimeCover() {
+    Random random = new Random(41);
+    int inputCount = 10;
+
+    for (int k = 0; k < 20; k++) {
+      Cover onSet = randomCover(random, inputCount, 9, 3);
+      Cover dontcareSet = randomCover(random, inputCount, 3, 3);
+
+      Cover offSet = Complement.complement(onSet, dontcareSet);
+      Cover expanded = Expand.expandCoverWithoutOffSet(onSet, onSet.union(dontcareSet));
+
+      assertPrimeCover("Cover " + k, onSet, offSet, expanded);
+    }
+  }
+
+  @Test
+  public void wideCubesShouldExpandIntoPrimes() {
+    Random random = new Random(73);
+    int inputCount = 70;
+
+    for (int k = 0; k < 10; k++) {
+      Cover onSet = randomCover(random, inputCount, 10, 3);
+      Cover offSet = new Cover(inputCount, 1);
+      while (offSet.size() < 40) {
+        Cube cube = randomCube(random, inputCount, 3);
+        if (onSet.intersect(Cover.of(cube.copy())).size() == 0) {
+          offSet.add(cube);
+        }
+      }
+
+      assertPrimeCover("Cover " + k, onSet, offSet, Expand.expandCover(onSet, offSet));
+    }
+  }
+
+  /**
+   * Inessential columns used to be the columns true in every row of the blocking
+   * matrix, raising them left first blocking row without free columns and the column
+   * cover of the remaining rows failed.
+   */
+  @Test
+  public void blockingRowsShouldKeepFreeColumns() {
+    Cover onSet = cover(
+        "2001", "1100", "1020", "0221", "0000", "1020", "0211",
+        "0011", "2211", "0012", "1001", "1001", "2211", "1001"
+    );
+    Cover dontcareSet = cover("0000", "1101", "1220", "0102");
+    Cover offSet = Complement.complement(onSet, dontcareSet);
+
+    assertPrimeCover("Expand", onSet, offSet, Expand.expandCover(onSet, offSet));
+
+    Cover minimized = SingleOutputEspressoMinimizer.getInstance().minimize(onSet, dontcareSet);
+    assertEquals(0, minimized.intersect(offSet).size());
+    for (Cube cube : onSet) {
+      Cover cofactor = minimized.union(dontcareSet).cofactor(cube);
+      assertTrue("Cube " + cube, Tautology.singleOutputTautologyCheck(cofactor));
+    }
+  }
+
+  @Test
+  public void concurrentExpansionsShouldNotInterfere() throws Exception {
+    Random random = new Random(23);
+    int inputCount = 10;
+    List<Cover> onSets = new ArrayList<>();
+    List<Cover> offSets = new ArrayList<>();
+    List<Cover> expected = new ArrayList<>();
+
+    for (int k = 0; k < 16; k++) {
+      Cover onSet = randomCover(random, inputCount, 10, 3);
+      Cover offSet = Complement.complement(onSet, new Cover(inputCount, 1));
+      onSets.add(onSet);
+      offSets.add(offSet);
+      expected.add(Expand.expandCover(onSet, offSet));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (int round = 0; round < 4; round++) {
+        List<Future<Cover>> results = new ArrayList<>();
+        for (int k = 0; k < onSets.size(); k++) {
+          Cover onSet = onSets.get(k);
+          Cover offSet = offSets.get(k);
+          results.add(executor.submit(() -> Expand.expandCover(onSet, offSet)));
+        }
+
+        for (int k = 0; k < results.size(); k++) {
+          assertEquals("Cover " + k, expected.get(k), results.get(k).get());
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void parallelExpansionShouldGiveSequentialResult() {
+    Random random = new Random(29);
+    int inputCount = 12;
+    ForkJoinPool pool = new ForkJoinPool(4);
+
+    try {
+      for (int k = 0; k < 10; k++) {
+        Cover onSet = randomCover(random, inputCount, 60, 4);
+        Cover offSet = Complement.complement(onSet, new Cover(inputCount, 1));
+        Cover expected = Expand.expandCover(onSet, offSet);
+
+        for (int windowSize : new int[]{2, 5, 64}) {
+          ParallelExpand parallel = new ParallelExpand(pool, windowSize, 1);
+          assertEquals("Cover " + k + ", window " + windowSize, expected, parallel.expandCover(onSet, offSet));
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
+
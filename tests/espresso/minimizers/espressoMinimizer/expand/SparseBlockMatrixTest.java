@@ -0,0 +1,97 @@
+package espresso.minimizers.espressoMinimizer.expand;
+
+import espresso.boolFunction.Cover;
+import espresso.boolFunction.cube.Cube;
+import espresso.minimizers.espressoMinimizer.utils.BooleanMatrix;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static espresso.TestCovers.randomCube;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SparseBlockMatrixTest {
+
+  @Test
+  public void sparseMatrixShouldMatchDenseMatrix() {
+    Random random = new Random(17);
+    int inputCount = 70;
+
+    for (int k = 0; k < 10; k++) {
+      Cover offSet = new Cover(inputCount, 1);
+      for (int i = 0; i < 150; i++) {
+        offSet.add(randomCube(random, inputCount, 3));
+      }
+      Cube cube = randomCube(random, inputCount, 3);
+
+      BlockMatrix dense = new SingleOutputBlockMatrix(offSet, cube);
+      BlockMatrix sparse = new SparseBlockMatrix(offSet, cube);
+
+      for (int j = 0; j < inputCount; j += 3) {
+        dense.addIgnoredColumn(j);
+        sparse.addIgnoredColumn(j);
+      }
+      dense.addIgnoredTrueRows(1);
+      sparse.addIgnoredTrueRows(1);
+      dense.addIgnoredColumns(Collections.singletonList(4));
+      sparse.addIgnoredColumns(Collections.singletonList(4));
+
+      for (int i = 0; i < offSet.size(); i++) {
+        assertEquals(dense.nextRow(i), sparse.nextRow(i));
+        assertEquals(dense.getTrueRowCount(i, true), sparse.getTrueRowCount(i, true));
+        assertEquals(dense.getTrueRowCount(i, false), sparse.getTrueRowCount(i, false));
+
+        for (int j = 0; j < inputCount; j++) {
+          assertEquals(dense.getElement(i, j), sparse.getElement(i, j));
+          assertEquals(dense.nextTrueColumn(i, j), sparse.nextTrueColumn(i, j));
+        }
+      }
+      for (int j = 0; j < inputCount; j++) {
+        assertEquals(dense.nextColumn(j), sparse.nextColumn(j));
+        assertEquals(dense.getTrueColumnCount(j, true), sparse.getTrueColumnCount(j, true));
+        assertEquals(dense.getTrueColumnCount(j, false), sparse.getTrueColumnCount(j, false));
+      }
+      assertEquals(dense.isFullyIgnored(), sparse.isFullyIgnored());
+
+      BooleanMatrix materialized = sparse.toBooleanMatrix();
+      assertEquals(dense.toBooleanMatrix().toString(), materialized.toString());
+      assertEquals(dense.toBooleanMatrix().getIgnoredRows(), materialized.getIgnoredRows());
+      assertEquals(dense.toBooleanMatrix().getIgnoredColumns(), materialized.getIgnoredColumns());
+    }
+  }
+
+  @Test
+  public void expansionWithLargeOffSetShouldBeTheSame() {
+    Random random = new Random(5);
+    int inputCount = 16;
+
+    Cover onSet = new Cover(inputCount, 1);
+    for (int i = 0; i < 8; i++) {
+      onSet.add(randomCube(random, inputCount, 3));
+    }
+    Cover offSet = new Cover(inputCount, 1);
+    while (offSet.size() < Expand.MIN_SPARSE_OFF_SET_SIZE + 10) {
+      Cube cube = randomCube(random, inputCount, 3);
+      if (onSet.intersect(Cover.of(cube.copy())).size() == 0) {
+        offSet.add(cube);
+      }
+    }
+    assertTrue(offSet.size() >= Expand.MIN_SPARSE_OFF_SET_SIZE);
+
+    Cover expanded = Expand.expandCover(onSet, offSet);
+    assertEquals(0, expanded.intersect(offSet).size());
+
+    Cover smallOffSet = new Cover(inputCount, 1);
+    for (int i = 0; i < Expand.MIN_SPARSE_OFF_SET_SIZE - 1; i++) {
+      smallOffSet.add(offSet.get(i).copy());
+    }
+    for (Cube cube : onSet) {
+      Cube dense = Expand.singleOutputCubeExpand(cube, onSet, smallOffSet).first;
+      Cover sparseOffSet = new Cover(smallOffSet);
+      sparseOffSet.add(smallOffSet.get(0).copy());
+      assertEquals(dense, Expand.singleOutputCubeExpand(cube, onSet, sparseOffSet).first);
+    }
+  }
+}
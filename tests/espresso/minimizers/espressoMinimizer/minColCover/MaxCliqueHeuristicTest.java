@@ -0,0 +1,71 @@
+package espresso.minimizers.espressoMinimizer.minColCover;
+
+import espresso.minimizers.espressoMinimizer.utils.BooleanMatrix;
+import espresso.minimizers.espressoMinimizer.utils.MatrixElementGenerator;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertTrue;
+
+public class MaxCliqueHeuristicTest {
+
+  private static BooleanMatrix matrix(boolean[][] elements) {
+    return new BooleanMatrix(new MatrixElementGenerator() {
+      @Override
+      public boolean generateElement(int rowIndex, int columnIndex) {
+        return elements[rowIndex][columnIndex];
+      }
+
+      @Override
+      public int getRowCount() {
+        return elements.length;
+      }
+
+      @Override
+      public int getColumnCount() {
+        return elements[0].length;
+      }
+    });
+  }
+
+  @Test
+  public void columnCoverShouldCoverEveryRow() {
+    Random random = new Random(3);
+
+    for (int k = 0; k < 20; k++) {
+      boolean[][] elements = new boolean[40][12];
+      for (boolean[] row : elements) {
+        row[random.nextInt(row.length)] = true;
+        for (int j = 0; j < row.length; j++) {
+          row[j] |= random.nextInt(5) == 0;
+        }
+      }
+
+      Set<Integer> columnCover = MaxCliqueHeuristic.getInstance().calculateMinimumColumnCover(
+          matrix(elements)
+      );
+
+      for (int i = 0; i < elements.length; i++) {
+        boolean covered = false;
+        for (int j : columnCover) {
+          covered |= elements[i][j];
+        }
+        assertTrue("Matrix " + k + ", row " + i, covered);
+      }
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void rowWithoutColumnsShouldNotBeCovered() {
+    BooleanMatrix matrix = matrix(new boolean[][]{
+        {true, false, false},
+        {false, true, false},
+        {false, true, true}
+    });
+    matrix.addIgnoredColumn(0);
+
+    MaxCliqueHeuristic.getInstance().calculateMinimumColumnCover(matrix);
+  }
+}